@@ -9,4 +9,4 @@ cd src &&\
 javac \
     -sourcepath java/ \
     --module-path $PATH_TO_FX \
-    --add-modules javafx.controls,javafx.fxml java/gr/ntua/medialab/application/App.java
+    --add-modules javafx.controls,javafx.fxml $(find java/ -name "*.java")
@@ -0,0 +1,14 @@
+#!/bin/bash
+
+if [[ -z $PATH_TO_FX ]]; then
+    echo "\$PATH_TO_FX is not set"
+    exit 1
+fi
+
+# Reads commands from stdin and writes responses to stdout
+# (see src/java/gr/ntua/medialab/application/headless/GameSession.java for the protocol)
+cd src &&\
+java \
+    -cp java/ \
+    --module-path $PATH_TO_FX \
+    --add-modules javafx.base,javafx.graphics gr.ntua.medialab.application.HeadlessApp
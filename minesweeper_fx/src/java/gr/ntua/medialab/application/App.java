@@ -1,12 +1,17 @@
 package gr.ntua.medialab.application;
 
+import gr.ntua.medialab.application.bot.Strategies;
+import gr.ntua.medialab.application.bot.Strategy;
 import gr.ntua.medialab.application.components.menu.MenuBar;
 import gr.ntua.medialab.application.components.menu.MenuScreen;
 import gr.ntua.medialab.application.components.minesweeper.Minesweeper;
 import gr.ntua.medialab.application.components.modals.GameLogger;
 import gr.ntua.medialab.application.components.modals.ScenarioBuilder;
 import gr.ntua.medialab.application.components.modals.ScenarioLoader;
+import gr.ntua.medialab.application.diagnostics.DebugOverlay;
+import gr.ntua.medialab.application.diagnostics.StartupReport;
 import gr.ntua.medialab.application.scenarios.Scenario;
+import gr.ntua.medialab.application.storage.WriteService;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.collections.ListChangeListener;
@@ -17,6 +22,7 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
@@ -30,6 +36,10 @@ public class App extends Application {
     private Scenario currentScenario;
     private Minesweeper currentGame;
     private Timer resetTimer; // used to transition between an ended game and the menu screen
+    private boolean assistEnabled = false; // applies to the current game and every game after it
+    private boolean heatmapEnabled = false; // applies to the current game and every game after it
+    private boolean autoplayEnabled = false; // applies to the current game and every game after it
+    private boolean practiceEnabled = false; // applies to the current game and every game after it
 
     private final MenuBar menuBar = new MenuBar(this);
     private final MenuScreen menuScreen = new MenuScreen(this);
@@ -40,21 +50,36 @@ public class App extends Application {
         return null;
     });
     private final GameLogger gameLogger = new GameLogger();
+    private final DebugOverlay debugOverlay = new DebugOverlay();
     private final VBox root = new VBox();
 
+    // views that are built once and then reused
+    private Node gameView; // re-bound to every new game
+    private Stage scenarioBuilderModal;
+    private Stage scenarioLoaderModal;
+    private Stage gameLoggerModal;
+
     public static void main(String[] args) {
         Application.launch(args);
     }
 
     @Override
     public void start(Stage stage) {
+        StartupReport.mark(StartupReport.APPLICATION_STARTED);
+        // start loading the tileset and the fonts in the background, they are only needed once a game starts
+        Settings.PRELOAD_ASSETS().thenRun(() -> StartupReport.mark(StartupReport.ASSETS_LOADED));
+
         // every time a node is added or removed, resize the stage
         root.getChildren().addListener((ListChangeListener<? super Node>) change -> stage.sizeToScene());
-        root.getChildren().add(menuBar.createView());
-        root.getChildren().add(menuScreen.createView());
+        root.getChildren().add(menuBar.getView());
+        root.getChildren().add(menuScreen.getView());
 
         stage.setOnCloseRequest(windowEvent -> exitGracefully()); // x button pressed
-        stage.setScene(new Scene(root));
+        // the debug overlay is drawn on top of everything else, without affecting the size of the stage
+        var scene = new Scene(new StackPane(root, debugOverlay.getView()));
+        debugOverlay.attach(scene);
+        StartupReport.markNextFrame(scene, StartupReport.FIRST_FRAME);
+        stage.setScene(scene);
         stage.setTitle("MediaLab Minesweeper");
         stage.centerOnScreen();
         stage.setResizable(false);
@@ -62,6 +87,7 @@ public class App extends Application {
     }
 
     // used to create the GameLogger, the ScenarioBuilder and the ScenarioLoader
+    // each modal is created once, the first time it is opened, and then it is only hidden and shown again
     private Stage createModal(Parent root, String title) {
         var modal = new Stage();
         modal.addEventFilter(KeyEvent.KEY_RELEASED, keyEvent -> {
@@ -80,19 +106,24 @@ public class App extends Application {
 
     // application -> create
     public void onCreateClicked(ActionEvent ignoredEvent) {
-        var modal = createModal(new Group(scenarioBuilder.createView()), "Scenario Builder");
-        modal.show();
+        if (scenarioBuilderModal == null)
+            scenarioBuilderModal = createModal(new Group(scenarioBuilder.getView()), "Scenario Builder");
+        scenarioBuilder.resetView();
+        scenarioBuilderModal.show();
     }
 
     // application -> load
     public void onLoadClicked(ActionEvent ignoredEvent) {
-        var modal = createModal(new Group(scenarioLoader.createView()), "Scenario Loader");
-        modal.show();
+        if (scenarioLoaderModal == null)
+            scenarioLoaderModal = createModal(new Group(scenarioLoader.getView()), "Scenario Loader");
+        scenarioLoader.resetView();
+        scenarioLoaderModal.show();
     }
 
     // application -> start
     public void onStartClicked(ActionEvent ignoredEvent) {
         if (currentScenario == null) return;
+        StartupReport.markStartClicked();
 
         if (resetTimer != null) {
             resetTimer.cancel();
@@ -101,12 +132,15 @@ public class App extends Application {
         }
 
         currentGame = new Minesweeper(
-                currentScenario.getGridSize(),
-                currentScenario.getGridSize(),
+                currentScenario.getRowCount(),
+                currentScenario.getColCount(),
                 currentScenario.getMineCount(),
                 currentScenario.getSuperMineExists(),
                 currentScenario.getTimeLimit()
         );
+        currentGame.setAssistEnabled(assistEnabled);
+        currentGame.setHeatmapEnabled(heatmapEnabled);
+        currentGame.setPracticeEnabled(practiceEnabled);
 
         // when the game ends, create a new entry in the GameLogger
         currentGame.gameHasEndedProperty().addListener((observable, oldValue, newValue) -> {
@@ -125,11 +159,16 @@ public class App extends Application {
                         public void run() {
                             // call Platform.runLater() as changing the root's nodes from another thread is not allowed
                             Platform.runLater(() -> {
-                                // last child will always be either the game or the menu screen
-                                root.getChildren().remove(root.getChildren().size() - 1);
-                                root.getChildren().add(menuScreen.createView());
                                 resetTimer.purge();
                                 resetTimer = null;
+                                // while autoplay is enabled, games are played back to back
+                                if (autoplayEnabled) {
+                                    onStartClicked(null);
+                                    return;
+                                }
+                                // last child will always be either the game or the menu screen
+                                root.getChildren().remove(root.getChildren().size() - 1);
+                                root.getChildren().add(menuScreen.getView());
                             });
                         }
                     },
@@ -139,7 +178,12 @@ public class App extends Application {
 
         // last child will always be either the game or the menu screen
         root.getChildren().remove(root.getChildren().size() - 1);
-        root.getChildren().add(currentGame.createView());
+        // the game view is built for the first game, and then re-bound to every new one
+        gameView = (gameView == null) ? currentGame.createView() : currentGame.reuseView(gameView);
+        root.getChildren().add(gameView);
+        StartupReport.markNextFrame(root.getScene(), StartupReport.FIRST_PLAYABLE_BOARD);
+        // autoplay clicks through the view, so it can only start once the view is bound to the game
+        if (autoplayEnabled) currentGame.setAutoplayStrategy(createAutoplayStrategy());
     }
 
     // application -> exit
@@ -150,8 +194,9 @@ public class App extends Application {
 
     // details -> rounds
     public void onRoundsClicked(ActionEvent ignoredEvent) {
-        var modal = createModal(new Group(gameLogger.createView()), "Match History");
-        modal.show();
+        if (gameLoggerModal == null)
+            gameLoggerModal = createModal(new Group(gameLogger.getView()), "Match History");
+        gameLoggerModal.show();
     }
 
     // details -> solution
@@ -159,6 +204,46 @@ public class App extends Application {
         currentGame.revealAllMines();
     }
 
+    // tools -> assist
+    public void onAssistToggled(boolean enabled) {
+        assistEnabled = enabled;
+        if (currentGame != null) currentGame.setAssistEnabled(enabled);
+    }
+
+    // tools -> heatmap
+    public void onHeatmapToggled(boolean enabled) {
+        heatmapEnabled = enabled;
+        if (currentGame != null) currentGame.setHeatmapEnabled(enabled);
+    }
+
+    // tools -> autoplay
+    public void onAutoplayToggled(boolean enabled) {
+        autoplayEnabled = enabled;
+        if (currentGame != null)
+            currentGame.setAutoplayStrategy(enabled ? createAutoplayStrategy() : null);
+    }
+
+    // tools -> practice
+    public void onPracticeToggled(boolean enabled) {
+        practiceEnabled = enabled;
+        if (currentGame != null) currentGame.setPracticeEnabled(enabled);
+    }
+
+    // tools -> undo (ctrl+z), only in practice mode
+    public void onUndoClicked(ActionEvent ignoredEvent) {
+        if (currentGame != null) currentGame.undo();
+    }
+
+    private Strategy createAutoplayStrategy() {
+        return Strategies.create(Settings.AUTOPLAY_STRATEGY(), System.nanoTime());
+    }
+
+    // called by the toolkit once the application exits, the files that are still queued are written before that
+    @Override
+    public void stop() {
+        WriteService.get().close();
+    }
+
     private void exitGracefully() {
         // kill all threads
         if (currentGame != null) currentGame.revealAllMines(); // cancels timer
@@ -0,0 +1,23 @@
+package gr.ntua.medialab.application;
+
+import gr.ntua.medialab.application.headless.GameSession;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+
+// Starting point of the module when it is used without a GUI
+// Reads commands from stdin and writes responses to stdout, see GameSession for the protocol
+// The JavaFX toolkit is never started, so bots and scripts can play thousands of games per second
+
+public class HeadlessApp {
+    public static void main(String[] args) throws IOException {
+        var input = new BufferedReader(new InputStreamReader(System.in));
+        var output = new BufferedWriter(new OutputStreamWriter(System.out));
+        try (var session = new GameSession()) {
+            session.run(input, output);
+        }
+    }
+}
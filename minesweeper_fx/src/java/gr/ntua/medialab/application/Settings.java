@@ -1,6 +1,7 @@
 package gr.ntua.medialab.application;
 
 import javafx.scene.image.Image;
+import javafx.scene.input.KeyCode;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.ImagePattern;
 import javafx.scene.paint.Paint;
@@ -11,6 +12,7 @@ import java.net.MalformedURLException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 // A class that only contains static constants, used to control various parts of the application
 // without having to track down where these constants are declared
@@ -24,6 +26,10 @@ public class Settings {
     // The folder in which the solution (mine positions) of the last game played is written to
     private static final File solution_folder = new File("solution");
 
+    // The folder in which pre-generated boards are looked for, one pack file per board size and mine count
+    // * Packs are optional (mines are placed randomly when there is none), see BoardPackBuilder to build them
+    private static final File board_packs_folder = new File("packs");
+
     // The file which contains the tileset for the cell graphics
     // * If this is changed, make sure to also change the tileset indexes further down in this class
     private static final File tileset_file = new File("resources/tileset.png");
@@ -37,17 +43,8 @@ public class Settings {
     // The file which contains the font to be used for the text displayed on a game over
     private static final File game_over_font_file = new File("resources/fontface.ttf");
 
-    // assert all of the above exist
-    static {
-        if (!scenarios_folder.exists() && !scenarios_folder.mkdirs())
-            throw new RuntimeException("The scenarios folder does not exist, and could not be created.");
-        if (!solution_folder.exists() && !solution_folder.mkdirs())
-            throw new RuntimeException("The solution folder does not exist, and could not be created.");
-        if (!tileset_file.exists()) System.err.println("The tileset file does not exist");
-        if (!cell_numbers_font_file.exists()) System.err.println("The cell numbers font file does not exist");
-        if (!game_info_font_file.exists()) System.err.println("The game info font file does not exist");
-        if (!game_over_font_file.exists()) System.err.println("The game over font file does not exist");
-    }
+    // the folders are created (and the files are checked) lazily, the first time each one is needed,
+    // so that touching this class does not cost any filesystem work (see the holder classes further down)
 
     // ! ------ * Scenario file parameters (be careful when changing these) * ------ !
 
@@ -66,6 +63,16 @@ public class Settings {
     // The line (counting from 0) which indicates whether a super mine exists in the scenario
     private static final int scenario_file_super_mine_existence_line = 3;
 
+    // The total number of lines a scenario file of the custom difficulty contains (its size follows the lines above)
+    // The mine count line of such a file can also give a density instead, as a percentage of the cells (e.g. 15%)
+    private static final int scenario_file_custom_total_lines = 6;
+
+    // The line (counting from 0) which contains the row count of a scenario of the custom difficulty
+    private static final int scenario_file_row_count_line = 4;
+
+    // The line (counting from 0) which contains the column count of a scenario of the custom difficulty
+    private static final int scenario_file_col_count_line = 5;
+
     // ! ------ * User defined scenario settings (you can change these) * ------ !
 
     // All the available difficulties the user can pick when creating a scenario
@@ -90,6 +97,24 @@ public class Settings {
     // Whether the user can add a super mine or not when creating a scenario
     private static final List<Boolean> scenario_super_mine_can_exist = Arrays.asList(false, true);
 
+    // ! ------ * Custom scenario settings (you can change these) * ------ !
+
+    // The difficulty of the scenarios that declare their own size, instead of the grid size of their difficulty
+    // Their size and mine count are only limited by the memory they need (see the CapacityModel class)
+    private static final int scenario_custom_difficulty = 0;
+
+    // The minimum and maximum time limit of a scenario of the custom difficulty
+    private static final int scenario_custom_min_time_limit = 1;
+    private static final int scenario_custom_max_time_limit = 24 * 60 * 60;
+
+    // The share of the maximum memory that a single board can take at its peak (of the maximum heap size for the
+    // boards kept on the heap, of the maximum direct memory size for the larger ones, which are kept outside of it)
+    private static final double scenario_max_memory_share = 0.5;
+
+    // The maximum number of nodes the minefield can display, larger scenarios can only be played headless
+    // Every cell takes two nodes, plus one while it is marked and one once it is revealed
+    private static final int scenario_max_displayed_nodes = 80_000;
+
     // ! ------ * Game parameters (you can change these) * ------ !
 
     // Number of (primary) clicks before a super mine stops being 'super'
@@ -103,6 +128,74 @@ public class Settings {
     // The file will always be created in the scenarios output folder
     private static final String game_mine_positions_filename = "mines.txt";
 
+    // Name of the file to which a line is appended for every finished game (the game log)
+    // The file will always be created in the solution folder
+    private static final String game_log_filename = "games.txt";
+
+    // Controls whether the minefield acts as soon as a mouse button is pressed, instead of when it is released
+    // Acting on the press saves the time the button is held down, but a press cannot be taken back by moving away
+    private static final boolean game_act_on_mouse_press = false;
+
+    // The keys that reveal and mark the cell under the keyboard cursor (the arrow keys move the cursor)
+    private static final KeyCode game_keyboard_reveal_key = KeyCode.SPACE;
+    private static final KeyCode game_keyboard_mark_key = KeyCode.F;
+
+    // ! ------ * Assist parameters (you can change these) * ------ !
+
+    // The time (in ms) the assist can spend analysing the minefield after each click
+    // Whatever has been found when the time runs out is still shown, the rest is dropped
+    private static final long assist_time_budget = 30;
+
+    // Controls whether the assist also marks the cells it knows have a mine, or only highlights the safe cells
+    // Cells are never marked while the super mine might still be active, as marking it would reveal its row and column
+    private static final boolean assist_auto_flag = true;
+
+    // The time (in ms) the mine probability heatmap can spend on each click
+    // Parts of the minefield that could not be computed in time are colored by an estimate instead
+    private static final long assist_heatmap_time_budget = 100;
+
+    // The number of clicks per second performed by autoplay
+    // 0 means as fast as the rendering keeps up (as many clicks as fit in the time slice of every frame)
+    private static final int autoplay_actions_per_second = 20;
+
+    // The time (in ms) autoplay can spend clicking on every frame, the rest of the frame is left to the rendering
+    private static final long autoplay_frame_time_slice = 4;
+
+    // The strategy autoplay uses (see the Strategies class for the available ones)
+    private static final String autoplay_strategy = "solver";
+
+    // ! ------ * File writes (you can change these) * ------ !
+
+    // The number of file writes that can wait for the background thread that writes every file of the game
+    // A write that does not fit fails right away, instead of making the game wait (see the WriteService class)
+    private static final int io_queue_capacity = 256;
+
+    // ! ------ * Game server parameters (you can change these) * ------ !
+
+    // The port the game server listens to (on the loopback address only) if no port is given
+    private static final int server_port = 4242;
+
+    // The maximum number of connections waiting to be accepted by the game server
+    private static final int server_backlog = 4096;
+
+    // The number of frames a spectator can fall behind before it is sent the full state of the game instead
+    private static final int spectator_queue_capacity = 256;
+
+    // ! ------ * Diagnostics (you can change these) * ------ !
+
+    // Whether a startup report (time to first frame, time to first playable board) is printed to the console
+    private static final boolean diagnostics_startup_report = true;
+
+    // The time (in ms since the JVM started) within which the first frame should be displayed
+    // A warning is printed alongside the startup report if it is exceeded
+    private static final long diagnostics_first_frame_budget = 1500;
+
+    // The key that shows and hides the debug overlay, which displays the game's metrics live
+    private static final KeyCode diagnostics_overlay_toggle_key = KeyCode.F3;
+
+    // How often (in ms) the debug overlay is refreshed while it is visible
+    private static final double diagnostics_overlay_refresh_interval = 250.0;
+
     // ! ------ * Graphics (you MUST change a lot of these if you change the tileset file) * ------ !
 
     // Size of each tile on the tileset in pixels
@@ -156,6 +249,20 @@ public class Settings {
     // Stroke color of the numbers displayed on revealed tiles with adjacent mines
     private static final Color cell_numbers_stroke_color = Color.BLACK;
 
+    // Color of the glow of hidden cells that the assist knows are safe
+    private static final Color cell_hint_color = Color.LIMEGREEN;
+
+    // Color of the outline of the cell under the keyboard cursor
+    private static final Color cell_cursor_color = Color.DODGERBLUE;
+
+    // Colors of the mine probability heatmap, for cells that certainly are safe and cells that certainly have a mine
+    // Every other probability gets a color in between
+    private static final Color cell_heatmap_safe_color = Color.LIMEGREEN;
+    private static final Color cell_heatmap_mine_color = Color.RED;
+
+    // Opacity of the mine probability heatmap, which is drawn on top of the hidden cells
+    private static final double cell_heatmap_opacity = 0.45;
+
     // Fill color of the text displayed on a game over
     private static final Color game_over_fill_color = Color.GOLD;
 
@@ -170,29 +277,64 @@ public class Settings {
 
     // ! ------ * Sensitive settings (don't change these unless you know what you're doing) * ------ !
 
-    private static final Image tileset; // Load the tileset
     private static final double mine_render_size = cell_render_size; // Ideally lesser or equal to the cell render size
     private static final double cell_numbers_font_size = cell_render_size / 1.2;
     private static final double game_info_font_size = cell_render_size / 2.5;
     private static final double game_over_font_size = cell_render_size * 2.0;
 
-    // Try to load the tileset, otherwise make it equal to null
-    static {
-        Image temp = null;
+    // Lazy holders, each one is initialized the first time it is accessed (the JVM guarantees this happens once)
+    // Folders are created on first use, assets start loading on a background thread on first use
+    // PRELOAD_ASSETS() touches every asset holder, so that all assets are loaded in parallel
+    private static final class ScenariosFolderHolder {
+        private static final File folder = create_folder(scenarios_folder, "scenarios");
+    }
+
+    private static final class SolutionFolderHolder {
+        private static final File folder = create_folder(solution_folder, "solution");
+    }
+
+    private static final class TilesetHolder {
+        private static final CompletableFuture<Image> tileset = CompletableFuture.supplyAsync(Settings::load_tileset);
+    }
+
+    private static final class CellNumbersFontHolder {
+        private static final CompletableFuture<Font> font = CompletableFuture.supplyAsync(
+                () -> load_font(cell_numbers_font_file, cell_numbers_font_size, "Cell numbers"));
+    }
+
+    private static final class GameInfoFontHolder {
+        private static final CompletableFuture<Font> font = CompletableFuture.supplyAsync(
+                () -> load_font(game_info_font_file, game_info_font_size, "Game info"));
+    }
+
+    private static final class GameOverFontHolder {
+        private static final CompletableFuture<Font> font = CompletableFuture.supplyAsync(
+                () -> load_font(game_over_font_file, game_over_font_size, "Game over"));
+    }
+
+    // Create the given folder if it does not exist
+    private static File create_folder(File folder, String name) {
+        if (!folder.exists() && !folder.mkdirs())
+            throw new RuntimeException("The " + name + " folder does not exist, and could not be created.");
+        return folder;
+    }
+
+    // Try to load the tileset, otherwise return null
+    private static Image load_tileset() {
+        if (!tileset_file.exists()) System.err.println("The tileset file does not exist");
         try {
-            temp = new Image(tileset_file.toURI().toURL().toExternalForm());
-            if (temp.isError()) {
-                temp = null;
-                throw new Exception();
-            }
+            var image = new Image(tileset_file.toURI().toURL().toExternalForm());
+            if (!image.isError()) return image;
         }
-        catch (Exception e) { System.err.println("The tileset could not be loaded"); }
-        finally { tileset = temp; }
+        catch (Exception ignored) {}
+        System.err.println("The tileset could not be loaded");
+        return null;
     }
 
     // Load a specific tile as Paint (specifically ImagePattern)
     // Return the fallback if the load fails
     private static Paint load_tile(int col, int row, Paint fallback) {
+        var tileset = TilesetHolder.tileset.join();
         if (tileset == null) return fallback;
         double width = tileset.getWidth() / tile_size;
         double height = tileset.getHeight() / tile_size;
@@ -200,8 +342,12 @@ public class Settings {
     }
 
     // Load the requested font from a file, or fall back to the default font if unable to
-    private static Font load_font(String url, double size) {
-        var font = Font.loadFont(url, size);
+    private static Font load_font(File file, double size, String name) {
+        if (!file.exists()) System.err.println("The " + name.toLowerCase() + " font file does not exist");
+        String url = null;
+        try { url = file.toURI().toURL().toExternalForm(); }
+        catch (MalformedURLException e) { System.err.println(name + " font could not be loaded"); }
+        var font = (url == null) ? null : Font.loadFont(url, size);
         return (font == null) ? Font.font(size) : font;
     }
 
@@ -210,11 +356,26 @@ public class Settings {
     // ! ------ * Everything this class exports * ------ !
     
     public static File SCENARIOS_FOLDER() {
-        return scenarios_folder;
+        return ScenariosFolderHolder.folder;
     }
 
     public static File SOLUTION_FOLDER() {
-        return solution_folder;
+        return SolutionFolderHolder.folder;
+    }
+
+    public static File BOARD_PACKS_FOLDER() {
+        return board_packs_folder;
+    }
+
+    // Start loading every asset in the background, without waiting for any of them
+    // Returns a future that completes when all of them have been loaded
+    public static CompletableFuture<Void> PRELOAD_ASSETS() {
+        return CompletableFuture.allOf(
+                TilesetHolder.tileset,
+                CellNumbersFontHolder.font,
+                GameInfoFontHolder.font,
+                GameOverFontHolder.font
+        );
     }
 
     public static int SCENARIO_FILE_TOTAL_LINES() {
@@ -237,6 +398,18 @@ public class Settings {
         return scenario_file_super_mine_existence_line;
     }
 
+    public static int SCENARIO_FILE_CUSTOM_TOTAL_LINES() {
+        return scenario_file_custom_total_lines;
+    }
+
+    public static int SCENARIO_FILE_ROW_COUNT_LINE() {
+        return scenario_file_row_count_line;
+    }
+
+    public static int SCENARIO_FILE_COL_COUNT_LINE() {
+        return scenario_file_col_count_line;
+    }
+
     public static List<Integer> SCENARIO_AVAILABLE_DIFFICULTIES() {
         return Collections.unmodifiableList(scenario_available_difficulties);
     }
@@ -265,6 +438,26 @@ public class Settings {
         return scenario_super_mine_can_exist.get(scenario_available_difficulties.indexOf(difficulty));
     }
 
+    public static int SCENARIO_CUSTOM_DIFFICULTY() {
+        return scenario_custom_difficulty;
+    }
+
+    public static int SCENARIO_CUSTOM_MIN_TIME_LIMIT() {
+        return scenario_custom_min_time_limit;
+    }
+
+    public static int SCENARIO_CUSTOM_MAX_TIME_LIMIT() {
+        return scenario_custom_max_time_limit;
+    }
+
+    public static double SCENARIO_MAX_MEMORY_SHARE() {
+        return scenario_max_memory_share;
+    }
+
+    public static int SCENARIO_MAX_DISPLAYED_NODES() {
+        return scenario_max_displayed_nodes;
+    }
+
     public static int GAME_SUPER_MINE_ACTIVE_FOR() {
         return game_super_mine_active_for;
     }
@@ -277,6 +470,50 @@ public class Settings {
         return game_mine_positions_filename;
     }
 
+    public static String GAME_LOG_FILENAME() {
+        return game_log_filename;
+    }
+
+    public static boolean GAME_ACT_ON_MOUSE_PRESS() {
+        return game_act_on_mouse_press;
+    }
+
+    public static KeyCode GAME_KEYBOARD_REVEAL_KEY() {
+        return game_keyboard_reveal_key;
+    }
+
+    public static KeyCode GAME_KEYBOARD_MARK_KEY() {
+        return game_keyboard_mark_key;
+    }
+
+    public static long ASSIST_TIME_BUDGET() {
+        return assist_time_budget;
+    }
+
+    public static boolean ASSIST_AUTO_FLAG() {
+        return assist_auto_flag;
+    }
+
+    public static long ASSIST_HEATMAP_TIME_BUDGET() {
+        return assist_heatmap_time_budget;
+    }
+
+    public static int AUTOPLAY_ACTIONS_PER_SECOND() {
+        return autoplay_actions_per_second;
+    }
+
+    public static long AUTOPLAY_FRAME_TIME_SLICE() {
+        return autoplay_frame_time_slice;
+    }
+
+    public static String AUTOPLAY_STRATEGY() {
+        return autoplay_strategy;
+    }
+
+    public static int IO_QUEUE_CAPACITY() {
+        return io_queue_capacity;
+    }
+
     public static double CELL_SIZE() {
         return cell_render_size;
     }
@@ -286,7 +523,7 @@ public class Settings {
     }
 
     public static boolean TILESET_LOADED_CORRECTLY() {
-        return tileset != null;
+        return TilesetHolder.tileset.join() != null;
     }
 
     public static Paint CELL_HIDDEN_GRAPHIC() {
@@ -325,25 +562,36 @@ public class Settings {
         return cell_numbers_stroke_color;
     }
 
+    public static Color CELL_HINT_COLOR() {
+        return cell_hint_color;
+    }
+
+    public static Color CELL_CURSOR_COLOR() {
+        return cell_cursor_color;
+    }
+
+    public static Color CELL_HEATMAP_SAFE_COLOR() {
+        return cell_heatmap_safe_color;
+    }
+
+    public static Color CELL_HEATMAP_MINE_COLOR() {
+        return cell_heatmap_mine_color;
+    }
+
+    public static double CELL_HEATMAP_OPACITY() {
+        return cell_heatmap_opacity;
+    }
+
     public static Font CELL_NUMBERS_FONT() {
-        String url = null;
-        try { url = cell_numbers_font_file.toURI().toURL().toExternalForm(); }
-        catch (MalformedURLException e) { System.err.println("Cell numbers font could not be loaded"); }
-        return load_font(url, cell_numbers_font_size);
+        return CellNumbersFontHolder.font.join();
     }
 
     public static Font GAME_INFO_FONT() {
-        String url = null;
-        try { url = game_info_font_file.toURI().toURL().toExternalForm(); }
-        catch (MalformedURLException e) { System.err.println("Game info font could not be loaded"); }
-        return load_font(url, game_info_font_size);
+        return GameInfoFontHolder.font.join();
     }
 
     public static Font GAME_OVER_FONT() {
-        String url = null;
-        try { url = game_over_font_file.toURI().toURL().toExternalForm(); }
-        catch (MalformedURLException e) { System.err.println("Game over font could not be loaded"); }
-        return load_font(url, game_over_font_size);
+        return GameOverFontHolder.font.join();
     }
 
     public static Color GAME_OVER_FILL_COLOR() {
@@ -361,4 +609,32 @@ public class Settings {
     public static Color FAILED_ACTION_TEXT_FILL_COLOR() {
         return failed_action_text_fill_color;
     }
+
+    public static int SERVER_PORT() {
+        return server_port;
+    }
+
+    public static int SERVER_BACKLOG() {
+        return server_backlog;
+    }
+
+    public static int SPECTATOR_QUEUE_CAPACITY() {
+        return spectator_queue_capacity;
+    }
+
+    public static boolean DIAGNOSTICS_STARTUP_REPORT() {
+        return diagnostics_startup_report;
+    }
+
+    public static long DIAGNOSTICS_FIRST_FRAME_BUDGET() {
+        return diagnostics_first_frame_budget;
+    }
+
+    public static KeyCode DIAGNOSTICS_OVERLAY_TOGGLE_KEY() {
+        return diagnostics_overlay_toggle_key;
+    }
+
+    public static double DIAGNOSTICS_OVERLAY_REFRESH_INTERVAL() {
+        return diagnostics_overlay_refresh_interval;
+    }
 }
@@ -0,0 +1,13 @@
+package gr.ntua.medialab.application.bot;
+
+// a click chosen by a strategy, primary (reveal) or secondary (mark/unmark)
+
+public record Action(int row, int col, boolean primary) {
+    public static Action reveal(int row, int col) {
+        return new Action(row, col, true);
+    }
+
+    public static Action mark(int row, int col) {
+        return new Action(row, col, false);
+    }
+}
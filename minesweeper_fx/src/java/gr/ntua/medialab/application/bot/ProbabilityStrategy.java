@@ -0,0 +1,30 @@
+package gr.ntua.medialab.application.bot;
+
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+import gr.ntua.medialab.application.engine.ProbabilityAnalyser;
+
+// always reveals the hidden cell least likely to have a mine (see ProbabilityAnalyser), and never marks anything
+// a new instance must be used for every game, as the analyser keeps the solutions of the previous click
+
+public class ProbabilityStrategy implements Strategy {
+    // the time the analyser can spend on each decision
+    private static final long ANALYSER_TIME_BUDGET = 50_000_000; // ns
+
+    private final ProbabilityAnalyser analyser = new ProbabilityAnalyser();
+
+    @Override
+    public Action next(BoardSnapshot snapshot) {
+        if (snapshot.isGameOver()) return null;
+        if (!snapshot.getMinesPlaced())
+            return Action.reveal(snapshot.getRowCount() / 2, snapshot.getColCount() / 2);
+
+        var probabilities = analyser.analyse(snapshot, System.nanoTime() + ANALYSER_TIME_BUDGET).probabilities();
+        int best = -1;
+        for (int cell = snapshot.nextHidden(0); cell >= 0; cell = snapshot.nextHidden(cell + 1)) {
+            if (snapshot.isMarked(cell)) continue;
+            if (best < 0 || probabilities[cell] < probabilities[best]) best = cell;
+            if (probabilities[best] == 0) break; // cannot do better than a certainly safe cell
+        }
+        return (best < 0) ? null : Action.reveal(snapshot.rowOf(best), snapshot.colOf(best));
+    }
+}
@@ -0,0 +1,32 @@
+package gr.ntua.medialab.application.bot;
+
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+
+import java.util.Random;
+
+// reveals a random hidden (and unmarked) cell every time, the baseline every other strategy should beat
+
+public class RandomStrategy implements Strategy {
+    private final Random rng;
+
+    public RandomStrategy(long seed) {
+        this.rng = new Random(seed);
+    }
+
+    @Override
+    public Action next(BoardSnapshot snapshot) {
+        if (snapshot.isGameOver()) return null;
+        if (!snapshot.getMinesPlaced())
+            return Action.reveal(snapshot.getRowCount() / 2, snapshot.getColCount() / 2);
+
+        int candidates = 0;
+        for (int cell = snapshot.nextHidden(0); cell >= 0; cell = snapshot.nextHidden(cell + 1))
+            if (!snapshot.isMarked(cell)) ++candidates;
+        if (candidates == 0) return null;
+        int pick = rng.nextInt(candidates);
+        for (int cell = snapshot.nextHidden(0); cell >= 0; cell = snapshot.nextHidden(cell + 1))
+            if (!snapshot.isMarked(cell) && pick-- == 0)
+                return Action.reveal(snapshot.rowOf(cell), snapshot.colOf(cell));
+        return null;
+    }
+}
@@ -0,0 +1,52 @@
+package gr.ntua.medialab.application.bot;
+
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+import gr.ntua.medialab.application.engine.Solver;
+
+import java.util.Random;
+
+// reveals the cells the Solver knows are safe, then marks the ones it knows have a mine (while marks are
+// available, and never while the super mine might be active), and guesses a random hidden cell when stuck
+
+public class SolverStrategy implements Strategy {
+    // the time the solver can spend on each decision
+    private static final long SOLVER_TIME_BUDGET = 50_000_000; // ns
+
+    private final Random rng;
+
+    public SolverStrategy(long seed) {
+        this.rng = new Random(seed);
+    }
+
+    @Override
+    public Action next(BoardSnapshot snapshot) {
+        if (snapshot.isGameOver()) return null;
+        if (!snapshot.getMinesPlaced())
+            return Action.reveal(snapshot.getRowCount() / 2, snapshot.getColCount() / 2);
+
+        var result = Solver.solve(snapshot, System.nanoTime() + SOLVER_TIME_BUDGET);
+        var safe = result.safe();
+        for (int cell = safe.nextSetBit(0); cell >= 0; cell = safe.nextSetBit(cell + 1))
+            if (!snapshot.isMarked(cell)) return Action.reveal(snapshot.rowOf(cell), snapshot.colOf(cell));
+
+        var mines = result.mines();
+        boolean superMineMayBeActive = snapshot.getHasSuperMine() &&
+                snapshot.getClicksCount() < snapshot.getSuperMineLifetime();
+        if (!superMineMayBeActive)
+            for (int cell = mines.nextSetBit(0); cell >= 0; cell = mines.nextSetBit(cell + 1)) {
+                if (snapshot.getMarkedCellsCount() >= snapshot.getMaxConcurrentMarkedCellsCount()) break;
+                if (!snapshot.isMarked(cell)) return Action.mark(snapshot.rowOf(cell), snapshot.colOf(cell));
+            }
+
+        // guess, among the hidden cells that are not marked and not known to have a mine
+        int candidates = 0;
+        for (int cell = snapshot.nextHidden(0); cell >= 0; cell = snapshot.nextHidden(cell + 1))
+            if (!snapshot.isMarked(cell) && !mines.get(cell)) ++candidates;
+        if (candidates == 0) return null;
+        int pick = rng.nextInt(candidates);
+        for (int cell = snapshot.nextHidden(0); cell >= 0; cell = snapshot.nextHidden(cell + 1))
+            if (!snapshot.isMarked(cell) && !mines.get(cell) && pick-- == 0)
+                return Action.reveal(snapshot.rowOf(cell), snapshot.colOf(cell));
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package gr.ntua.medialab.application.bot;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+// every available strategy by name, each one is created from a seed (strategies without randomness ignore it)
+// new strategies only have to be added here to become available to autoplay and to the Tournament
+
+public class Strategies {
+    private static final Map<String, LongFunction<Strategy>> factories = new LinkedHashMap<>();
+
+    static {
+        factories.put("random", RandomStrategy::new);
+        factories.put("solver", SolverStrategy::new);
+        factories.put("probability", seed -> new ProbabilityStrategy());
+    }
+
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(factories.keySet());
+    }
+
+    public static Strategy create(String name, long seed) throws IllegalArgumentException {
+        var factory = factories.get(name);
+        if (factory == null)
+            throw new IllegalArgumentException("Unknown strategy '" + name + "', available: " + factories.keySet());
+        return factory.apply(seed);
+    }
+}
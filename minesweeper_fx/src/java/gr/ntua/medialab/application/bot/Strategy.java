@@ -0,0 +1,16 @@
+package gr.ntua.medialab.application.bot;
+
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+
+// an automated player, which only sees the visible state of a board (like a human player would)
+// a strategy is used by a single game at a time, so it can keep state between calls (e.g. a seeded rng)
+
+public interface Strategy {
+    // the next click for the given state, or null if the strategy gives up
+    // the first click of a game is always a primary one, as the mines are only placed after it
+    Action next(BoardSnapshot snapshot);
+
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,162 @@
+package gr.ntua.medialab.application.bot;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.diagnostics.Metrics;
+import gr.ntua.medialab.application.engine.Board;
+import gr.ntua.medialab.application.scenarios.Scenario;
+import gr.ntua.medialab.application.scenarios.ScenarioConstraints;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Evaluates strategies against each other, on the same set of seeded boards
+// The boards are random scenarios (every difficulty, mine count and super mine option allowed by the
+// ScenarioConstraints), played with the super mine rules of the Settings; time limits are not enforced
+// The mines of every board are placed with the same seed, so strategies that start from the same cell
+// (every strategy here starts from the center) play exactly the same boards
+// Every (strategy, board) game is played in parallel on the common pool, then the strategies are ranked
+// by win rate, then by clicks per game, then by decision time
+// Usage: Tournament [boards per difficulty] [seed] [strategies (comma separated, all by default)]
+
+public class Tournament {
+    // a game that takes more clicks than this is given up (e.g. a strategy that keeps marking and unmarking)
+    private static final int MAX_CLICKS_PER_CELL = 4;
+
+    private record Game(Scenario scenario, long seed) {
+    }
+
+    private record Outcome(int strategy, boolean won, int clicks, long decisionNanos, long maxDecisionNanos) {
+    }
+
+    private record Standing(String strategy, int games, int wins, long clicks, long decisionNanos, long decisions,
+                            long maxDecisionNanos) {
+        double winRate() {
+            return (double) wins / games;
+        }
+
+        double clicksPerGame() {
+            return (double) clicks / games;
+        }
+
+        double decisionMicros() {
+            return (decisions == 0) ? 0 : decisionNanos / 1e3 / decisions;
+        }
+    }
+
+    public static void main(String[] args) {
+        int boardsPerDifficulty = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 42;
+        var names = (args.length > 2) ? List.of(args[2].split(",")) : List.copyOf(Strategies.names());
+        for (var name : names) Strategies.create(name, 0); // fail early on unknown names
+
+        var games = games(boardsPerDifficulty, seed);
+        System.out.println("Playing " + games.size() + " boards with " + names.size() + " strategies on " +
+                Runtime.getRuntime().availableProcessors() + " cores");
+
+        long start = System.nanoTime();
+        var outcomes = IntStream.range(0, names.size() * games.size()).parallel()
+                .mapToObj(task -> {
+                    int strategy = task / games.size();
+                    return play(strategy, names.get(strategy), games.get(task % games.size()));
+                })
+                .toList();
+        long elapsed = System.nanoTime() - start;
+
+        var standings = new ArrayList<Standing>();
+        for (int strategy = 0; strategy < names.size(); ++strategy) {
+            int wins = 0, clicks = 0, count = 0;
+            long decisionNanos = 0, maxDecisionNanos = 0;
+            for (var outcome : outcomes) {
+                if (outcome.strategy() != strategy) continue;
+                ++count;
+                if (outcome.won()) ++wins;
+                clicks += outcome.clicks();
+                decisionNanos += outcome.decisionNanos();
+                maxDecisionNanos = Math.max(maxDecisionNanos, outcome.maxDecisionNanos());
+            }
+            standings.add(new Standing(names.get(strategy), count, wins, clicks, decisionNanos, clicks,
+                    maxDecisionNanos));
+        }
+        standings.sort(Comparator.comparingDouble(Standing::winRate).reversed()
+                .thenComparingDouble(Standing::clicksPerGame)
+                .thenComparingDouble(Standing::decisionMicros));
+
+        System.out.printf("%-4s %-12s %7s %7s %9s %12s %14s %14s%n",
+                "rank", "strategy", "games", "wins", "win rate", "clicks/game", "decision (us)", "max decision");
+        for (int rank = 0; rank < standings.size(); ++rank) {
+            var standing = standings.get(rank);
+            System.out.printf("%-4d %-12s %7d %7d %8.2f%% %12.1f %14.2f %14.1f%n",
+                    rank + 1, standing.strategy(), standing.games(), standing.wins(), standing.winRate() * 100,
+                    standing.clicksPerGame(), standing.decisionMicros(), standing.maxDecisionNanos() / 1e3);
+        }
+        long hits = Metrics.SOLVER_CACHE_HITS.get(), lookups = hits + Metrics.SOLVER_CACHE_MISSES.get();
+        if (lookups > 0)
+            System.out.printf("Solver cache: %d of %d positions solved before (%.1f%%)%n",
+                    hits, lookups, 100.0 * hits / lookups);
+        long memoHits = Metrics.ANALYSER_MEMO_HITS.get(), memoLookups = memoHits + Metrics.ANALYSER_MEMO_MISSES.get();
+        if (memoLookups > 0)
+            System.out.printf("Analyser memo: %d of %d components enumerated before (%.1f%%)%n",
+                    memoHits, memoLookups, 100.0 * memoHits / memoLookups);
+        System.out.printf("Done in %dms%n", elapsed / 1_000_000);
+    }
+
+    // the same boards for every strategy: random valid scenarios of every difficulty
+    private static List<Game> games(int boardsPerDifficulty, long seed) {
+        var rng = new Random(seed);
+        var games = new ArrayList<Game>();
+        for (int difficulty : ScenarioConstraints.AVAILABLE_DIFFICULTIES)
+            for (int i = 0; i < boardsPerDifficulty; ++i) {
+                int timeLimit = between(rng, ScenarioConstraints.MIN_TIME_LIMIT(difficulty),
+                        ScenarioConstraints.MAX_TIME_LIMIT(difficulty));
+                int mineCount = between(rng, ScenarioConstraints.MIN_MINE_COUNT(difficulty),
+                        ScenarioConstraints.MAX_MINE_COUNT(difficulty));
+                boolean superMineExists = ScenarioConstraints.SUPER_MINE_CAN_EXIST(difficulty) && rng.nextBoolean();
+                try {
+                    var scenario = new Scenario(difficulty, timeLimit, mineCount, superMineExists);
+                    games.add(new Game(scenario, rng.nextLong()));
+                }
+                catch (Exception e) { // the only thrown exception is InvalidValueException
+                    throw new IllegalStateException("The scenario constraints are inconsistent: " + e.getMessage());
+                }
+            }
+        return games;
+    }
+
+    private static int between(Random rng, int min, int max) {
+        return min + rng.nextInt(max - min + 1);
+    }
+
+    private static Outcome play(int index, String name, Game game) {
+        var scenario = game.scenario();
+        var board = new Board(
+                scenario.getRowCount(), scenario.getColCount(), scenario.getMineCount(), scenario.getSuperMineExists(),
+                Settings.GAME_SUPER_MINE_ACTIVE_FOR(),
+                Settings.GAME_SUPER_MINE_PROCS_RECURSIVE_REVEAL()
+        );
+        board.enableSnapshots();
+        var strategy = Strategies.create(name, game.seed());
+
+        int clicks = 0;
+        long decisionNanos = 0, maxDecisionNanos = 0;
+        while (!board.isGameOver() && clicks < MAX_CLICKS_PER_CELL * board.getCellCount()) {
+            long start = System.nanoTime();
+            var action = strategy.next(board.getSnapshot());
+            long decision = System.nanoTime() - start;
+            decisionNanos += decision;
+            maxDecisionNanos = Math.max(maxDecisionNanos, decision);
+            if (action == null) break;
+
+            ++clicks;
+            if (!board.getMinesPlaced()) {
+                if (!action.primary()) continue;
+                board.placeMines(action.row(), action.col(), new Random(game.seed()));
+            }
+            if (action.primary()) board.primaryClick(action.row(), action.col());
+            else board.secondaryClick(action.row(), action.col());
+        }
+        return new Outcome(index, board.playerWon(), clicks, decisionNanos, maxDecisionNanos);
+    }
+}
@@ -0,0 +1,28 @@
+package gr.ntua.medialab.application.components;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+
+import java.io.IOException;
+import java.net.URL;
+
+// helper class used by every component to load its FXML view
+// each view is only loaded (and its FXML parsed) once, the components keep it and re-bind it to every new model,
+// so the controller of each view is kept inside the view, so that it can be found again when re-binding
+
+public class ViewLoader {
+    // load the view found at the given location and attach the given controller to it
+    public static Node load(URL location, Object controller) throws IOException {
+        var loader = new FXMLLoader(location);
+        loader.setController(controller);
+        Node view = loader.load();
+        view.getProperties().put(ViewLoader.class, controller);
+        return view;
+    }
+
+    // return the controller of a view created by load(), or null if the view has a controller of another type
+    public static <T> T getController(Node view, Class<T> controllerClass) {
+        var controller = (view == null) ? null : view.getProperties().get(ViewLoader.class);
+        return controllerClass.isInstance(controller) ? controllerClass.cast(controller) : null;
+    }
+}
@@ -1,6 +1,7 @@
 package gr.ntua.medialab.application.components.menu;
 
 import javafx.fxml.FXML;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.MenuItem;
 
 class MenuBarController {
@@ -11,6 +12,11 @@ class MenuBarController {
     @FXML private MenuItem exitButton;
     @FXML private MenuItem roundsButton;
     @FXML private MenuItem solutionButton;
+    @FXML private CheckMenuItem assistButton;
+    @FXML private CheckMenuItem heatmapButton;
+    @FXML private CheckMenuItem autoplayButton;
+    @FXML private CheckMenuItem practiceButton;
+    @FXML private MenuItem undoButton;
 
     // model
     // (no reference to the model needed)
@@ -23,5 +29,10 @@ class MenuBarController {
         exitButton.setOnAction(app::onExitClicked);
         roundsButton.setOnAction(app::onRoundsClicked);
         solutionButton.setOnAction(app::onSolutionClicked);
+        assistButton.setOnAction(actionEvent -> app.onAssistToggled(assistButton.isSelected()));
+        heatmapButton.setOnAction(actionEvent -> app.onHeatmapToggled(heatmapButton.isSelected()));
+        autoplayButton.setOnAction(actionEvent -> app.onAutoplayToggled(autoplayButton.isSelected()));
+        practiceButton.setOnAction(actionEvent -> app.onPracticeToggled(practiceButton.isSelected()));
+        undoButton.setOnAction(app::onUndoClicked);
     }
 }
@@ -1,7 +1,7 @@
 package gr.ntua.medialab.application.components.menu;
 
 import gr.ntua.medialab.application.App;
-import javafx.fxml.FXMLLoader;
+import gr.ntua.medialab.application.components.ViewLoader;
 import javafx.scene.Node;
 
 import java.io.IOException;
@@ -10,6 +10,7 @@ import java.net.URL;
 public class MenuScreen {
     private static final URL viewURL = MenuScreen.class.getResource("fxml/MenuScreenView.fxml");
     private final App app;
+    private Node view; // created once, the first time getView() is called
 
     public MenuScreen(App app) {
         this.app = app;
@@ -19,17 +20,19 @@ public class MenuScreen {
         return app;
     }
 
+    // returns the same view every time, the view is only created (and its FXML parsed) on the first call
+    public Node getView() throws RuntimeException {
+        if (view == null) view = createView();
+        return view;
+    }
+
     public Node createView() throws RuntimeException {
         try {
-            var loader = new FXMLLoader();
             var controller = new MenuScreenController();
-            loader.setLocation(viewURL);
-            loader.setController(controller);
-
-            var view = loader.load();
+            var view = ViewLoader.load(viewURL, controller);
             controller.bindViewToModel(this);
 
-            return (Node) view;
+            return view;
         } catch (IOException e) {
             throw new RuntimeException("Could not load the Menu Screen View");
         }
@@ -0,0 +1,123 @@
+package gr.ntua.medialab.application.components.minesweeper;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.diagnostics.Metrics;
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+import gr.ntua.medialab.application.engine.Delta;
+import gr.ntua.medialab.application.engine.Solver;
+import javafx.application.Platform;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// the assist mode of a minefield: after every click, a snapshot of the minefield is analysed in the background
+// (see Solver), then the hidden cells known to be safe are highlighted and the ones known to have a mine are marked
+// the analysis has a time budget, and a newer click cancels it (and drops its results), so the assist never
+// makes the player wait
+// all methods must be called on the JavaFX application thread
+
+class Assistant {
+    // one thread is enough for every minefield, as only one game is played at a time
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "Minesweeper assist");
+        thread.setDaemon(true); // must not keep the application running
+        return thread;
+    });
+
+    // attributes
+    private final Minefield minefield;
+
+    // state
+    private boolean enabled = false;
+    private boolean marking = false; // true while the assist marks cells, so that its own clicks are not analysed
+    private Future<?> analysis;
+    private final BitSet hinted = new BitSet();
+    // cells the assist has marked, they are never marked again (so the player can unmark them if they want to)
+    // unless an undo takes the mark back, in which case the assist may mark the cell again
+    private final BitSet marked = new BitSet();
+
+    // methods
+    Assistant(Minefield minefield) {
+        this.minefield = minefield;
+    }
+
+    void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) return;
+        this.enabled = enabled;
+        if (enabled) analyse();
+        else stop();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // analyse the latest snapshot of the minefield, cancelling the previous analysis if it is still running
+    void analyse() {
+        if (!enabled || marking) return;
+        cancel();
+
+        var snapshot = minefield.getSnapshot();
+        if (!snapshot.getMinesPlaced()) return;
+        if (snapshot.isGameOver()) {
+            stop();
+            return;
+        }
+
+        analysis = executor.submit(() -> {
+            long start = System.nanoTime();
+            var result = Solver.solve(snapshot, start + Settings.ASSIST_TIME_BUDGET() * 1_000_000);
+            Metrics.ASSIST_TIME.record(System.nanoTime() - start);
+            if (!Thread.currentThread().isInterrupted()) Platform.runLater(() -> apply(snapshot, result));
+        });
+    }
+
+    // cancel the running analysis and remove the hints
+    void stop() {
+        cancel();
+        for (int index = hinted.nextSetBit(0); index >= 0; index = hinted.nextSetBit(index + 1))
+            minefield.getCell(index).setHinted(false);
+        hinted.clear();
+    }
+
+    // an undo (see Minefield.undo()) changed the marks, the cells it unmarked are no longer marked by the assist
+    void undone(Delta delta) {
+        for (int index : delta.getUnmarked()) marked.clear(index);
+    }
+
+    private void cancel() {
+        if (analysis != null) analysis.cancel(true); // interrupts the solver, if it has started
+        analysis = null;
+    }
+
+    private void apply(BoardSnapshot snapshot, Solver.Result result) {
+        // a newer click happened after the snapshot was taken, and its own analysis is already running
+        if (!enabled || minefield.isStale(snapshot)) return;
+
+        for (int index = hinted.nextSetBit(0); index >= 0; index = hinted.nextSetBit(index + 1))
+            if (!result.safe().get(index)) minefield.getCell(index).setHinted(false);
+        var safe = result.safe();
+        for (int index = safe.nextSetBit(0); index >= 0; index = safe.nextSetBit(index + 1))
+            minefield.getCell(index).setHinted(true);
+        hinted.clear();
+        hinted.or(safe);
+
+        // marking an active super mine reveals its entire row and column, which must only happen on purpose
+        if (!Settings.ASSIST_AUTO_FLAG()) return;
+        if (snapshot.getHasSuperMine() && snapshot.getClicksCount() < snapshot.getSuperMineLifetime()) return;
+
+        marking = true;
+        var mines = result.mines();
+        for (int index = mines.nextSetBit(0); index >= 0; index = mines.nextSetBit(index + 1)) {
+            if (minefield.getMarkedCellsCount() >= minefield.getMaxConcurrentMarkedCellsCount()) break;
+            if (marked.get(index) || minefield.getCell(index).hasBeenMarked()) continue;
+
+            marked.set(index);
+            var cell = minefield.getCell(index);
+            minefield.assistSecondaryClick(cell.getRow(), cell.getCol());
+        }
+        marking = false;
+    }
+}
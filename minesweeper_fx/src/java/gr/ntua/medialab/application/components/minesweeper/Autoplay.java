@@ -0,0 +1,99 @@
+package gr.ntua.medialab.application.components.minesweeper;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.bot.Strategy;
+import gr.ntua.medialab.application.diagnostics.Metrics;
+import javafx.animation.AnimationTimer;
+import javafx.scene.input.MouseButton;
+
+// lets a bot strategy play a minefield through its view, a few clicks on every frame
+// the clicks go through the same path as the clicks of the mouse (see Minefield.click()), so autoplay doubles as
+// a soak test of the model and the rendering: the achieved actions per second and the dropped frames are reported
+// when it stops
+// all methods must be called on the JavaFX application thread
+
+class Autoplay {
+    // JavaFX pulses (i.e. renders a frame) at most 60 times per second
+    private static final double FRAME_INTERVAL = 1_000_000_000.0 / 60; // ns
+
+    // attributes
+    private final Minefield minefield;
+
+    // state
+    private Strategy strategy;
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onFrame(now);
+        }
+    };
+    private long startTime;
+    private long lastFrameTime;
+    private double actionsOwed; // when the rate is limited, the actions that are due but have not been performed
+    private long actions;
+    private long frames;
+    private long droppedFrames;
+
+    // methods
+    Autoplay(Minefield minefield) {
+        this.minefield = minefield;
+    }
+
+    void start(Strategy strategy) {
+        stop();
+        this.strategy = strategy;
+        startTime = lastFrameTime = -1;
+        actionsOwed = 0;
+        actions = frames = droppedFrames = 0;
+        timer.start();
+    }
+
+    // stops playing, and prints a report to the error stream (like the other diagnostics) if any action was performed
+    void stop() {
+        if (strategy == null) return;
+        timer.stop();
+        if (actions > 0) System.err.println(report());
+        strategy = null;
+    }
+
+    boolean isRunning() {
+        return strategy != null;
+    }
+
+    String report() {
+        double seconds = (lastFrameTime - startTime) / 1e9;
+        return String.format("Autoplay (%s): %d actions in %.2fs (%.1f actions/s), %d frames, %d dropped",
+                strategy.getName(), actions, seconds, (seconds > 0) ? actions / seconds : 0.0,
+                frames, droppedFrames);
+    }
+
+    private void onFrame(long now) {
+        if (startTime < 0) startTime = lastFrameTime = now;
+        long interval = now - lastFrameTime;
+        lastFrameTime = now;
+        ++frames;
+        // a frame that came later than expected means the ones in between were never rendered
+        if (interval > 1.5 * FRAME_INTERVAL) {
+            long dropped = Math.round(interval / FRAME_INTERVAL) - 1;
+            droppedFrames += dropped;
+            Metrics.DROPPED_FRAMES.increment(dropped);
+        }
+
+        // a rate of 0 means as fast as possible, i.e. as many actions as fit in the time slice of every frame
+        int rate = Settings.AUTOPLAY_ACTIONS_PER_SECOND();
+        if (rate > 0) actionsOwed = Math.min(actionsOwed + rate * interval / 1e9, rate); // at most 1s worth
+        long sliceEnd = System.nanoTime() + Settings.AUTOPLAY_FRAME_TIME_SLICE() * 1_000_000;
+        while ((rate == 0 || actionsOwed >= 1) && System.nanoTime() - sliceEnd < 0) {
+            var snapshot = minefield.getSnapshot();
+            var action = snapshot.isGameOver() ? null : strategy.next(snapshot);
+            if (action == null) {
+                stop();
+                return;
+            }
+            minefield.click(action.primary() ? MouseButton.PRIMARY : MouseButton.SECONDARY, action.row(), action.col());
+            ++actions;
+            Metrics.AUTOPLAY_ACTIONS.increment(1);
+            if (rate > 0) --actionsOwed;
+        }
+    }
+}
@@ -4,12 +4,14 @@ import gr.ntua.medialab.application.Settings;
 import gr.ntua.medialab.application.components.minesweeper.graphics.CellGraphics;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.Node;
 import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
 import javafx.scene.text.Text;
 
+import java.util.ArrayList;
 import java.util.function.Function;
 
 /*
@@ -29,6 +31,7 @@ public class Cell {
     private int adjacentMinesCount = 0;
     private final ReadOnlyBooleanWrapper marked = new ReadOnlyBooleanWrapper(false);
     private final ReadOnlyBooleanWrapper revealed = new ReadOnlyBooleanWrapper(false);
+    private final ReadOnlyBooleanWrapper hinted = new ReadOnlyBooleanWrapper(false); // known to be safe by the assist
 
     // methods
     public Cell(int row, int col) {
@@ -65,11 +68,27 @@ public class Cell {
         if (marked.get() || revealed.get()) return false;
 
         revealed.set(true);
+        hinted.set(false);
         if (mine != null)
             mine.tryDetonate();
         return true;
     }
 
+    // undoes tryReveal() (see Board.undo()), along with the detonation of the mine
+    public boolean tryHide() {
+        if (!revealed.get()) return false;
+
+        revealed.set(false);
+        if (mine != null)
+            mine.tryUndetonate();
+        return true;
+    }
+
+    // only hidden cells can be hinted, revealing a cell removes its hint
+    public void setHinted(boolean hinted) {
+        this.hinted.set(hinted && !revealed.get());
+    }
+
     public boolean hasMine() {
         return mine != null;
     }
@@ -106,6 +125,10 @@ public class Cell {
         return revealed.getReadOnlyProperty();
     }
 
+    public ReadOnlyBooleanProperty hintedProperty() {
+        return hinted.getReadOnlyProperty();
+    }
+
     /**
     *   The view is a stackpane with up to 2 layers.
     *   The botton layer is the hidden/revealed graphic.
@@ -130,23 +153,36 @@ public class Cell {
         };
 
         // behavior of view if cell gets revealed
+        // the top layer is only created on the first reveal, and kept if the cell gets hidden again (by an undo)
+        var revealedLayer = new ArrayList<Node>(1);
         Function<Void, Void> ifRevealed = (var) -> {
             ((Shape) view.getChildren().get(0)).setFill(CellGraphics.REVEALED_GRAPHIC); // will always be at index 0 (bottom layer)
-            if (mine != null)
-                view.getChildren().add(mine.createView()); // will always be added to index 1 (top layer)
-            else if (adjacentMinesCount > 0) {
-                var adjacentMinesText = new Text(Integer.toString(adjacentMinesCount));
-                adjacentMinesText.setFont(CellGraphics.NUMBERS_FONT);
-                adjacentMinesText.setFill(CellGraphics.NUMBERS_FILL_COLOR(adjacentMinesCount));
-                adjacentMinesText.setStroke(CellGraphics.NUMBERS_STROKE_COLOR);
-                view.getChildren().add(adjacentMinesText); // will always be added to index 1 (top layer)
+            if (revealedLayer.isEmpty()) {
+                if (mine != null)
+                    revealedLayer.add(mine.createView());
+                else if (adjacentMinesCount > 0) {
+                    var adjacentMinesText = new Text(Integer.toString(adjacentMinesCount));
+                    adjacentMinesText.setFont(CellGraphics.NUMBERS_FONT);
+                    adjacentMinesText.setFill(CellGraphics.NUMBERS_FILL_COLOR(adjacentMinesCount));
+                    adjacentMinesText.setStroke(CellGraphics.NUMBERS_STROKE_COLOR);
+                    revealedLayer.add(adjacentMinesText);
+                }
             }
+            view.getChildren().addAll(revealedLayer); // will always be added to index 1 (top layer)
+            return null;
+        };
+
+        // behavior of view if cell gets hidden again
+        Function<Void, Void> ifHidden = (var) -> {
+            ((Shape) view.getChildren().get(0)).setFill(CellGraphics.HIDDEN_GRAPHIC);
+            view.getChildren().removeAll(revealedLayer);
             return null;
         };
 
         // if the cell is already marked or has been revealed, the view must be created correctly
         if (marked.get()) ifMarked.apply(null);
         if (revealed.get()) ifRevealed.apply(null);
+        if (hinted.get()) botGraphic.setEffect(CellGraphics.HINT_EFFECT);
 
         marked.addListener((observable, oldValue, newValue) -> {
             if (newValue)
@@ -155,8 +191,17 @@ public class Cell {
                 view.getChildren().remove(1); // will always be at index 1 (top layer)
         });
 
-        // can only change from false to true, once (no need to check if newValue is true)
-        revealed.addListener((observable, oldValue, newValue) -> ifRevealed.apply(null));
+        // can only change from true to false by undoing the reveal
+        revealed.addListener((observable, oldValue, newValue) -> {
+            if (newValue)
+                ifRevealed.apply(null);
+            else
+                ifHidden.apply(null);
+        });
+
+        // the hint is an effect on the bottom layer, so it does not affect the layers above it
+        hinted.addListener((observable, oldValue, newValue) ->
+                botGraphic.setEffect(newValue ? CellGraphics.HINT_EFFECT : null));
 
         return view;
     }
@@ -0,0 +1,125 @@
+package gr.ntua.medialab.application.components.minesweeper;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.diagnostics.Metrics;
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+import gr.ntua.medialab.application.engine.ProbabilityAnalyser;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// colors every hidden cell of a minefield by its probability of having a mine (see ProbabilityAnalyser)
+// the heatmap is a single image with one pixel per cell, which the view scales up over the minefield,
+// so drawing it never adds any nodes to the scene, and only the pixels whose color changed are written
+// the probabilities are computed in the background after every click, and a newer click cancels the computation
+// all methods must be called on the JavaFX application thread
+
+class Heatmap {
+    // one thread is enough for every minefield, as only one game is played at a time
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "Minesweeper heatmap");
+        thread.setDaemon(true); // must not keep the application running
+        return thread;
+    });
+    // probabilities are drawn in this many steps, so that tiny changes do not cause a redraw
+    private static final int COLOR_STEPS = 64;
+
+    // attributes
+    private final Minefield minefield;
+    private final WritableImage image;
+    private final ProbabilityAnalyser analyser = new ProbabilityAnalyser(); // only used by the executor's thread
+
+    // state
+    private final ReadOnlyBooleanWrapper enabled = new ReadOnlyBooleanWrapper(false);
+    private final int[] drawnColors; // the color of every pixel of the image (0 is transparent)
+    private Future<?> analysis;
+
+    // methods
+    Heatmap(Minefield minefield) {
+        this.minefield = minefield;
+        this.image = new WritableImage(minefield.getColCount(), minefield.getRowCount());
+        this.drawnColors = new int[minefield.getRowCount() * minefield.getColCount()];
+    }
+
+    void setEnabled(boolean enabled) {
+        if (this.enabled.get() == enabled) return;
+        this.enabled.set(enabled);
+        if (enabled) update();
+        else clear();
+    }
+
+    // compute the probabilities of the latest snapshot, cancelling the previous computation if it is still running
+    void update() {
+        if (!enabled.get()) return;
+        if (analysis != null) analysis.cancel(true); // interrupts the analyser, if it has started
+
+        var snapshot = minefield.getSnapshot();
+        if (snapshot.isGameOver()) {
+            clear();
+            return;
+        }
+        analysis = executor.submit(() -> {
+            long start = System.nanoTime();
+            var result = analyser.analyse(snapshot, start + Settings.ASSIST_HEATMAP_TIME_BUDGET() * 1_000_000);
+            Metrics.HEATMAP_TIME.record(System.nanoTime() - start);
+            if (!Thread.currentThread().isInterrupted()) Platform.runLater(() -> draw(snapshot, result));
+        });
+    }
+
+    Image getImage() {
+        return image;
+    }
+
+    ReadOnlyBooleanProperty enabledProperty() {
+        return enabled.getReadOnlyProperty();
+    }
+
+    private void draw(BoardSnapshot snapshot, ProbabilityAnalyser.Result result) {
+        // a newer click happened after the snapshot was taken, and its own computation is already running
+        if (!enabled.get() || minefield.isStale(snapshot)) return;
+
+        var writer = image.getPixelWriter();
+        var probabilities = result.probabilities();
+        int redrawn = 0;
+        for (int index = 0; index < probabilities.length; ++index) {
+            int color = Float.isNaN(probabilities[index]) ? 0 : colorOf(probabilities[index]);
+            if (color == drawnColors[index]) continue;
+            drawnColors[index] = color;
+            writer.setArgb(snapshot.colOf(index), snapshot.rowOf(index), color);
+            ++redrawn;
+        }
+        Metrics.HEATMAP_CELLS_REDRAWN.increment(redrawn);
+    }
+
+    private void clear() {
+        if (analysis != null) analysis.cancel(true);
+        analysis = null;
+        var writer = image.getPixelWriter();
+        for (int index = 0; index < drawnColors.length; ++index) {
+            if (drawnColors[index] == 0) continue;
+            writer.setArgb(index % minefield.getColCount(), index / minefield.getColCount(), 0);
+        }
+        Arrays.fill(drawnColors, 0);
+    }
+
+    private static int colorOf(float probability) {
+        double step = Math.round(Math.min(1, Math.max(0, probability)) * COLOR_STEPS) / (double) COLOR_STEPS;
+        var color = Settings.CELL_HEATMAP_SAFE_COLOR().interpolate(Settings.CELL_HEATMAP_MINE_COLOR(), step);
+        return argbOf(color, Settings.CELL_HEATMAP_OPACITY());
+    }
+
+    private static int argbOf(Color color, double opacity) {
+        return ((int) Math.round(opacity * 255) << 24) |
+                ((int) Math.round(color.getRed() * 255) << 16) |
+                ((int) Math.round(color.getGreen() * 255) << 8) |
+                (int) Math.round(color.getBlue() * 255);
+    }
+}
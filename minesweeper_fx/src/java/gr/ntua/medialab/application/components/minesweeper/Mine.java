@@ -40,6 +40,21 @@ public class Mine {
         return true;
     }
 
+    // the following two undo tryDetonate() and tryDisarm() (see Board.undo())
+    public boolean tryUndetonate() {
+        if (!detonated.get()) return false;
+
+        detonated.set(false);
+        return true;
+    }
+
+    public boolean tryRearm() {
+        if (!disarmed.get()) return false;
+
+        disarmed.set(false);
+        return true;
+    }
+
     public boolean isSuper() {
         return isSuper;
     }
@@ -78,11 +93,14 @@ public class Mine {
             view.getChildren().add(new Rectangle(rectSize, rectSize,
                     MineGraphics.DISARMED_GRAPHIC)); // might be added
 
-        // can only change from false to true, once (no need to check if newValue is true)
-        disarmed.addListener((observable, oldValue, newValue) ->
+        // can only change from true to false by undoing the disarm
+        disarmed.addListener((observable, oldValue, newValue) -> {
+            if (newValue)
                 view.getChildren().add(new Rectangle(rectSize, rectSize,
-                        MineGraphics.DISARMED_GRAPHIC))  // might be added
-        );
+                        MineGraphics.DISARMED_GRAPHIC)); // might be added
+            else
+                view.getChildren().remove(1);
+        });
 
         return view;
     }
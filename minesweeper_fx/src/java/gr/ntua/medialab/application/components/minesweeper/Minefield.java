@@ -1,19 +1,29 @@
 package gr.ntua.medialab.application.components.minesweeper;
 
 import gr.ntua.medialab.application.Settings;
-import javafx.beans.binding.BooleanExpression;
+import gr.ntua.medialab.application.bot.Strategy;
+import gr.ntua.medialab.application.components.ViewLoader;
+import gr.ntua.medialab.application.diagnostics.Metrics;
+import gr.ntua.medialab.application.diagnostics.jfr.ViewUpdateEvent;
+import gr.ntua.medialab.application.engine.Board;
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+import gr.ntua.medialab.application.engine.Delta;
+import gr.ntua.medialab.application.engine.GameEvent;
+import gr.ntua.medialab.application.packs.BoardPack;
+import gr.ntua.medialab.application.storage.WriteService;
 import javafx.beans.property.*;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Flow;
 
 // all getters that return primitive values are public
 // all getters that return objects are package-only, or return read-only objects
@@ -22,122 +32,190 @@ import java.util.Random;
 public class Minefield {
     private static final URL viewURL = Minefield.class.getResource("fxml/MinefieldView.fxml");
     // attributes
-    private final int rowCount;
-    private final int colCount;
-    private final int mineCount;
-    private final boolean hasSuperMine;
-    // how long (in successful primary clicks) the super mines retain their ability
-    private final int superMineLifetime = Settings.GAME_SUPER_MINE_ACTIVE_FOR();
-    private final int maxConcurrentMarkedCellsCount;
-    // if true, empty cells without adjacent mines revealed by marking a super mine also cause recursive reveal
-    private final boolean superMineActionRevealsEmptyCells = Settings.GAME_SUPER_MINE_PROCS_RECURSIVE_REVEAL();
+    // the rules of the game are implemented by the board, the cells mirror its state so that they can be displayed
+    private final Board board;
     private final List<List<Cell>> cells = new ArrayList<>();
+    private final Assistant assistant = new Assistant(this);
+    private final Heatmap heatmap;
+    private final Autoplay autoplay = new Autoplay(this);
+    // the click handler of the view bound to this minefield, so that clicks that do not come from the mouse
+    // go through exactly the same path as the ones that do
+    private ClickHandler clickHandler;
+
+    interface ClickHandler {
+        void click(MouseButton button, int row, int col);
+    }
 
     // state
-    private int clicksCount = 0;
     private final ReadOnlyBooleanWrapper firstClickHappened = new ReadOnlyBooleanWrapper(false);
     private final ReadOnlyIntegerWrapper markedCellsCount = new ReadOnlyIntegerWrapper(0);
     private final ReadOnlyBooleanWrapper mineDetonated = new ReadOnlyBooleanWrapper(false);
     private final ReadOnlyBooleanWrapper allEmptyCellsRevealed = new ReadOnlyBooleanWrapper(false);
+    // how many actions of the board each click of the player spans: the click itself, and the marks the assist
+    // placed because of it, so that undo takes them back together (the assist never gets undone on its own)
+    private final List<Integer> undoGroups = new ArrayList<>();
 
     // methods
     public Minefield(int rowCount, int colCount, int mineCount, boolean hasSuperMine) {
-        this.rowCount = rowCount;
-        this.colCount = colCount;
-        this.mineCount = mineCount;
-        this.hasSuperMine = hasSuperMine;
-        this.maxConcurrentMarkedCellsCount = mineCount;
+        this.board = new Board(
+                rowCount, colCount, mineCount, hasSuperMine,
+                Settings.GAME_SUPER_MINE_ACTIVE_FOR(),
+                Settings.GAME_SUPER_MINE_PROCS_RECURSIVE_REVEAL()
+        );
+        // the boards of the gui are small, so copying their state after every click is cheap
+        board.enableSnapshots();
+        // and keeping it after every click (for undo) only costs the few chunks of the board each click changes
+        board.enableHistory();
+        heatmap = new Heatmap(this);
 
         // create the cells
         for (int row = 0; row < rowCount; ++row) {
             cells.add(new ArrayList<>());
-            for (int col = 0; col < colCount; ++col) {
-                var cell = new Cell(row, col);
-                // increment and decrement the markedCellsCount automatically
-                cell.markedProperty().addListener((observable, oldValue, newValue) ->
-                    markedCellsCount.set(markedCellsCount.get() + ((newValue) ? 1 : -1))
-                );
-                cells.get(row).add(cell);
-            }
+            for (int col = 0; col < colCount; ++col)
+                cells.get(row).add(new Cell(row, col));
         }
     }
 
     // place mines randomly, while ensuring that the area around the given coordinates remains safe
     // this ensures that the first clicked cell is always empty and has no adjacent mines
+    // if there is a pack of boards of this size and mine count, one of its boards is picked instead of generating one
     void placeMines(int firstClickRowIndex, int firstClickColIndex) {
-        var rng = new Random(); // to generate coordinates
-        int minesRemaining = mineCount;
-        while (minesRemaining > 0) {
-            int row, col;
-            do {
-                row = rng.nextInt(rowCount);
-                col = rng.nextInt(colCount);
-            } while (row >= firstClickRowIndex - 1 && row <= firstClickRowIndex + 1 &&
-                    col >= firstClickColIndex - 1 && col <= firstClickColIndex + 1);
-
-            var cell = getCell(row, col);
-            if (cell.trySetMine(hasSuperMine && minesRemaining == mineCount)) {
-                // trySetMine() returns true if successful
-                --minesRemaining;
-                // update adjacent cells
-                for (int adjRow = row - 1; adjRow <= row + 1; ++adjRow) {
-                    for (int adjCol = col - 1; adjCol <= col + 1; ++adjCol) {
-                        if (adjRow >= 0 && adjRow < rowCount && adjCol >= 0 && adjCol < colCount) {
-                            var adjCell = getCell(adjRow, adjCol);
-                            adjCell.incrementAdjacentMinesCount(1);
-                        }
-                    }
-                }
-            }
+        var rng = new Random();
+        var pack = BoardPack.forBoard(Settings.BOARD_PACKS_FOLDER(),
+                board.getRowCount(), board.getColCount(), board.getMineCount());
+        int packed = (pack == null) ? -1 : pack.pick(firstClickRowIndex, firstClickColIndex, rng);
+        if (packed >= 0)
+            board.placeMines(firstClickRowIndex, firstClickColIndex,
+                    pack.getMines(packed), pack.getEntry(packed).superMineIndex());
+        else
+            board.placeMines(firstClickRowIndex, firstClickColIndex, rng);
+
+        // copy the mines and the adjacent mine counts to the cells
+        for (int index = 0; index < board.getCellCount(); ++index) {
+            var cell = getCell(index);
+            if (board.hasMine(index)) cell.trySetMine(board.hasSuperMine(index));
+            cell.incrementAdjacentMinesCount(board.getAdjacentMinesCount(index));
         }
-
-        createPropertyBindings();
     }
 
     // create a file with the coordinates of each mine, plus some info on which mines are super
+    // the contents are built here, the file is written in the background (see WriteService)
     void writeMinesToFile() {
+        var contents = new StringBuilder();
+        for (int index = 0; index < board.getCellCount(); ++index) {
+            if (!board.hasMine(index)) continue;
+            contents.append(board.rowOf(index)).append(' ')
+                    .append(board.colOf(index)).append(' ')
+                    .append(board.hasSuperMine(index) ? '1' : '0').append('\n');
+        }
+
         var file = new File(Settings.SOLUTION_FOLDER(), Settings.GAME_MINE_POSITIONS_FILENAME());
-        try (var writer = new FileWriter(file)) { // writer auto-closes when the block is over
-            for (var row : cells)
-                for (var cell : row) {
-                    if (!cell.hasMine()) continue;
-                    writer.write(
-                            cell.getRow() + " " +
-                            cell.getCol() + " " +
-                            (cell.getMine().isSuper() ? "1" : "0") + "\n"
-                    );
-                }
-        } catch (IOException e) {
+        WriteService.get().write(file.toPath(), contents.toString(), WriteService.Mode.REPLACE).exceptionally(e -> {
             // if any exceptions occur, the game should not be disrupted, so only a diagnostic is outputted
-            System.err.println("Could not open file '" + file.getName() + "' for writing");
-        }
+            System.err.println("Could not write file '" + file.getName() + "': "
+                    + WriteService.failure(e).getMessage());
+            return null;
+        });
     }
 
-    // creates the bindings of the detonatedMine and the allEmptyCellsRevealed properties,
-    // so they can update automatically
-    // gets called automatically after all mines are placed (in placeMines())
-    private void createPropertyBindings() {
-        BooleanExpression detonatedMineExpression = new SimpleBooleanProperty(false);
-        BooleanExpression allEmptyCellsRevealedExpression = new SimpleBooleanProperty(true);
+    // click on a cell as if the player clicked on it, through the view of the minefield
+    void click(MouseButton button, int row, int col) throws IllegalStateException {
+        if (clickHandler == null) throw new IllegalStateException("The minefield must have a view to be clicked");
+        clickHandler.click(button, row, col);
+    }
 
-        for (int row = 0; row < rowCount; ++row) {
-            for (int col = 0; col < colCount; ++col) {
-                var cell = getCell(row, col);
-                if (cell.hasMine())
-                    // if any mine detonates, the entire expression evaluates to true
-                    detonatedMineExpression = detonatedMineExpression.or(cell.getMine().detonatedProperty());
-                else
-                    // if any cell remains hidden, the entire expression evaluates to false
-                    allEmptyCellsRevealedExpression = allEmptyCellsRevealedExpression.and(cell.revealedProperty());
-            }
-        }
+    void setClickHandler(ClickHandler clickHandler) {
+        this.clickHandler = clickHandler;
+    }
+
+    // primary click on a cell, see Board.primaryClick()
+    void primaryClick(int row, int col) {
+        int actionsCount = board.getUndoableActionsCount();
+        apply(board.primaryClick(row, col));
+        group(actionsCount, true);
+        assistant.analyse();
+        heatmap.update();
+    }
+
+    // chord on a revealed number, see Board.chord()
+    void chord(int row, int col) {
+        int actionsCount = board.getUndoableActionsCount();
+        apply(board.chord(row, col));
+        group(actionsCount, true);
+        assistant.analyse();
+        heatmap.update();
+    }
+
+    // secondary click on a cell, see Board.secondaryClick()
+    void secondaryClick(int row, int col) {
+        int actionsCount = board.getUndoableActionsCount();
+        apply(board.secondaryClick(row, col));
+        group(actionsCount, true);
+        assistant.analyse();
+        heatmap.update();
+    }
 
-        mineDetonated.bind(detonatedMineExpression);
-        allEmptyCellsRevealed.bind(allEmptyCellsRevealedExpression);
+    // secondary click of the assist, undone together with the latest click of the player
+    void assistSecondaryClick(int row, int col) {
+        int actionsCount = board.getUndoableActionsCount();
+        apply(board.secondaryClick(row, col));
+        group(actionsCount, false);
+        heatmap.update();
     }
 
-    void incrementClicksCount(int amount) {
-        clicksCount += amount;
+    // undo the latest click of the player, along with the marks the assist placed because of it, see Board.undo()
+    // returns false if there is nothing to undo
+    boolean undo() {
+        if (undoGroups.isEmpty()) return false;
+
+        var delta = board.undo(undoGroups.remove(undoGroups.size() - 1));
+        apply(delta);
+        assistant.undone(delta);
+        assistant.analyse();
+        heatmap.update();
+        return true;
+    }
+
+    // count the actions the board has recorded since it had the given number of them, in a new undo group or
+    // in the latest one
+    private void group(int actionsCount, boolean newGroup) {
+        int recorded = board.getUndoableActionsCount() - actionsCount;
+        if (recorded == 0) return;
+        if (newGroup || undoGroups.isEmpty()) undoGroups.add(recorded);
+        else undoGroups.set(undoGroups.size() - 1, undoGroups.get(undoGroups.size() - 1) + recorded);
+    }
+
+    // mirror the changes made to the board onto the cells (which update their views) and the properties
+    private void apply(Delta delta) {
+        var event = new ViewUpdateEvent();
+        event.begin();
+        long start = System.nanoTime();
+
+        var hidden = delta.getHidden();
+        var rearmed = delta.getRearmed();
+        var marked = delta.getMarked();
+        var disarmed = delta.getDisarmed();
+        var unmarked = delta.getUnmarked();
+        var revealed = delta.getRevealed();
+        for (int index : hidden) getCell(index).tryHide(); // also undetonates the mine
+        for (int index : rearmed) getCell(index).getMine().tryRearm();
+        for (int index : marked) getCell(index).tryMark();
+        for (int index : disarmed) getCell(index).getMine().tryDisarm();
+        for (int index : unmarked) getCell(index).tryUnmark();
+        for (int index : revealed) getCell(index).tryReveal(); // also detonates the mine, if armed
+
+        Metrics.VIEW_UPDATE_TIME.record(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cellsChanged = hidden.length + rearmed.length + marked.length + disarmed.length + unmarked.length
+                    + revealed.length;
+            event.commit();
+        }
+
+        markedCellsCount.set(board.getMarkedCellsCount());
+        // these may end the game, which in turn reveals all the mines (i.e. calls apply() again)
+        mineDetonated.set(board.hasMineDetonated());
+        allEmptyCellsRevealed.set(board.allEmptyCellsRevealed());
     }
 
     void setFirstClickHappened() {
@@ -153,47 +231,100 @@ public class Minefield {
         return cells.get(row).get(col);
     }
 
+    Cell getCell(int index) {
+        return getCell(board.rowOf(index), board.colOf(index));
+    }
+
     public void revealAllMines() {
         if (!firstClickHappened.get()) return;
 
-        for (int row = 0; row < rowCount; ++row) {
-            for (int col = 0; col < colCount; ++col) {
-                var cell = getCell(row, col);
-                if (cell.hasMine()) cell.tryReveal();
-            }
-        }
+        int actionsCount = board.getUndoableActionsCount();
+        apply(board.revealAllMines());
+        group(actionsCount, false);
+    }
+
+    // the game was lost because the time ran out
+    void expireTime() {
+        board.expireTime();
+    }
+
+    // see Board.events()
+    public Flow.Publisher<List<GameEvent>> events() {
+        return board.events();
+    }
+
+    // see Board.getSnapshot(), never null
+    public BoardSnapshot getSnapshot() {
+        return board.getSnapshot();
+    }
+
+    // see Board.isStale()
+    public boolean isStale(BoardSnapshot snapshot) {
+        return board.isStale(snapshot);
+    }
+
+    // see Assistant
+    void setAssistEnabled(boolean enabled) {
+        assistant.setEnabled(enabled);
+    }
+
+    boolean isAssistEnabled() {
+        return assistant.isEnabled();
+    }
+
+    // see Autoplay, a null strategy stops it
+    void setAutoplayStrategy(Strategy strategy) {
+        if (strategy == null) autoplay.stop();
+        else autoplay.start(strategy);
+    }
+
+    // see Heatmap
+    void setHeatmapEnabled(boolean enabled) {
+        heatmap.setEnabled(enabled);
+    }
+
+    Image getHeatmapImage() {
+        return heatmap.getImage();
+    }
+
+    ReadOnlyBooleanProperty heatmapEnabledProperty() {
+        return heatmap.enabledProperty();
+    }
+
+    void closeEvents() {
+        board.closeEvents();
     }
 
     public int getRowCount() {
-        return rowCount;
+        return board.getRowCount();
     }
 
     public int getColCount() {
-        return colCount;
+        return board.getColCount();
     }
 
     public int getMineCount() {
-        return mineCount;
+        return board.getMineCount();
     }
 
     public boolean getHasSuperMine() {
-        return hasSuperMine;
+        return board.getHasSuperMine();
     }
 
     public int getSuperMineLifetime() {
-        return superMineLifetime;
+        return board.getSuperMineLifetime();
     }
 
     public int getMaxConcurrentMarkedCellsCount() {
-        return maxConcurrentMarkedCellsCount;
+        return board.getMaxConcurrentMarkedCellsCount();
     }
 
     public boolean getSuperMineActionRevealsEmptyCells() {
-        return superMineActionRevealsEmptyCells;
+        return board.getSuperMineActionRevealsEmptyCells();
     }
 
     public int getClicksCount() {
-        return clicksCount;
+        return board.getClicksCount();
     }
 
     public int getMarkedCellsCount() {
@@ -220,17 +351,24 @@ public class Minefield {
         return allEmptyCellsRevealed.getReadOnlyProperty();
     }
 
+    // binds a view created by createView() (for this or any other minefield) to this minefield and returns it,
+    // so that the view does not have to be rebuilt for every game
+    // if the given view cannot be reused, a new view is created instead
+    public Node reuseView(Node view) {
+        var controller = ViewLoader.getController(view, MinefieldController.class);
+        if (controller == null) return createView();
+
+        controller.bindViewToModel(this);
+        return view;
+    }
+
     public Node createView() {
         try {
-            var loader = new FXMLLoader();
             var controller = new MinefieldController();
-            loader.setLocation(viewURL);
-            loader.setController(controller);
-
-            var view = loader.load();
+            var view = ViewLoader.load(viewURL, controller);
             controller.bindViewToModel(this);
 
-            return (Node) view;
+            return view;
         } catch (IOException e) {
             throw new RuntimeException("Could not load the Minefield View");
         }
@@ -1,125 +1,167 @@
 package gr.ntua.medialab.application.components.minesweeper;
 
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.components.minesweeper.graphics.CellGraphics;
+import gr.ntua.medialab.application.diagnostics.Metrics;
+import gr.ntua.medialab.application.diagnostics.jfr.ClickEvent;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
-
-import java.util.LinkedList;
-import java.util.Queue;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.StrokeType;
 
 class MinefieldController {
     // view
     @FXML private GridPane minefieldPane;
+    // outlines the cell under the keyboard cursor, hidden until the cursor is first moved
+    private final Rectangle cursorView = new Rectangle(CellGraphics.SIZE, CellGraphics.SIZE, Color.TRANSPARENT);
 
     // model
     private Minefield model;
 
-    // assists in communication between minefield handler and cell handler
-    private Cell clickedCell;
+    // the cell under the keyboard cursor
+    private int cursorRow;
+    private int cursorCol;
+    // when the latest mouse button or key was pressed (see System.nanoTime()), to measure the press to pixel latency
+    private long pressedAt;
 
+    // can be called more than once, each call replaces the cells of the previous model
     public void bindViewToModel(Minefield model) {
+        // the previous model must not send its clicks to this view anymore
+        if (this.model != null) this.model.setClickHandler(null);
         this.model = model;
+        model.setClickHandler(this::handleClick);
+        minefieldPane.getChildren().clear();
 
         // create the view of every cell
         for (var row : model.getCells())
             for (var cell : row)
                 minefieldPane.add(cell.createView(), cell.getCol(), cell.getRow());
 
-        // add event listeners to the cells and the minefield
-        minefieldPane.setOnMouseClicked(this::onMinefieldClicked);
-        for (var child : minefieldPane.getChildren())
-            child.setOnMouseClicked(this::onCellClicked);
+        // the cursor is drawn on top of the cells, and starts at the center of the minefield
+        cursorView.setStroke(CellGraphics.CURSOR_COLOR);
+        cursorView.setStrokeWidth(CellGraphics.SIZE / 16);
+        cursorView.setStrokeType(StrokeType.INSIDE); // must not make its cell any bigger
+        cursorView.setMouseTransparent(true);
+        cursorView.setVisible(false);
+        moveCursor(model.getRowCount() / 2, model.getColCount() / 2);
+        minefieldPane.getChildren().add(cursorView);
+
+        // a single handler for the whole minefield, the cell is found from the position of the pointer, and acts
+        // either on the press of the button, or on its release (a click), see Settings.GAME_ACT_ON_MOUSE_PRESS()
+        minefieldPane.setOnMousePressed(this::onMousePressed);
+        minefieldPane.setOnMouseClicked(this::onMouseClicked);
+        minefieldPane.setOnKeyPressed(this::onKeyPressed);
+        minefieldPane.setFocusTraversable(true);
+        Platform.runLater(minefieldPane::requestFocus); // once the view has been added to the scene
+    }
+
+    private void onMousePressed(MouseEvent mouseEvent) {
+        pressedAt = System.nanoTime();
+        minefieldPane.requestFocus(); // so that the keyboard cursor keeps working after using the mouse
+        if (Settings.GAME_ACT_ON_MOUSE_PRESS()) onPointer(mouseEvent);
+    }
+
+    private void onMouseClicked(MouseEvent mouseEvent) {
+        if (!Settings.GAME_ACT_ON_MOUSE_PRESS()) onPointer(mouseEvent);
+    }
+
+    // the cell under the pointer is found arithmetically, as every cell of the minefield has the same size
+    private void onPointer(MouseEvent mouseEvent) throws IllegalAccessError {
+        if (model == null) throw new IllegalAccessError("Must bind to a model before calling this method");
+
+        int row = (int) (mouseEvent.getY() * model.getRowCount() / minefieldPane.getHeight());
+        int col = (int) (mouseEvent.getX() * model.getColCount() / minefieldPane.getWidth());
+        if (row < 0 || row >= model.getRowCount() || col < 0 || col >= model.getColCount()) return;
+        act(mouseEvent.getButton(), row, col);
     }
 
-    private void onCellClicked(MouseEvent mouseEvent) throws IllegalAccessError {
+    // the arrow keys move the cursor, the reveal and mark keys click the cell under it
+    private void onKeyPressed(KeyEvent keyEvent) throws IllegalAccessError {
         if (model == null) throw new IllegalAccessError("Must bind to a model before calling this method");
 
-        // get the clicked cell in a class field so the minefield handler can access it
-        var cell = (Node) mouseEvent.getSource();
-        int row = GridPane.getRowIndex(cell);
-        int col = GridPane.getColumnIndex(cell);
-        clickedCell = model.getCell(row, col);
+        pressedAt = System.nanoTime();
+        var code = keyEvent.getCode();
+        switch (code) {
+            case UP -> moveCursor(cursorRow - 1, cursorCol);
+            case DOWN -> moveCursor(cursorRow + 1, cursorCol);
+            case LEFT -> moveCursor(cursorRow, cursorCol - 1);
+            case RIGHT -> moveCursor(cursorRow, cursorCol + 1);
+            default -> {
+                if (code == Settings.GAME_KEYBOARD_REVEAL_KEY()) act(MouseButton.PRIMARY, cursorRow, cursorCol);
+                else if (code == Settings.GAME_KEYBOARD_MARK_KEY()) act(MouseButton.SECONDARY, cursorRow, cursorCol);
+                else return;
+            }
+        }
+        cursorView.setVisible(true);
+        keyEvent.consume();
+    }
+
+    private void moveCursor(int row, int col) {
+        cursorRow = Math.max(0, Math.min(model.getRowCount() - 1, row));
+        cursorCol = Math.max(0, Math.min(model.getColCount() - 1, col));
+        GridPane.setConstraints(cursorView, cursorCol, cursorRow);
+    }
+
+    // a click of the player, if it changes the minefield, its latency is measured up to the pulse that draws it
+    private void act(MouseButton button, int row, int col) {
+        long version = model.getSnapshot().getVersion();
+        handleClick(button, row, col);
+        if (model.getSnapshot().getVersion() != version) recordPressToPixel(minefieldPane.getScene(), pressedAt);
+    }
+
+    // the changes are drawn by the pulse whose layout is done next (see StartupReport.markNextFrame())
+    private static void recordPressToPixel(Scene scene, long pressedAt) {
+        if (scene == null) return;
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                Metrics.PRESS_TO_PIXEL.record(System.nanoTime() - pressedAt);
+            }
+        });
     }
 
-    private void onMinefieldClicked(MouseEvent mouseEvent) throws IllegalAccessError {
+    // every click on the minefield goes through here, whether it comes from the player or not (see Minefield.click())
+    void handleClick(MouseButton button, int row, int col) throws IllegalAccessError {
         if (model == null) throw new IllegalAccessError("Must bind to a model before calling this method");
 
+        var event = new ClickEvent();
+        event.begin();
+        long start = System.nanoTime();
+
         // on the first pimary click, set the mines and write them to a file before doing the rest
         if (!model.getFirstClickHappened()) {
-            if (mouseEvent.getButton() != MouseButton.PRIMARY) return;
-            model.placeMines(clickedCell.getRow(), clickedCell.getCol());
+            if (button != MouseButton.PRIMARY) return;
+            model.placeMines(row, col);
             model.writeMinesToFile();
             model.setFirstClickHappened();
         }
 
-        // if a revealed cell is clicked, do nothing
-        if (clickedCell.hasBeenRevealed()) return;
-
-        // queue to hold the cells that will have to be processed after the handler is done
-        var cellsToProcess = new LinkedList<Cell>();
-        switch (mouseEvent.getButton()) {
-            // left click
+        // the rules of each click (including the super mine) are implemented by the model's board
+        // a left click on a revealed number chords, just like a middle click
+        switch (button) {
             case PRIMARY -> {
-                if (clickedCell.hasBeenMarked()) return;
-                // if cell was hidden and unmarked, click was successful
-                model.incrementClicksCount(1);
-                cellsToProcess.add(clickedCell); // process the cell after
-            }
-            // right click
-            case SECONDARY -> {
-                // if the cell is unmarked and no more marks can be added, do nothing
-                if (!clickedCell.hasBeenMarked() &&
-                        model.getMarkedCellsCount() >= model.getMaxConcurrentMarkedCellsCount()) return;
-
-                // tryUnmark() returns true if successful
-                if (!clickedCell.tryUnmark()) {
-                    clickedCell.tryMark(); // at this point, tryMark() will always work
-                    if (clickedCell.hasMine() && clickedCell.getMine().isSuper() &&
-                            model.getClicksCount() < model.getSuperMineLifetime()) {
-                        // active super mine has been marked
-                        for (int col = 0; col < model.getColCount(); ++col) {
-                            // disarm the entire row
-                            var cell = model.getCell(clickedCell.getRow(), col);
-                            var mine = cell.getMine();
-                            if (mine != null) mine.tryDisarm();
-                            cellsToProcess.add(cell); // process the entire row
-                        }
-
-                        for (int row = 0; row < model.getRowCount(); ++row) {
-                            // disarm the entire column
-                            var cell = model.getCell(row, clickedCell.getCol());
-                            var mine = cell.getMine();
-                            if (mine != null) mine.tryDisarm();
-                            cellsToProcess.add(cell); // process the entire column
-                        }
-                    }
-                }
+                if (model.getCell(row, col).hasBeenRevealed()) model.chord(row, col);
+                else model.primaryClick(row, col); // left click
             }
+            case SECONDARY -> model.secondaryClick(row, col); // right click
+            case MIDDLE -> model.chord(row, col); // middle click
         }
 
-        processCells(cellsToProcess, mouseEvent.getButton() == MouseButton.SECONDARY);
-    }
-
-    private void processCells(Queue<Cell> cellsToProcess, boolean secondaryClick) {
-        while (!cellsToProcess.isEmpty()) {
-            // get the next cell and pop it off the queue
-            var cell = cellsToProcess.poll();
-            cell.tryUnmark(); // unmark it if it's marked
-            // reveal the cell and if it has no adjacent mines process every adjacent cell as well
-            if (cell.tryReveal() && cell.getAdjacentMinesCount() == 0) {
-                // controls whether a marked super mine's ability causes recursive reveal of empty cells
-                if (secondaryClick && !model.getSuperMineActionRevealsEmptyCells()) continue;
-                for (int adjRow = cell.getRow() - 1; adjRow <= cell.getRow() + 1; ++adjRow) {
-                    for (int adjCol = cell.getCol() - 1; adjCol <= cell.getCol() + 1; ++adjCol) {
-                        if (adjRow >= 0 && adjRow < model.getRowCount() && adjCol >= 0 && adjCol < model.getColCount()) {
-                            var adjCell = model.getCell(adjRow, adjCol);
-                            cellsToProcess.add(adjCell);
-                        }
-                    }
-                }
-            }
+        Metrics.CLICK_TO_MODEL.record(System.nanoTime() - start);
+        Metrics.CLICKS.increment(1);
+        event.end();
+        if (event.shouldCommit()) {
+            event.button = button.name();
+            event.row = row;
+            event.col = col;
+            event.commit();
         }
     }
 }
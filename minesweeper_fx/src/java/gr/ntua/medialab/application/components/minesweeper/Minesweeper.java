@@ -1,17 +1,22 @@
 package gr.ntua.medialab.application.components.minesweeper;
 
+import gr.ntua.medialab.application.bot.Strategy;
+import gr.ntua.medialab.application.components.ViewLoader;
+import gr.ntua.medialab.application.engine.BoardSnapshot;
+import gr.ntua.medialab.application.engine.GameEvent;
 import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.beans.property.ReadOnlyIntegerProperty;
 import javafx.beans.property.ReadOnlyIntegerWrapper;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Flow;
 
 // getters that return primitive values are public
 // getters that return objects are package-only, or return read-only objects
@@ -29,6 +34,7 @@ public class Minesweeper {
     private final ReadOnlyIntegerWrapper remainingTime = new ReadOnlyIntegerWrapper(1);
     private final ReadOnlyBooleanWrapper gameStarted = new ReadOnlyBooleanWrapper(false);
     private final ReadOnlyBooleanWrapper gameEnded = new ReadOnlyBooleanWrapper(false);
+    private final ReadOnlyBooleanWrapper practiceEnabled = new ReadOnlyBooleanWrapper(false);
 
     /**
      * Creates a new instance of the object representing the minesweeper game with the given arguments.
@@ -50,9 +56,10 @@ public class Minesweeper {
         // the game will only ever start once, so no need to check if newValue is true
         gameStarted.addListener((observable, oldValue, newValue) -> start());
 
-        // the game ends when either a mine detonates, or all empty cells are revealed, or the timer reaches 0
+        // the game ends when either a mine detonates (unless practicing), or all empty cells are revealed,
+        // or the timer reaches 0
         gameEnded.bind(
-                minefield.mineDetonatedProperty().or(
+                minefield.mineDetonatedProperty().and(practiceEnabled.not()).or(
                 minefield.allEmptyCellsRevealedProperty()).or(
                 remainingTime.lessThanOrEqualTo(0))
         );
@@ -87,18 +94,129 @@ public class Minesweeper {
             timer.purge();
             timer = null;
         }
+        if (remainingTime.get() <= 0) minefield.expireTime();
+        minefield.setAutoplayStrategy(null);
+        minefield.setAssistEnabled(false);
+        minefield.setHeatmapEnabled(false);
         minefield.revealAllMines();
+        minefield.closeEvents();
     }
 
     /**
      * Reveals all not-yet-revealed mines of the minefield if the game has started.
-     * Causes the game to be over and considered lost.
+     * Causes the game to be over and considered lost, even in practice mode.
      * Does nothing if the game has not started yet.
      */
     public void revealAllMines() {
+        practiceEnabled.set(false);
         minefield.revealAllMines();
     }
 
+    /**
+     * Enables or disables the practice mode of the game.
+     * In practice mode, a detonated mine does not end the game: the board stops accepting clicks until the
+     * click that detonated it is undone. Disabling practice mode while a mine is detonated ends the game.
+     * Revealing the solution also disables practice mode.
+     * @param enabled whether the practice mode should be enabled
+     * @see #undo()
+     */
+    public void setPracticeEnabled(boolean enabled) {
+        if (gameEnded.get()) return;
+        practiceEnabled.set(enabled);
+    }
+
+    /**
+     * Returns true if the game is in practice mode.
+     * @return true if the game is in practice mode.
+     */
+    public boolean isPracticeEnabled() {
+        return practiceEnabled.get();
+    }
+
+    /**
+     * Takes back the latest click that changed the minefield, restoring the cells, the marks and the clicks count
+     * as they were before it. The marks the assist placed because of that click are taken back along with it.
+     * Every click since the game started can be taken back, one at a time, but the time keeps running.
+     * Only available in practice mode, while the game has not ended.
+     * @return true if a click was taken back, false otherwise.
+     */
+    public boolean undo() {
+        if (!practiceEnabled.get() || gameEnded.get()) return false;
+        return minefield.undo();
+    }
+
+    /**
+     * Returns a publisher of the events of the game, which can be subscribed to from any thread.
+     * Every action (click, mine reveal, end of the game) publishes all of its events as a single batch.
+     * Batches are delivered asynchronously, off the JavaFX application thread, and each subscriber requests them
+     * at its own pace. Publishing never waits for a subscriber, so batches are dropped for a subscriber
+     * that falls too far behind.
+     * The subscriptions are completed after the game ends and all the mines have been revealed.
+     * @return a publisher of the events of the game.
+     * @see GameEvent
+     */
+    public Flow.Publisher<List<GameEvent>> events() {
+        return minefield.events();
+    }
+
+    /**
+     * Enables or disables the assist mode of the game.
+     * While enabled, after every click the hidden cells that are certainly safe are highlighted, and the ones
+     * that certainly have a mine are marked (as long as more cells can be marked, and the super mine, if any,
+     * is no longer active). The analysis runs in the background, within a small time budget per click.
+     * Disabling the assist removes the highlights, but not the marks.
+     * @param enabled whether the assist mode should be enabled
+     */
+    public void setAssistEnabled(boolean enabled) {
+        if (gameEnded.get()) return;
+        minefield.setAssistEnabled(enabled);
+    }
+
+    /**
+     * Lets the given strategy play the game through its view, or stops it if the strategy is null.
+     * The strategy clicks the cells exactly like the player would, a few times on every frame, at the rate
+     * set in the settings (or as fast as the rendering keeps up). The achieved actions per second and the
+     * dropped frames are printed when it stops, which happens when the game ends or the strategy gives up.
+     * The view of the game must have been created before calling this method.
+     * @param strategy the strategy that plays the game, or null to stop the current one
+     * @see #createView()
+     */
+    public void setAutoplayStrategy(Strategy strategy) {
+        if (gameEnded.get()) return;
+        minefield.setAutoplayStrategy(strategy);
+    }
+
+    /**
+     * Shows or hides the mine probability heatmap of the game.
+     * While shown, every hidden cell is colored by its probability of having a mine, which is recomputed in the
+     * background after every click (only the parts of the minefield the click changed are recomputed).
+     * @param enabled whether the heatmap should be shown
+     */
+    public void setHeatmapEnabled(boolean enabled) {
+        if (gameEnded.get()) return;
+        minefield.setHeatmapEnabled(enabled);
+    }
+
+    /**
+     * Returns an immutable copy of the visible state of the minefield, taken after its latest change.
+     * Snapshots can be read from any thread, so the game can be analysed in the background while the player
+     * keeps clicking. Use {@link #isStale(BoardSnapshot)} to check whether a snapshot is still up to date.
+     * @return the latest snapshot of the minefield.
+     */
+    public BoardSnapshot getSnapshot() {
+        return minefield.getSnapshot();
+    }
+
+    /**
+     * Returns whether the minefield has changed since the given snapshot was taken.
+     * Can be called from any thread.
+     * @param snapshot a snapshot returned by {@link #getSnapshot()}
+     * @return true if the minefield has changed since the snapshot was taken, false otherwise.
+     */
+    public boolean isStale(BoardSnapshot snapshot) {
+        return minefield.isStale(snapshot);
+    }
+
     /**
      * Returns the number of mines in the minefield.
      * @return the number of mines in the minefield.
@@ -186,6 +304,23 @@ public class Minesweeper {
                 (!minefield.mineDetonatedProperty().get() && minefield.allEmptyCellsRevealedProperty().get());
     }
 
+    /**
+     * Binds a view previously created by {@link #createView()}, for this or any other minesweeper object, to this game
+     * and returns it, so that starting a new game does not require building a new view.
+     * After this call, the given view no longer reflects the state of the game it was bound to before.
+     * If the given view was not created by {@link #createView()}, a new view is created and returned instead.
+     * @param view a view previously created by {@link #createView()}
+     * @return the given view, bound to this game, or a new view if the given one cannot be reused.
+     * @throws RuntimeException if a new view has to be created and its FXML file fails to load.
+     */
+    public Node reuseView(Node view) throws RuntimeException {
+        var controller = ViewLoader.getController(view, MinesweeperController.class);
+        if (controller == null) return createView();
+
+        controller.bindViewToModel(this);
+        return view;
+    }
+
     /**
      * Creates and returns a view of the game, which responds to mouse inputs.
      * Primary/left clicking on the view for the first time causes the game to start.
@@ -198,15 +333,11 @@ public class Minesweeper {
      */
     public Node createView() throws RuntimeException {
         try {
-            var loader = new FXMLLoader();
             var controller = new MinesweeperController();
-            loader.setLocation(viewURL);
-            loader.setController(controller);
-
-            var view = loader.load();
+            var view = ViewLoader.load(viewURL, controller);
             controller.bindViewToModel(this);
 
-            return (Node) view;
+            return view;
         } catch (IOException e) {
             throw new RuntimeException("Could not load the Minesweeper View");
         }
@@ -1,9 +1,11 @@
 package gr.ntua.medialab.application.components.minesweeper;
 
+import gr.ntua.medialab.application.components.minesweeper.graphics.CellGraphics;
 import gr.ntua.medialab.application.components.minesweeper.graphics.MinesweeperGraphics;
 import javafx.beans.binding.When;
 import javafx.fxml.FXML;
 import javafx.scene.Group;
+import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.text.Text;
@@ -15,27 +17,41 @@ class MinesweeperController {
     @FXML private Text markedCellsDisplay;
     @FXML private Text remainingTimeDisplay;
     @FXML private Group minefieldParent;
+    @FXML private ImageView heatmapView;
     @FXML private Text gameOverView;
 
     // model
-    // (no reference to the model needed)
+    private Minesweeper model; // the view can be re-bound to a new model, so handlers must always use this field
 
+    // can be called more than once, each call replaces the bindings to the previous model
     public void bindViewToModel(Minesweeper model) {
+        var firstBinding = (this.model == null);
+        this.model = model;
         var minefield = model.getMinefield();
 
-        // change the font of every text child
-        for (var child : infoBar.getChildren())
-            if (child instanceof Text)
-                ((Text) child).setFont(MinesweeperGraphics.INFO_FONT);
+        if (firstBinding) {
+            // change the font of every text child
+            for (var child : infoBar.getChildren())
+                if (child instanceof Text)
+                    ((Text) child).setFont(MinesweeperGraphics.INFO_FONT);
 
-        // consume mouse clicks if the game has ended
-        minefieldParent.addEventFilter(MouseEvent.MOUSE_CLICKED, mouseEvent -> {
-            if (model.gameHasEnded()) mouseEvent.consume();
-        });
+            // consume mouse presses and clicks if the game has ended (the minefield can act on either)
+            minefieldParent.addEventFilter(MouseEvent.MOUSE_PRESSED, mouseEvent -> {
+                if (this.model.gameHasEnded()) mouseEvent.consume();
+            });
+            minefieldParent.addEventFilter(MouseEvent.MOUSE_CLICKED, mouseEvent -> {
+                if (this.model.gameHasEnded()) mouseEvent.consume();
+            });
+
+            gameOverView.setFont(MinesweeperGraphics.GAME_OVER_FONT);
+            gameOverView.setFill(MinesweeperGraphics.GAME_OVER_FILL_COLOR);
+            gameOverView.setStroke(MinesweeperGraphics.GAME_OVER_STROKE_COLOR);
+        }
 
         totalMinesDisplay.setText(Integer.toString(minefield.getMineCount()));
 
         // marked cells text gets automatically updated
+        // (binding a property replaces any previous binding, so nothing has to be unbound first)
         markedCellsDisplay.textProperty().bind(minefield.markedCellsCountProperty().asString());
 
         // display the remaining time if the game has started
@@ -45,12 +61,16 @@ class MinesweeperController {
                         .otherwise("-")
         );
 
-        // create and add the minefield view
-        minefieldParent.getChildren().add(minefield.createView());
+        // create and add the minefield view, or re-bind the one that is already there
+        var children = minefieldParent.getChildren();
+        children.setAll(minefield.reuseView(children.isEmpty() ? null : children.get(0)));
+
+        // the heatmap has one pixel per cell, scaled up to cover the minefield, and is only visible while enabled
+        heatmapView.setImage(minefield.getHeatmapImage());
+        heatmapView.setFitWidth(minefield.getColCount() * CellGraphics.SIZE);
+        heatmapView.setFitHeight(minefield.getRowCount() * CellGraphics.SIZE);
+        heatmapView.visibleProperty().bind(minefield.heatmapEnabledProperty());
 
-        gameOverView.setFont(MinesweeperGraphics.GAME_OVER_FONT);
-        gameOverView.setFill(MinesweeperGraphics.GAME_OVER_FILL_COLOR);
-        gameOverView.setStroke(MinesweeperGraphics.GAME_OVER_STROKE_COLOR);
         // the game over view is only visible after the game is over
         gameOverView.visibleProperty().bind(model.gameHasEndedProperty());
         // display the correct game over text based on if the player won or lost
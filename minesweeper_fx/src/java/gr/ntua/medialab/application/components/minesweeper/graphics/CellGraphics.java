@@ -1,6 +1,8 @@
 package gr.ntua.medialab.application.components.minesweeper.graphics;
 
 import gr.ntua.medialab.application.Settings;
+import javafx.scene.effect.Effect;
+import javafx.scene.effect.InnerShadow;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 import javafx.scene.text.Font;
@@ -16,5 +18,7 @@ public class CellGraphics {
         return Settings.CELL_NUMBERS_FILL_COLOR(num);
     }
     public static Color NUMBERS_STROKE_COLOR = Settings.CELL_NUMBERS_STROKE_COLOR();
+    public static Effect HINT_EFFECT = new InnerShadow(SIZE / 3, Settings.CELL_HINT_COLOR());
+    public static Color CURSOR_COLOR = Settings.CELL_CURSOR_COLOR();
     public static Font NUMBERS_FONT = Settings.CELL_NUMBERS_FONT();
 }
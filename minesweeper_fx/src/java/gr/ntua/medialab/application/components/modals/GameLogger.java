@@ -1,10 +1,13 @@
 package gr.ntua.medialab.application.components.modals;
 
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.components.ViewLoader;
+import gr.ntua.medialab.application.storage.WriteService;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 
@@ -18,26 +21,40 @@ public class GameLogger {
     // state
     private int id = 1;
     private final ObservableList<Entry> entries = FXCollections.observableArrayList();
+    private Node view; // created once, the first time getView() is called
 
+    // the entry is also appended to the game log file in the background (see WriteService)
     public void addEntry(int mineCount, int clickCount, int timeLimit, String winner) {
-        entries.add(new Entry(id++, mineCount, clickCount, timeLimit, winner));
+        var entry = new Entry(id++, mineCount, clickCount, timeLimit, winner);
+        entries.add(entry);
+
+        var file = new File(Settings.SOLUTION_FOLDER(), Settings.GAME_LOG_FILENAME());
+        var line = entry.mineCount() + " " + entry.clickCount() + " " + entry.timeLimit() + " " + entry.winner() + "\n";
+        WriteService.get().write(file.toPath(), line, WriteService.Mode.APPEND).exceptionally(e -> {
+            // a missing log entry should not disrupt the game, so only a diagnostic is outputted
+            System.err.println("Could not write file '" + file.getName() + "': "
+                    + WriteService.failure(e).getMessage());
+            return null;
+        });
     }
 
     public ObservableList<Entry> getEntries() {
         return entries;
     }
 
+    // returns the same view every time, the view is only created (and its FXML parsed) on the first call
+    public Node getView() throws RuntimeException {
+        if (view == null) view = createView();
+        return view;
+    }
+
     public Node createView() throws RuntimeException {
         try {
-            var loader = new FXMLLoader();
             var controller = new GameLoggerController();
-            loader.setLocation(viewURL);
-            loader.setController(controller);
-
-            var view = loader.load();
+            var view = ViewLoader.load(viewURL, controller);
             controller.bindViewToModel(this);
 
-            return (Node) view;
+            return view;
         } catch (IOException e) {
             throw new RuntimeException("Could not load the Game Logger View");
         }
@@ -1,6 +1,6 @@
 package gr.ntua.medialab.application.components.modals;
 
-import javafx.fxml.FXMLLoader;
+import gr.ntua.medialab.application.components.ViewLoader;
 import javafx.scene.Node;
 
 import java.io.File;
@@ -12,6 +12,7 @@ import java.net.URL;
 public class ScenarioBuilder {
     private static final URL viewURL = ScenarioBuilder.class.getResource("fxml/ScenarioBuilderView.fxml");
     private final File outputFolder; // where to save scenarios to
+    private Node view; // created once, the first time getView() is called
 
     public ScenarioBuilder(File outputFolder) {
         this.outputFolder = outputFolder;
@@ -21,17 +22,25 @@ public class ScenarioBuilder {
         return outputFolder;
     }
 
+    // returns the same view every time, the view is only created (and its FXML parsed) on the first call
+    public Node getView() throws RuntimeException {
+        if (view == null) view = createView();
+        return view;
+    }
+
+    // clears the inputs and the status message of the view returned by getView(), so that it can be shown again
+    public void resetView() {
+        var controller = ViewLoader.getController(view, ScenarioBuilderController.class);
+        if (controller != null) controller.resetView();
+    }
+
     public Node createView() throws RuntimeException {
         try {
-            var loader = new FXMLLoader();
             var controller = new ScenarioBuilderController();
-            loader.setLocation(viewURL);
-            loader.setController(controller);
-
-            var view = loader.load();
+            var view = ViewLoader.load(viewURL, controller);
             controller.bindViewToModel(this);
 
-            return (Node) view;
+            return view;
         } catch (IOException e) {
             throw new RuntimeException("Could not load the Scenario Builder View");
         }
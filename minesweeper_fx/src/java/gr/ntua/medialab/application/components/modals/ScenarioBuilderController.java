@@ -3,6 +3,8 @@ package gr.ntua.medialab.application.components.modals;
 import gr.ntua.medialab.application.Settings;
 import gr.ntua.medialab.application.scenarios.Scenario;
 import gr.ntua.medialab.application.scenarios.ScenarioConstraints;
+import gr.ntua.medialab.application.storage.WriteService;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -68,6 +70,13 @@ class ScenarioBuilderController {
         ));
     }
 
+    public void resetView() {
+        scenarioIdTextField.clear();
+        timeLimitTextField.clear();
+        totalMinesTextField.clear();
+        statusText.setText("");
+    }
+
     private void onCreateClicked(ActionEvent ignoredEvent) throws IllegalAccessError {
         if (model == null) throw new IllegalAccessError("Must bind to a model before calling this method");
 
@@ -87,18 +96,24 @@ class ScenarioBuilderController {
             boolean superMineExists = superMineCheckBox.isSelected();
 
             var scenario = new Scenario(difficulty, timeLimit, mineCount, superMineExists); // InvalidValueException
-            Scenario.toFile(scenario, model.getOutputFolder(), filename); // FileAlreadyExistsException, IOException
-            statusText.setFill(SUCCESS_COLOR);
-            statusText.setText("Scenario was created successfully");
+            // the file is written in the background, the status is shown once it has been written (or has failed)
+            statusText.setText("");
+            Scenario.toFile(scenario, model.getOutputFolder(), filename).whenComplete((ignored, e) ->
+                    Platform.runLater(() -> {
+                        // FileAlreadyExistsException or IOException
+                        statusText.setFill((e == null) ? SUCCESS_COLOR : ERROR_COLOR);
+                        statusText.setText((e == null)
+                                ? "Scenario was created successfully" : WriteService.failure(e).getMessage());
+                    })
+            );
         }
         catch (NumberFormatException e) {
             statusText.setFill(ERROR_COLOR);
             statusText.setText("Expected integers but got something else");
         }
-        // all other thrown exceptions are: InvalidValueException, FileAlreadyExistsException, IOException
-        // but the behavior of the catch block is the same for all of them
+        // the only other thrown exception is InvalidValueException
         catch (Exception e) {
-            // invalid value given by user, file not created, or other io error
+            // invalid value given by user
             statusText.setFill(ERROR_COLOR);
             statusText.setText(e.getMessage());
         }
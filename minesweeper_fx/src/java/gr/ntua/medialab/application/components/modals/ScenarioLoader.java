@@ -1,7 +1,7 @@
 package gr.ntua.medialab.application.components.modals;
 
+import gr.ntua.medialab.application.components.ViewLoader;
 import gr.ntua.medialab.application.scenarios.Scenario;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 
 import java.io.File;
@@ -15,6 +15,7 @@ public class ScenarioLoader {
     private static final URL viewURL = ScenarioLoader.class.getResource("fxml/ScenarioLoaderView.fxml");
     private final File inputFolder; // where to load scenarios from
     private final Function<Scenario, Void> onLoad; // the function to call when 'Load' is clicked
+    private Node view; // created once, the first time getView() is called
 
     public ScenarioLoader(File inputFolder, Function<Scenario, Void> onLoad) {
         this.inputFolder = inputFolder;
@@ -29,17 +30,25 @@ public class ScenarioLoader {
         return onLoad;
     }
 
+    // returns the same view every time, the view is only created (and its FXML parsed) on the first call
+    public Node getView() throws RuntimeException {
+        if (view == null) view = createView();
+        return view;
+    }
+
+    // clears the inputs and the status message of the view returned by getView(), so that it can be shown again
+    public void resetView() {
+        var controller = ViewLoader.getController(view, ScenarioLoaderController.class);
+        if (controller != null) controller.resetView();
+    }
+
     public Node createView() throws RuntimeException {
         try {
-            var loader = new FXMLLoader();
             var controller = new ScenarioLoaderController();
-            loader.setLocation(viewURL);
-            loader.setController(controller);
-
-            var view = loader.load();
+            var view = ViewLoader.load(viewURL, controller);
             controller.bindViewToModel(this);
 
-            return (Node) view;
+            return view;
         } catch (IOException e) {
             throw new RuntimeException("Could not load the Scenario Loader View");
         }
@@ -38,13 +38,26 @@ class ScenarioLoaderController {
         ));
     }
 
+    public void resetView() {
+        scenarioIdTextField.clear();
+        statusText.setText("");
+    }
+
     private void onLoadClicked(ActionEvent ignoredEvent) throws IllegalAccessError {
         if (model == null) throw new IllegalAccessError("Must bind to a model before calling this method");
 
         var scenarioFile = new File(model.getInputFolder(), scenarioIdTextField.getText().trim() + ".txt");
         try {
+            // larger scenarios than the minefield can display are only played headless (see CapacityModel)
+            var scenario = Scenario.fromFile(scenarioFile);
+            if (!scenario.getCapacity().isDisplayed()) {
+                statusText.setFill(ERROR_COLOR);
+                statusText.setText("The scenario is too large to be displayed, play it with HeadlessApp (" +
+                        scenario.getCapacity().describe() + ")");
+                return;
+            }
             // call the onLoad() function
-            model.getOnLoad().apply(Scenario.fromFile(scenarioFile));
+            model.getOnLoad().apply(scenario);
             statusText.setFill(SUCCESS_COLOR);
             statusText.setText("The scenario was loaded successfully");
         }
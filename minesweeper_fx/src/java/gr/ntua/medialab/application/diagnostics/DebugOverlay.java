@@ -0,0 +1,90 @@
+package gr.ntua.medialab.application.diagnostics;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.diagnostics.jfr.PulseEvent;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.text.Font;
+import javafx.util.Duration;
+
+// a text overlay that shows the metrics live, shown and hidden with a key (see Settings)
+// it also measures the pulses (i.e. frames) of the scene it is attached to, whether it is visible or not
+
+public class DebugOverlay {
+    // pulses further apart than this are not frames of an animation, the scene was simply idle in between
+    private static final long IDLE_PULSE_INTERVAL = 250_000_000; // ns
+
+    // view
+    private final Label view = new Label();
+    private final Timeline refresher;
+
+    // state
+    private long previousPulseStart = -1;
+    private long pulseStart = -1;
+    private PulseEvent pulseEvent;
+
+    public DebugOverlay() {
+        view.setFont(Font.font("Monospaced", 10));
+        view.setStyle("-fx-background-color: rgba(0, 0, 0, 0.75); -fx-text-fill: white; -fx-padding: 4;");
+        view.setMouseTransparent(true);
+        // not managed, so that it is drawn over the scene without ever changing its size
+        view.setManaged(false);
+        view.setVisible(false);
+
+        refresher = new Timeline(new KeyFrame(
+                Duration.millis(Settings.DIAGNOSTICS_OVERLAY_REFRESH_INTERVAL()),
+                actionEvent -> refresh()
+        ));
+        refresher.setCycleCount(Animation.INDEFINITE);
+    }
+
+    // must be added on top of the root of the scene
+    public Node getView() {
+        return view;
+    }
+
+    // start measuring the pulses of the scene, and toggle the overlay when the configured key is pressed
+    public void attach(Scene scene) {
+        scene.addPreLayoutPulseListener(this::onPulseStarted);
+        scene.addPostLayoutPulseListener(this::onPulseLaidOut);
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, keyEvent -> {
+            if (keyEvent.getCode() == Settings.DIAGNOSTICS_OVERLAY_TOGGLE_KEY()) toggle();
+        });
+    }
+
+    public void toggle() {
+        view.setVisible(!view.isVisible());
+        if (view.isVisible()) {
+            refresh();
+            refresher.play();
+        }
+        else refresher.stop();
+    }
+
+    private void refresh() {
+        view.setText(Metrics.compactReport());
+        view.autosize(); // unmanaged nodes are not resized by their parent
+    }
+
+    private void onPulseStarted() {
+        pulseStart = System.nanoTime();
+        pulseEvent = new PulseEvent();
+        pulseEvent.begin();
+        if (previousPulseStart >= 0 && pulseStart - previousPulseStart < IDLE_PULSE_INTERVAL)
+            Metrics.PULSE_INTERVAL.record(pulseStart - previousPulseStart);
+        pulseEvent.interval = (previousPulseStart < 0) ? 0 : pulseStart - previousPulseStart;
+        previousPulseStart = pulseStart;
+    }
+
+    private void onPulseLaidOut() {
+        if (pulseEvent == null) return;
+        Metrics.PULSE_LAYOUT_TIME.record(System.nanoTime() - pulseStart);
+        pulseEvent.commit(); // only recorded if the event is enabled
+        pulseEvent = null;
+    }
+}
@@ -0,0 +1,162 @@
+package gr.ntua.medialab.application.diagnostics;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// in-process counters and histograms of the hot paths of the game, always enabled
+// recording is lock-free and cheap enough for every click (and every pulse), and can happen on any thread
+// (the game server records from thousands of sessions at once), report() can be called at any time
+
+public class Metrics {
+    // histograms of durations, in nanoseconds
+    public static final Histogram CLICK_TO_MODEL = new Histogram("click to model", true);
+    public static final Histogram PRESS_TO_PIXEL = new Histogram("press to pixel", true);
+    public static final Histogram FLOOD_FILL_TIME = new Histogram("flood fill time", true);
+    public static final Histogram PLACE_MINES_TIME = new Histogram("place mines time", true);
+    public static final Histogram VIEW_UPDATE_TIME = new Histogram("view update time", true);
+    public static final Histogram SNAPSHOT_TIME = new Histogram("snapshot time", true);
+    public static final Histogram ASSIST_TIME = new Histogram("assist time", true);
+    public static final Histogram HEATMAP_TIME = new Histogram("heatmap time", true);
+    public static final Histogram PULSE_INTERVAL = new Histogram("pulse interval", true);
+    public static final Histogram PULSE_LAYOUT_TIME = new Histogram("pulse layout time", true);
+    public static final Histogram IO_WRITE_TIME = new Histogram("io write time", true); // queued to forced
+    // histograms of sizes, in cells
+    public static final Histogram FLOOD_FILL_SIZE = new Histogram("flood fill size", false);
+    // histograms of counts
+    public static final Histogram IO_QUEUE_DEPTH = new Histogram("io queue depth", false); // writes per group
+    // counters
+    public static final Counter CLICKS = new Counter("clicks");
+    public static final Counter CELLS_REVEALED = new Counter("cells revealed");
+    public static final Counter GAMES_STARTED = new Counter("games started");
+    public static final Counter HEATMAP_CELLS_REDRAWN = new Counter("heatmap redrawn");
+    public static final Counter AUTOPLAY_ACTIONS = new Counter("autoplay actions");
+    public static final Counter DROPPED_FRAMES = new Counter("dropped frames");
+    public static final Counter SOLVER_CACHE_HITS = new Counter("solver cache hit");
+    public static final Counter SOLVER_CACHE_MISSES = new Counter("solver cache miss");
+    public static final Counter ANALYSER_MEMO_HITS = new Counter("analyser memo hit");
+    public static final Counter ANALYSER_MEMO_MISSES = new Counter("analyser memo miss");
+    public static final Counter IO_COMMITS = new Counter("io group commits");
+
+    private static final List<Histogram> histograms = List.of(
+            CLICK_TO_MODEL, PRESS_TO_PIXEL, FLOOD_FILL_TIME, FLOOD_FILL_SIZE, PLACE_MINES_TIME,
+            VIEW_UPDATE_TIME, SNAPSHOT_TIME, ASSIST_TIME, HEATMAP_TIME, PULSE_INTERVAL, PULSE_LAYOUT_TIME,
+            IO_WRITE_TIME, IO_QUEUE_DEPTH
+    );
+    private static final List<Counter> counters = List.of(CLICKS, CELLS_REVEALED, GAMES_STARTED,
+            HEATMAP_CELLS_REDRAWN, AUTOPLAY_ACTIONS, DROPPED_FRAMES, SOLVER_CACHE_HITS, SOLVER_CACHE_MISSES,
+            ANALYSER_MEMO_HITS, ANALYSER_MEMO_MISSES, IO_COMMITS);
+
+    // a monotonically increasing count
+    public static class Counter {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment(long amount) {
+            count.add(amount);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    // a histogram with power-of-two buckets, percentiles are reported as the upper bound of their bucket
+    public static class Histogram {
+        private static final int BUCKET_COUNT = 64;
+
+        private final String name;
+        private final boolean isDuration; // if true, values are nanoseconds and are reported as microseconds
+        private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram(String name, boolean isDuration) {
+            this.name = name;
+            this.isDuration = isDuration;
+            for (int i = 0; i < BUCKET_COUNT; ++i) buckets[i] = new LongAdder();
+        }
+
+        public void record(long value) {
+            value = Math.max(value, 0);
+            // bucket i holds the values in [2^(i-1), 2^i)
+            buckets[Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(value))].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMean() {
+            long count = getCount();
+            return (count == 0) ? 0 : (double) sum.sum() / count;
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        // an upper bound of the given percentile (e.g. 0.99)
+        public long getPercentile(double fraction) {
+            long count = getCount();
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(fraction * count), seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                seen += buckets[i].sum();
+                if (seen >= rank) return Math.min((i == 0) ? 0 : (1L << i) - 1, getMax());
+            }
+            return getMax();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // name, count, p50 and p99 only
+        public String compactSummary() {
+            double scale = isDuration ? 1e3 : 1;
+            return String.format("%-18s %7d %9.1f %9.1f",
+                    name, getCount(), getPercentile(0.50) / scale, getPercentile(0.99) / scale);
+        }
+
+        public String summary() {
+            if (getCount() == 0) return String.format("%-18s -", name);
+            double scale = isDuration ? 1e3 : 1;
+            return String.format("%-18s n=%-7d mean=%-9.1f p50<=%-9.1f p99<=%-9.1f max=%.1f%s",
+                    name, getCount(), getMean() / scale, getPercentile(0.50) / scale,
+                    getPercentile(0.99) / scale, getMax() / scale, isDuration ? " (us)" : "");
+        }
+    }
+
+    // a shorter version of report(), meant to fit on top of the game (durations are in microseconds)
+    public static String compactReport() {
+        var report = new StringBuilder(String.format("%-18s %7s %9s %9s", "", "n", "p50", "p99"));
+        for (var histogram : histograms)
+            report.append('\n').append(histogram.compactSummary());
+        for (var counter : counters)
+            report.append(String.format("%n%-18s %7d", counter.getName(), counter.get()));
+        return report.toString();
+    }
+
+    // every counter and histogram, one per line
+    public static String report() {
+        var report = new StringBuilder();
+        for (var counter : counters)
+            report.append(String.format("%-18s %d%n", counter.getName(), counter.get()));
+        for (var histogram : histograms)
+            report.append(histogram.summary()).append('\n');
+        return report.toString();
+    }
+}
@@ -0,0 +1,141 @@
+package gr.ntua.medialab.application.diagnostics;
+
+import gr.ntua.medialab.application.engine.Board;
+import gr.ntua.medialab.application.engine.Delta;
+import gr.ntua.medialab.application.engine.OffHeapBoard;
+
+import java.util.Random;
+
+// Differential check of OffHeapBoard against Board
+// Every game is played twice with the same seed, once on a square Board and once on an OffHeapBoard of the same size,
+// which must place the same mines and then follow exactly the same rules
+// Random marks are placed before the clicks, so that reveals also unmark cells, and the super mine is marked
+// while active in some games, so that its row and column are revealed as well
+// After every action, the number of cells changed must match the delta of the Board, and the state of the boards
+// must be identical, exits with 1 otherwise
+// Finally, the first opening of a sparse multi-million-cell board is timed on both
+// Usage: OffHeapCheck [games] [seed] [huge board size]
+
+public class OffHeapCheck {
+    public static void main(String[] args) {
+        int games = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 42;
+        int hugeSize = (args.length > 2) ? Integer.parseInt(args[2]) : 3000;
+
+        var rng = new Random(seed);
+        int actions = 0;
+        for (int game = 0; game < games; ++game) {
+            int rows = 1 + rng.nextInt(300), cols = 1 + rng.nextInt(300);
+            int mines = (int) (rows * cols * (0.005 + 0.2 * rng.nextDouble()));
+            boolean recursive = rng.nextBoolean();
+            actions += play(rows, cols, mines, rng.nextBoolean(), recursive, rng.nextLong());
+        }
+        System.out.println(games + " games identical, " + actions + " actions compared");
+
+        time(hugeSize, seed);
+    }
+
+    // plays the same random game on a Board and an OffHeapBoard, returns the number of actions compared
+    private static int play(int rows, int cols, int mines, boolean hasSuperMine, boolean recursive, long seed) {
+        var board = new Board(rows, cols, mines, hasSuperMine, 4, recursive);
+        var offHeap = new OffHeapBoard(rows, cols, mines, hasSuperMine, 4, recursive);
+
+        var rng = new Random(seed);
+        int firstRow = rng.nextInt(rows), firstCol = rng.nextInt(cols);
+        try {
+            board.placeMines(firstRow, firstCol, new Random(seed));
+        } catch (IllegalStateException e) {
+            return 0; // not enough room for the mines around the first click
+        }
+        offHeap.placeMines(firstRow, firstCol, new Random(seed));
+
+        String description = rows + "x" + cols + " mines=" + mines + " seed=" + seed;
+        if (board.getSuperMineIndex() != offHeap.getSuperMineIndex())
+            fail(description, "the super mines differ");
+        for (int index = 0; index < board.getCellCount(); ++index)
+            if (board.hasMine(index) != offHeap.hasMine(index)) fail(description, "the mines differ");
+
+        int actions = 0;
+        // a few random marks, mostly on cells that the first opening will reveal
+        for (int i = 0; i < Math.min(mines, 20); ++i) {
+            int row = rng.nextInt(rows), col = rng.nextInt(cols);
+            compareMark(description, board.secondaryClick(row, col), offHeap.secondaryClick(row, col), board, offHeap);
+            ++actions;
+        }
+        compareReveal(description, board.primaryClick(firstRow, firstCol), offHeap.primaryClick(firstRow, firstCol),
+                board, offHeap);
+        ++actions;
+
+        while (!board.isGameOver() && actions < 200) {
+            int index = rng.nextInt(board.getCellCount());
+            if (board.isRevealed(index)) continue;
+            int row = board.rowOf(index), col = board.colOf(index);
+            boolean mark = index == board.getSuperMineIndex() && !board.isMarked(index) && rng.nextBoolean();
+            if (mark)
+                compareMark(description, board.secondaryClick(row, col), offHeap.secondaryClick(row, col),
+                        board, offHeap);
+            else {
+                if (board.isMarked(index)) continue;
+                compareReveal(description, board.primaryClick(row, col), offHeap.primaryClick(row, col),
+                        board, offHeap);
+            }
+            ++actions;
+        }
+        return actions;
+    }
+
+    private static void compareReveal(String description, Delta expected, long actual, Board board,
+                                      OffHeapBoard offHeap) {
+        if (expected.getRevealed().length != actual)
+            fail(description, expected.getRevealed().length + " cells revealed by Board, " + actual + " off-heap");
+        compareStates(description, board, offHeap);
+    }
+
+    // an off-heap mark counts the marked (or unmarked) cell, plus the cells revealed by the super mine
+    private static void compareMark(String description, Delta expected, long actual, Board board,
+                                    OffHeapBoard offHeap) {
+        long changed = expected.isEmpty() ? 0 : 1 + expected.getRevealed().length;
+        if (changed != actual) fail(description, changed + " cells changed by Board, " + actual + " off-heap");
+        compareStates(description, board, offHeap);
+    }
+
+    private static void compareStates(String description, Board board, OffHeapBoard offHeap) {
+        boolean same = board.getRevealedEmptyCellsCount() == offHeap.getRevealedEmptyCellsCount()
+                && board.getMarkedCellsCount() == offHeap.getMarkedCellsCount()
+                && board.getClicksCount() == offHeap.getClicksCount()
+                && board.isGameOver() == offHeap.isGameOver()
+                && board.playerWon() == offHeap.playerWon();
+        for (int index = 0; same && index < board.getCellCount(); ++index)
+            same = board.isRevealed(index) == offHeap.isRevealed(index)
+                    && board.isMarked(index) == offHeap.isMarked(index)
+                    && board.isDisarmed(index) == offHeap.isDisarmed(index)
+                    && board.isDetonated(index) == offHeap.isDetonated(index)
+                    && (!board.isRevealed(index)
+                        || board.getAdjacentMinesCount(index) == offHeap.getAdjacentMinesCount(index));
+        if (!same) fail(description, "the states of the boards differ");
+    }
+
+    private static void fail(String description, String reason) {
+        System.err.println("Mismatch on " + description + ": " + reason);
+        System.exit(1);
+    }
+
+    // times the first opening of a huge board with 1% of mines, on the heap and off the heap
+    private static void time(int size, long seed) {
+        var board = new Board(size, size, size * size / 100, false, 0, false);
+        board.placeMines(size / 2, size / 2, new Random(seed));
+        long start = System.nanoTime();
+        int revealed = board.primaryClick(size / 2, size / 2).getRevealed().length;
+        long boardNanos = System.nanoTime() - start;
+
+        var offHeap = new OffHeapBoard(size, size, size * size / 100, false, 0, false);
+        offHeap.placeMines(size / 2, size / 2, new Random(seed));
+        start = System.nanoTime();
+        long offHeapRevealed = offHeap.primaryClick(size / 2, size / 2);
+        long offHeapNanos = System.nanoTime() - start;
+
+        if (revealed != offHeapRevealed) fail(size + "x" + size + " seed=" + seed, "the openings differ");
+        System.out.printf("%dx%d opening of %d cells: Board %.1f ms, OffHeapBoard %.1f ms%n", size, size, revealed,
+                boardNanos / 1e6, offHeapNanos / 1e6);
+    }
+}
@@ -0,0 +1,138 @@
+package gr.ntua.medialab.application.diagnostics;
+
+import gr.ntua.medialab.application.engine.Board;
+import gr.ntua.medialab.application.engine.Delta;
+import gr.ntua.medialab.application.engine.Topology;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Differential check of the parallel reveal of Board against the serial one
+// Every game is played twice with the same seed, once with every reveal kept on the calling thread and once with
+// reveals growing in parallel after only a few cells (so that almost every opening crosses tiles and seams)
+// Random marks are placed before the clicks, so that reveals also unmark cells, and the super mine is marked
+// while active in some games, so that its row and column are revealed recursively as well
+// After every action, the deltas (as sets) and the state of the boards must be identical, exits with 1 otherwise
+// Finally, the first opening of a sparse multi-million-cell square board is timed both ways
+// Usage: RevealCheck [games per topology] [seed] [huge board size]
+
+public class RevealCheck {
+    private static final int PARALLEL_THRESHOLD = 8; // in cells, low enough for small boards to grow in parallel
+
+    public static void main(String[] args) {
+        int gamesPerTopology = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 42;
+        int hugeSize = (args.length > 2) ? Integer.parseInt(args[2]) : 3000;
+
+        var rng = new Random(seed);
+        int actions = 0;
+        for (var kind : Topology.Kind.values()) {
+            for (int game = 0; game < gamesPerTopology; ++game) {
+                int rows = 1 + rng.nextInt(400), cols = 1 + rng.nextInt(400);
+                int mines = (int) (rows * cols * (0.005 + 0.15 * rng.nextDouble()));
+                actions += play(kind, rows, cols, mines, rng.nextBoolean(), rng.nextLong());
+            }
+            System.out.println(kind + ": " + gamesPerTopology + " games identical");
+        }
+        System.out.println(actions + " actions compared");
+
+        time(Topology.Kind.SQUARE, hugeSize, seed);
+    }
+
+    // plays the same random game on a serial and a parallel board, returns the number of actions compared
+    private static int play(Topology.Kind kind, int rows, int cols, int mines, boolean hasSuperMine, long seed) {
+        var serial = new Board(kind, rows, cols, mines, hasSuperMine, 4, true);
+        var parallel = new Board(kind, rows, cols, mines, hasSuperMine, 4, true);
+        serial.setParallelRevealThreshold(Integer.MAX_VALUE);
+        parallel.setParallelRevealThreshold(PARALLEL_THRESHOLD);
+
+        var rng = new Random(seed);
+        int firstRow = rng.nextInt(rows), firstCol = rng.nextInt(cols);
+        try {
+            serial.placeMines(firstRow, firstCol, new Random(seed));
+        } catch (IllegalStateException e) {
+            return 0; // not enough room for the mines around the first click
+        }
+        parallel.placeMines(firstRow, firstCol, new Random(seed));
+
+        int actions = 0;
+        String description = kind + " " + rows + "x" + cols + " mines=" + mines + " seed=" + seed;
+        // a few random marks, mostly on cells that the first opening will reveal
+        for (int i = 0; i < Math.min(mines, 20); ++i) {
+            int row = rng.nextInt(rows), col = rng.nextInt(cols);
+            compare(description, serial.secondaryClick(row, col), parallel.secondaryClick(row, col),
+                    serial, parallel);
+            ++actions;
+        }
+        compare(description, serial.primaryClick(firstRow, firstCol), parallel.primaryClick(firstRow, firstCol),
+                serial, parallel);
+        ++actions;
+
+        while (!serial.isGameOver() && actions < 200) {
+            int index = rng.nextInt(serial.getCellCount());
+            if (serial.isRevealed(index)) continue;
+            int row = serial.rowOf(index), col = serial.colOf(index);
+            boolean mark = index == serial.getSuperMineIndex() && !serial.isMarked(index) && rng.nextBoolean();
+            if (mark)
+                compare(description, serial.secondaryClick(row, col), parallel.secondaryClick(row, col),
+                        serial, parallel);
+            else {
+                if (serial.isMarked(index)) continue;
+                compare(description, serial.primaryClick(row, col), parallel.primaryClick(row, col),
+                        serial, parallel);
+            }
+            ++actions;
+        }
+        return actions;
+    }
+
+    private static void compare(String description, Delta expected, Delta actual, Board serial, Board parallel) {
+        check(description, "revealed", sorted(expected.getRevealed()), sorted(actual.getRevealed()));
+        check(description, "marked", sorted(expected.getMarked()), sorted(actual.getMarked()));
+        check(description, "unmarked", sorted(expected.getUnmarked()), sorted(actual.getUnmarked()));
+        check(description, "disarmed", sorted(expected.getDisarmed()), sorted(actual.getDisarmed()));
+        check(description, "detonated", sorted(expected.getDetonated()), sorted(actual.getDetonated()));
+
+        boolean same = serial.getRevealedEmptyCellsCount() == parallel.getRevealedEmptyCellsCount()
+                && serial.getMarkedCellsCount() == parallel.getMarkedCellsCount()
+                && serial.isGameOver() == parallel.isGameOver()
+                && serial.playerWon() == parallel.playerWon();
+        for (int index = 0; same && index < serial.getCellCount(); ++index)
+            same = serial.isRevealed(index) == parallel.isRevealed(index)
+                    && serial.isMarked(index) == parallel.isMarked(index)
+                    && serial.isDetonated(index) == parallel.isDetonated(index);
+        if (!same) fail(description, "the states of the boards differ");
+    }
+
+    private static void check(String description, String what, int[] expected, int[] actual) {
+        if (!Arrays.equals(expected, actual))
+            fail(description, what + " differ: " + expected.length + " serial, " + actual.length + " parallel");
+    }
+
+    private static void fail(String description, String reason) {
+        System.err.println("Mismatch on " + description + ": " + reason);
+        System.exit(1);
+    }
+
+    private static int[] sorted(int[] cells) {
+        var copy = cells.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    // times the first opening of a huge board with 1% of mines, with and without the parallel reveal
+    private static void time(Topology.Kind kind, int size, long seed) {
+        long[] nanos = new long[2];
+        int revealed = 0;
+        for (int run = 0; run < 2; ++run) {
+            var board = new Board(kind, size, size, size * size / 100, false, 0, false);
+            board.setParallelRevealThreshold((run == 0) ? Integer.MAX_VALUE : 1 << 16);
+            board.placeMines(size / 2, size / 2, new Random(seed));
+            long start = System.nanoTime();
+            revealed = board.primaryClick(size / 2, size / 2).getRevealed().length;
+            nanos[run] = System.nanoTime() - start;
+        }
+        System.out.printf("%-6s %dx%d opening of %d cells: serial %.1f ms, parallel %.1f ms (%d cores)%n", kind,
+                size, size, revealed, nanos[0] / 1e6, nanos[1] / 1e6, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,78 @@
+package gr.ntua.medialab.application.diagnostics;
+
+import gr.ntua.medialab.application.Settings;
+import javafx.scene.Scene;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// class that records how long (in ms since the JVM started) it took to reach each startup milestone
+// and prints a report once the first board becomes playable
+// mark() can be called from any thread, the rest are meant to be called from the FX thread
+
+public class StartupReport {
+    public static final String APPLICATION_STARTED = "application started";
+    public static final String FIRST_FRAME = "first frame";
+    public static final String ASSETS_LOADED = "assets loaded";
+    public static final String FIRST_PLAYABLE_BOARD = "first playable board";
+
+    // state
+    private static final Map<String, Long> milestones = new LinkedHashMap<>();
+    private static long startClickedAt = -1; // when the first game was requested
+    private static boolean reported = false;
+
+    // record the given milestone, only the first time it is reached
+    public static synchronized void mark(String milestone) {
+        if (!Settings.DIAGNOSTICS_STARTUP_REPORT()) return;
+        milestones.putIfAbsent(milestone, uptime());
+    }
+
+    // record the given milestone when the next frame of the scene is laid out
+    // (i.e. right before it gets rendered)
+    public static void markNextFrame(Scene scene, String milestone) {
+        if (!Settings.DIAGNOSTICS_STARTUP_REPORT() || reached(milestone)) return;
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                mark(milestone);
+                if (milestone.equals(FIRST_FRAME)) checkBudget();
+                if (milestone.equals(FIRST_PLAYABLE_BOARD)) print();
+            }
+        });
+    }
+
+    private static synchronized boolean reached(String milestone) {
+        return milestones.containsKey(milestone);
+    }
+
+    // record the moment the first game was requested, so the time spent building it can be reported
+    public static synchronized void markStartClicked() {
+        if (startClickedAt < 0) startClickedAt = uptime();
+    }
+
+    private static synchronized void print() {
+        if (reported) return;
+        reported = true;
+
+        var report = new StringBuilder("Startup report (ms since the JVM started):\n");
+        milestones.forEach((milestone, time) ->
+                report.append(String.format("  %-22s %6d%n", milestone, time)));
+        var firstPlayableBoard = milestones.get(FIRST_PLAYABLE_BOARD);
+        if (startClickedAt >= 0 && firstPlayableBoard != null)
+            report.append(String.format("  %-22s %6d%n", "(board built in)", firstPlayableBoard - startClickedAt));
+        System.out.print(report);
+    }
+
+    private static synchronized void checkBudget() {
+        var firstFrame = milestones.get(FIRST_FRAME);
+        if (firstFrame != null && firstFrame > Settings.DIAGNOSTICS_FIRST_FRAME_BUDGET())
+            System.err.println("The first frame took " + firstFrame + "ms, which exceeds the budget of " +
+                    Settings.DIAGNOSTICS_FIRST_FRAME_BUDGET() + "ms");
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
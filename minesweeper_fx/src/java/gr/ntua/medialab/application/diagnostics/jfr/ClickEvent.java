@@ -0,0 +1,22 @@
+package gr.ntua.medialab.application.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gr.ntua.medialab.Click")
+@Label("Click")
+@Category({"MinesweeperFX"})
+@Description("A primary or secondary click on the minefield, from the event handler until the model is updated")
+public class ClickEvent extends Event {
+    @Label("Button")
+    public String button;
+
+    @Label("Row")
+    public int row;
+
+    @Label("Column")
+    public int col;
+}
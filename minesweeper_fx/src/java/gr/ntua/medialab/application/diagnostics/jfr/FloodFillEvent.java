@@ -0,0 +1,16 @@
+package gr.ntua.medialab.application.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gr.ntua.medialab.FloodFill")
+@Label("Flood Fill")
+@Category({"MinesweeperFX"})
+@Description("The cells revealed by a single click, including the recursive reveal of empty cells")
+public class FloodFillEvent extends Event {
+    @Label("Cells Revealed")
+    public int cellsRevealed;
+}
@@ -0,0 +1,19 @@
+package gr.ntua.medialab.application.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gr.ntua.medialab.PlaceMines")
+@Label("Place Mines")
+@Category({"MinesweeperFX"})
+@Description("The random placement of the mines on the first primary click")
+public class PlaceMinesEvent extends Event {
+    @Label("Cells")
+    public int cellCount;
+
+    @Label("Mines")
+    public int mineCount;
+}
@@ -0,0 +1,18 @@
+package gr.ntua.medialab.application.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("gr.ntua.medialab.Pulse")
+@Label("Pulse")
+@Category({"MinesweeperFX"})
+@Description("The CSS and layout passes of a single JavaFX pulse")
+public class PulseEvent extends Event {
+    @Label("Time Since Previous Pulse")
+    @Timespan(Timespan.NANOSECONDS)
+    public long interval;
+}
@@ -0,0 +1,16 @@
+package gr.ntua.medialab.application.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("gr.ntua.medialab.ViewUpdate")
+@Label("View Update")
+@Category({"MinesweeperFX"})
+@Description("The cells of the view being updated to mirror a single action on the board")
+public class ViewUpdateEvent extends Event {
+    @Label("Cells Changed")
+    public int cellsChanged;
+}
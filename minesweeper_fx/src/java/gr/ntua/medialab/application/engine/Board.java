@@ -0,0 +1,719 @@
+package gr.ntua.medialab.application.engine;
+
+import gr.ntua.medialab.application.diagnostics.Metrics;
+import gr.ntua.medialab.application.diagnostics.jfr.FloodFillEvent;
+import gr.ntua.medialab.application.diagnostics.jfr.PlaceMinesEvent;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+
+// the rules of the game, without any JavaFX involvement
+// cells are identified by their index (row * colCount + col) and their state is kept in bitsets
+// which cells are adjacent is decided by the topology of the board (square by default), the super mine still
+// reveals the row and the column of the grid it is on, whatever the topology
+// every action returns a Delta with the cells it changed, so that views (or anything else) can mirror the board
+// once enableHistory() is called, the state after every action is kept (sharing what did not change, see ChunkedBits),
+// so that any number of actions can be undone at once
+// a board is not thread-safe, it is meant to be used by a single thread at a time
+// the only exceptions are events(), whose publisher can be subscribed to from any thread,
+// and getSnapshot() and isStale(), so that other threads can analyse the board without blocking its thread
+
+public class Board {
+    // how many batches of events each subscriber of events() can fall behind before batches get dropped
+    private static final int EVENT_BUFFER_CAPACITY = 256;
+    // how many cells a recursive reveal reveals on its own thread before growing the rest of it in parallel
+    // (never, by default, when the common pool has a single thread, as growing in tiles only adds work then)
+    private static final int DEFAULT_PARALLEL_REVEAL_THRESHOLD =
+            (ForkJoinPool.getCommonPoolParallelism() > 1) ? 1 << 16 : Integer.MAX_VALUE;
+
+    // attributes
+    private final int rowCount;
+    private final int colCount;
+    private final int cellCount;
+    private final Topology topology;
+    private final int[] neighborOffsets; // see Topology
+    private final int[] neighbors;
+    private final int mineCount;
+    private final boolean hasSuperMine;
+    // how long (in successful primary clicks) the super mine retains its ability
+    private final int superMineLifetime;
+    private final int maxConcurrentMarkedCellsCount;
+    // if true, empty cells without adjacent mines revealed by marking a super mine also cause recursive reveal
+    private final boolean superMineActionRevealsEmptyCells;
+
+    // the state of the board after an action, kept by enableHistory()
+    private record State(ChunkedBits revealed, ChunkedBits marked, ChunkedBits disarmed, ChunkedBits detonated,
+                         int clicksCount, int markedCellsCount, int revealedEmptyCellsCount) {
+    }
+
+    // state
+    private final BitSet mines = new BitSet();
+    private final BitSet revealed = new BitSet();
+    private final BitSet marked = new BitSet();
+    private final BitSet disarmed = new BitSet();
+    private final BitSet detonated = new BitSet();
+    private final byte[] adjacentMinesCounts;
+    private int superMineIndex = -1;
+    private boolean minesPlaced = false;
+    private int clicksCount = 0;
+    private int markedCellsCount = 0;
+    private int revealedEmptyCellsCount = 0;
+    private boolean timeExpired = false;
+    private boolean gameEndedPublished = false;
+    private long version = 0; // incremented by every action that changes the state of the board
+    private volatile BoardSnapshot snapshot; // the latest snapshot, null until enableSnapshots() is called
+    private BoardHash hash; // of the visible state, kept up to date (and copied into every snapshot) with the snapshots
+    private volatile SubmissionPublisher<List<GameEvent>> events; // created by the first call of events()
+    private final AtomicLong droppedEventBatches = new AtomicLong(0);
+    private int parallelRevealThreshold = DEFAULT_PARALLEL_REVEAL_THRESHOLD;
+    private List<State> history; // the current state comes last, null until enableHistory() is called
+
+    // methods
+    public Board(int rowCount, int colCount, int mineCount, boolean hasSuperMine,
+                 int superMineLifetime, boolean superMineActionRevealsEmptyCells) {
+        this(Topology.Kind.SQUARE, rowCount, colCount, mineCount, hasSuperMine,
+                superMineLifetime, superMineActionRevealsEmptyCells);
+    }
+
+    public Board(Topology.Kind topology, int rowCount, int colCount, int mineCount, boolean hasSuperMine,
+                 int superMineLifetime, boolean superMineActionRevealsEmptyCells) {
+        if (rowCount <= 0 || colCount <= 0) throw new IllegalArgumentException("The board must have at least one cell");
+        if (mineCount < 0) throw new IllegalArgumentException("The mine count cannot be negative");
+
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.cellCount = Math.multiplyExact(rowCount, colCount);
+        this.topology = Topology.of(topology, rowCount, colCount);
+        this.neighborOffsets = this.topology.offsets();
+        this.neighbors = this.topology.neighbors();
+        this.mineCount = mineCount;
+        this.hasSuperMine = hasSuperMine && mineCount > 0;
+        this.superMineLifetime = superMineLifetime;
+        this.maxConcurrentMarkedCellsCount = mineCount;
+        this.superMineActionRevealsEmptyCells = superMineActionRevealsEmptyCells;
+        this.adjacentMinesCounts = new byte[cellCount];
+    }
+
+    // place mines randomly, while ensuring that the given cell and its neighbors remain safe
+    // this ensures that the first clicked cell is always empty and has no adjacent mines
+    public void placeMines(int firstClickRowIndex, int firstClickColIndex, Random rng) throws IllegalStateException {
+        if (minesPlaced) throw new IllegalStateException("The mines have already been placed");
+
+        int firstClickIndex = indexOf(firstClickRowIndex, firstClickColIndex);
+        int safeCount = 1 + topology.degree(firstClickIndex);
+        if (mineCount > cellCount - safeCount)
+            throw new IllegalStateException("There is not enough room for " + mineCount + " mines");
+
+        var event = new PlaceMinesEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int minesRemaining = mineCount;
+        while (minesRemaining > 0) {
+            int index;
+            do {
+                int row = rng.nextInt(rowCount);
+                int col = rng.nextInt(colCount);
+                index = row * colCount + col;
+            } while (isSafeArea(firstClickIndex, index));
+
+            if (mines.get(index)) continue;
+
+            mines.set(index);
+            if (hasSuperMine && minesRemaining == mineCount) superMineIndex = index;
+            --minesRemaining;
+            // update adjacent cells
+            for (int i = neighborOffsets[index]; i < neighborOffsets[index + 1]; ++i)
+                ++adjacentMinesCounts[neighbors[i]];
+        }
+        minesPlaced(start, event);
+    }
+
+    // place the given mines (e.g. a pre-generated board, see BoardPack), the given cell and its neighbors must be safe
+    // the super mine is ignored if the board has none
+    public void placeMines(int firstClickRowIndex, int firstClickColIndex, BitSet mines, int superMineIndex)
+            throws IllegalStateException, IllegalArgumentException {
+        if (minesPlaced) throw new IllegalStateException("The mines have already been placed");
+
+        int firstClickIndex = indexOf(firstClickRowIndex, firstClickColIndex);
+        if (mines.cardinality() != mineCount || mines.length() > cellCount)
+            throw new IllegalArgumentException("The board must have exactly " + mineCount + " mines");
+        for (int index = mines.nextSetBit(0); index >= 0; index = mines.nextSetBit(index + 1))
+            if (isSafeArea(firstClickIndex, index))
+                throw new IllegalArgumentException("The first clicked cell and its neighbors must be safe");
+        if (hasSuperMine && (superMineIndex < 0 || !mines.get(superMineIndex)))
+            throw new IllegalArgumentException("The super mine must be one of the mines");
+
+        var event = new PlaceMinesEvent();
+        event.begin();
+        long start = System.nanoTime();
+        this.mines.or(mines);
+        if (hasSuperMine) this.superMineIndex = superMineIndex;
+        for (int index = mines.nextSetBit(0); index >= 0; index = mines.nextSetBit(index + 1))
+            for (int i = neighborOffsets[index]; i < neighborOffsets[index + 1]; ++i)
+                ++adjacentMinesCounts[neighbors[i]];
+        minesPlaced(start, event);
+    }
+
+    private void minesPlaced(long start, PlaceMinesEvent event) {
+        minesPlaced = true;
+        ++version;
+        takeSnapshot(null);
+
+        Metrics.PLACE_MINES_TIME.record(System.nanoTime() - start);
+        Metrics.GAMES_STARTED.increment(1);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cellCount = cellCount;
+            event.mineCount = mineCount;
+            event.commit();
+        }
+    }
+
+    // reveal the given cell, and recursively every cell around it if it has no adjacent mines
+    // does nothing if the cell is revealed or marked, or if the game is over
+    public Delta primaryClick(int row, int col) throws IllegalStateException {
+        if (!minesPlaced) throw new IllegalStateException("The mines must be placed before the first primary click");
+
+        var delta = new Delta();
+        int index = indexOf(row, col);
+        if (isGameOver() || revealed.get(index) || marked.get(index)) return delta;
+
+        // if cell was hidden and unmarked, click was successful
+        ++clicksCount;
+        var cellsToProcess = new IntList();
+        cellsToProcess.add(index);
+        processCells(cellsToProcess, true, delta);
+        commit(delta);
+        return delta;
+    }
+
+    // chord on the given revealed number: if as many of its neighbors are marked (or are disarmed mines) as its number
+    // says, reveal all of its other hidden neighbors, and recursively every one of them without adjacent mines
+    // all of these reveals are a single action, with a single delta (and snapshot, and batch of events), and it counts
+    // as a single primary click if it reveals anything (a wrongly marked neighbor makes it detonate a mine)
+    // does nothing if the cell is hidden or has no number, if its number is not satisfied, or if the game is over
+    public Delta chord(int row, int col) {
+        var delta = new Delta();
+        int index = indexOf(row, col);
+        if (!minesPlaced || isGameOver() || !revealed.get(index) || mines.get(index) || adjacentMinesCounts[index] == 0)
+            return delta;
+
+        int knownMines = 0;
+        var cellsToProcess = new IntList();
+        for (int i = neighborOffsets[index]; i < neighborOffsets[index + 1]; ++i) {
+            int adjIndex = neighbors[i];
+            if (marked.get(adjIndex) || (revealed.get(adjIndex) && mines.get(adjIndex))) ++knownMines;
+            else if (!revealed.get(adjIndex)) cellsToProcess.add(adjIndex);
+        }
+        if (knownMines != adjacentMinesCounts[index] || cellsToProcess.isEmpty()) return delta;
+
+        ++clicksCount;
+        processCells(cellsToProcess, true, delta);
+        commit(delta);
+        return delta;
+    }
+
+    // mark the given cell, or unmark it if it is already marked
+    // marking the super mine while it is still active reveals its entire row and column
+    // does nothing if the cell is revealed, if no more marks can be added, or if the game is over
+    public Delta secondaryClick(int row, int col) {
+        var delta = new Delta();
+        int index = indexOf(row, col);
+        if (!minesPlaced || isGameOver() || revealed.get(index)) return delta;
+
+        if (marked.get(index)) {
+            unmark(index, delta);
+            commit(delta);
+            return delta;
+        }
+        if (markedCellsCount >= maxConcurrentMarkedCellsCount) return delta;
+
+        mark(index, delta);
+        if (index == superMineIndex && clicksCount < superMineLifetime) {
+            // active super mine has been marked, disarm and reveal its entire row and column
+            clearLines(row, col, delta);
+        }
+        commit(delta);
+        return delta;
+    }
+
+    // reveals all not-yet-revealed (and unmarked) mines, detonating the ones that have not been disarmed
+    // does nothing if the mines have not been placed yet
+    public Delta revealAllMines() {
+        var delta = new Delta();
+        if (!minesPlaced) return delta;
+
+        for (int index = mines.nextSetBit(0); index >= 0; index = mines.nextSetBit(index + 1))
+            if (!marked.get(index) && !revealed.get(index)) reveal(index, delta);
+        commit(delta);
+        return delta;
+    }
+
+    // restore the state of the board before the given number of latest actions (see getUndoableActionsCount()),
+    // whether the game is over or not (e.g. to take back a detonated mine), but an expired time stays expired
+    // the changes are returned as hides, rearms, marks and unmarks, and the undone actions cannot be redone
+    public Delta undo(int actionCount) throws IllegalStateException, IllegalArgumentException {
+        if (history == null) throw new IllegalStateException("The history must be enabled to undo actions");
+        if (actionCount < 0 || actionCount > getUndoableActionsCount())
+            throw new IllegalArgumentException("Only " + getUndoableActionsCount() + " actions can be undone");
+
+        var delta = new Delta();
+        if (actionCount == 0) return delta;
+        var current = history.get(history.size() - 1);
+        var target = history.get(history.size() - 1 - actionCount);
+        history.subList(history.size() - actionCount, history.size()).clear();
+
+        // only the chunks the two states do not share are compared
+        var cells = current.revealed().without(target.revealed());
+        for (int i = 0; i < cells.size(); ++i) {
+            revealed.clear(cells.get(i));
+            delta.addHidden(cells.get(i));
+        }
+        cells = current.detonated().without(target.detonated());
+        for (int i = 0; i < cells.size(); ++i) detonated.clear(cells.get(i)); // hidden as well
+        cells = current.disarmed().without(target.disarmed());
+        for (int i = 0; i < cells.size(); ++i) {
+            disarmed.clear(cells.get(i));
+            delta.addRearmed(cells.get(i));
+        }
+        cells = target.marked().without(current.marked());
+        for (int i = 0; i < cells.size(); ++i) {
+            marked.set(cells.get(i));
+            delta.addMarked(cells.get(i));
+        }
+        cells = current.marked().without(target.marked());
+        for (int i = 0; i < cells.size(); ++i) {
+            marked.clear(cells.get(i));
+            delta.addUnmarked(cells.get(i));
+        }
+        clicksCount = target.clicksCount();
+        markedCellsCount = target.markedCellsCount();
+        revealedEmptyCellsCount = target.revealedEmptyCellsCount();
+        gameEndedPublished &= isGameOver(); // the end of the game is published again if it ends again
+
+        ++version;
+        takeSnapshot(delta);
+        publish(delta);
+        return delta;
+    }
+
+    // the time available to the player ran out, so the game is over and considered lost
+    public void expireTime() {
+        if (timeExpired) return;
+        timeExpired = true;
+        ++version;
+        takeSnapshot(null);
+        publish(new Delta());
+    }
+
+    // returns the publisher of the events of this board, creating it on the first call
+    // every action publishes all of its events as one batch, on the thread that performed the action,
+    // but the subscribers receive them asynchronously (on the common pool) and request them at their own pace
+    // the publisher never blocks: if the buffer of a subscriber is full, the batch is dropped for that subscriber
+    public Flow.Publisher<List<GameEvent>> events() {
+        var publisher = events;
+        if (publisher == null) {
+            synchronized (this) {
+                if (events == null) events = new SubmissionPublisher<>(ForkJoinPool.commonPool(), EVENT_BUFFER_CAPACITY);
+                publisher = events;
+            }
+        }
+        return publisher;
+    }
+
+    // completes the subscriptions of events(), no more events are published after this call
+    public void closeEvents() {
+        var publisher = events;
+        if (publisher != null) publisher.close();
+    }
+
+    // the number of batches that were dropped (summed over all subscribers) because a subscriber fell behind
+    public long getDroppedEventBatches() {
+        return droppedEventBatches.get();
+    }
+
+    // a recursive reveal that has revealed this many cells grows the rest of its region in parallel
+    // (see ParallelReveal), the cells revealed are the same either way
+    // Integer.MAX_VALUE keeps every reveal on the thread of the board
+    public void setParallelRevealThreshold(int cellCount) {
+        if (cellCount <= 0) throw new IllegalArgumentException("The threshold must be positive");
+        parallelRevealThreshold = cellCount;
+    }
+
+    // start publishing a snapshot after every action that changes the board, beginning with the current state
+    // must be called on the thread that uses the board, snapshots are not taken (or copied) before this call
+    public void enableSnapshots() {
+        if (snapshot != null) return;
+        hash = new BoardHash(topology);
+        for (int index = revealed.nextSetBit(0); index >= 0; index = revealed.nextSetBit(index + 1))
+            hash.toggle(index, visibleValue(index));
+        snapshot = copy(null, null);
+    }
+
+    // start keeping the state of the board after every action, beginning with the current state, see undo()
+    // must be called on the thread that uses the board, only the actions after this call can be undone
+    public void enableHistory() {
+        if (history != null) return;
+        history = new ArrayList<>();
+        history.add(new State(ChunkedBits.of(revealed, cellCount), ChunkedBits.of(marked, cellCount),
+                ChunkedBits.of(disarmed, cellCount), ChunkedBits.of(detonated, cellCount),
+                clicksCount, markedCellsCount, revealedEmptyCellsCount));
+    }
+
+    // how many of the latest actions can be undone at once, 0 if enableHistory() has not been called
+    public int getUndoableActionsCount() {
+        return (history == null) ? 0 : history.size() - 1;
+    }
+
+    // the snapshot of the board after its latest action, or null if enableSnapshots() has not been called
+    // can be called from any thread
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // the version of the board, it changes after every action that changes the state of the board
+    public long getVersion() {
+        return version;
+    }
+
+    // whether the board has changed since the given snapshot was taken, i.e. if anything computed from the
+    // snapshot is out of date, can be called from any thread (but it is only accurate if snapshots are enabled)
+    public boolean isStale(BoardSnapshot snapshot) {
+        var latest = this.snapshot;
+        return latest == null || latest.getVersion() != snapshot.getVersion();
+    }
+
+    // an action has been completed, record its changes and let everyone know about them
+    private void commit(Delta delta) {
+        if (!delta.isEmpty()) {
+            ++version;
+            takeSnapshot(delta);
+            if (history != null) record(delta);
+        }
+        publish(delta);
+    }
+
+    // keep the state after the given changes, only the chunks of the bitsets they changed are copied
+    private void record(Delta delta) {
+        var previous = history.get(history.size() - 1);
+        history.add(new State(
+                previous.revealed().update(revealed, delta.getRevealed()),
+                previous.marked().update(marked, delta.getMarked(), delta.getUnmarked()),
+                previous.disarmed().update(disarmed, delta.getDisarmed()),
+                previous.detonated().update(detonated, delta.getDetonated()),
+                clicksCount, markedCellsCount, revealedEmptyCellsCount));
+    }
+
+    // publish a new snapshot, if snapshots are enabled
+    private void takeSnapshot(Delta delta) {
+        var previous = snapshot;
+        if (previous == null) return;
+        if (delta != null && delta.hasRevealed()) {
+            for (int index : delta.getRevealed()) hash.toggle(index, visibleValue(index));
+            for (int index : delta.getHidden()) hash.toggle(index, visibleValue(index));
+        }
+        snapshot = copy(previous, delta);
+    }
+
+    // what the hash of the visible state holds for a revealed cell: its number, or MINE for the mines (which are
+    // revealed either detonated or disarmed, and every disarmed mine is revealed by the same action)
+    private int visibleValue(int index) {
+        return mines.get(index) ? BoardHash.MINE : adjacentMinesCounts[index];
+    }
+
+    // copy the state of the board, sharing the bitsets of the previous snapshot that the given delta did not change
+    // (if either of them is null, every bitset is copied)
+    private BoardSnapshot copy(BoardSnapshot previous, Delta delta) {
+        long start = System.nanoTime();
+        boolean copyAll = previous == null || delta == null;
+        var copy = new BoardSnapshot(
+                version, this, adjacentMinesCounts, hash.copy(),
+                (copyAll || delta.hasRevealed()) ? (BitSet) revealed.clone() : previous.revealed(),
+                (copyAll || delta.hasMarksChanged()) ? (BitSet) marked.clone() : previous.marked(),
+                (copyAll || delta.hasDisarmed()) ? (BitSet) disarmed.clone() : previous.disarmed(),
+                (copyAll || delta.hasDetonated()) ? (BitSet) detonated.clone() : previous.detonated()
+        );
+        Metrics.SNAPSHOT_TIME.record(System.nanoTime() - start);
+        return copy;
+    }
+
+    private void publish(Delta delta) {
+        var publisher = events;
+        boolean gameEnded = isGameOver() && !gameEndedPublished;
+        gameEndedPublished |= gameEnded;
+        if (publisher == null || publisher.isClosed() || !publisher.hasSubscribers()) return;
+        if (delta.isEmpty() && !gameEnded) return;
+
+        var batch = new ArrayList<GameEvent>();
+        var hiddenCells = delta.getHidden();
+        if (hiddenCells.length > 0) batch.add(new GameEvent.CellsHidden(hiddenCells));
+        var rearmedCells = delta.getRearmed();
+        if (rearmedCells.length > 0) batch.add(new GameEvent.MinesRearmed(rearmedCells));
+        for (int cell : delta.getMarked()) batch.add(new GameEvent.CellMarked(cell, true));
+        var disarmedCells = delta.getDisarmed();
+        if (disarmedCells.length > 0) batch.add(new GameEvent.MinesDisarmed(disarmedCells));
+        for (int cell : delta.getUnmarked()) batch.add(new GameEvent.CellMarked(cell, false));
+        var revealedCells = delta.getRevealed();
+        if (revealedCells.length > 0) batch.add(new GameEvent.CellsRevealed(revealedCells));
+        for (int cell : delta.getDetonated()) batch.add(new GameEvent.MineDetonated(cell));
+        if (gameEnded) batch.add(new GameEvent.GameEnded(playerWon()));
+
+        publisher.offer(List.copyOf(batch), (subscriber, dropped) -> {
+            droppedEventBatches.incrementAndGet();
+            return false; // do not retry, the action must not wait for the subscriber
+        });
+    }
+
+    // unmark and reveal every queued cell, and if expandEmptyCells is true,
+    // queue the neighbors of every revealed cell without adjacent mines as well
+    private void processCells(IntList cellsToProcess, boolean expandEmptyCells, Delta delta) {
+        var event = new FloodFillEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int cellsRevealed = 0;
+
+        for (int next = 0; next < cellsToProcess.size(); ++next) {
+            int index = cellsToProcess.get(next);
+            if (marked.get(index)) unmark(index, delta);
+            if (revealed.get(index)) continue;
+
+            reveal(index, delta);
+            ++cellsRevealed;
+            if (!expandEmptyCells || mines.get(index) || adjacentMinesCounts[index] != 0) continue;
+
+            if (cellsRevealed >= parallelRevealThreshold) {
+                // a huge opening, grow the rest of it in parallel and then reveal it here, in ascending order
+                for (int i = neighborOffsets[index]; i < neighborOffsets[index + 1]; ++i)
+                    if (!revealed.get(neighbors[i])) cellsToProcess.add(neighbors[i]);
+                var cells = ParallelReveal.grow(rowCount, colCount, neighborOffsets, neighbors, mines, revealed,
+                        adjacentMinesCounts, cellsToProcess, next + 1);
+                for (int cell : cells) {
+                    if (marked.get(cell)) unmark(cell, delta);
+                    reveal(cell, delta);
+                }
+                cellsRevealed += cells.length;
+                break;
+            }
+
+            for (int i = neighborOffsets[index]; i < neighborOffsets[index + 1]; ++i)
+                if (!revealed.get(neighbors[i])) cellsToProcess.add(neighbors[i]);
+        }
+
+        Metrics.FLOOD_FILL_TIME.record(System.nanoTime() - start);
+        Metrics.FLOOD_FILL_SIZE.record(cellsRevealed);
+        Metrics.CELLS_REVEALED.increment(cellsRevealed);
+        event.end();
+        if (event.shouldCommit()) {
+            event.cellsRevealed = cellsRevealed;
+            event.commit();
+        }
+    }
+
+    // the action of the super mine: disarm every mine of the given row and column, and reveal all of their cells
+    // the row is contiguous in the bitsets, so it is read a word at a time, and only the cells that change are visited
+    // if empty cells without adjacent mines also cause recursive reveal, a single flood fill grows from all of them
+    private void clearLines(int row, int col, Delta delta) {
+        var toDisarm = new IntList();
+        var toReveal = new IntList();
+
+        // the row, a word (64 cells) at a time
+        int from = row * colCount;
+        var rowMines = mines.get(from, from + colCount).toLongArray(); // trailing zeros trimmed
+        var rowRevealed = revealed.get(from, from + colCount).toLongArray();
+        var rowDisarmed = disarmed.get(from, from + colCount).toLongArray();
+        for (int word = 0; word * Long.SIZE < colCount; ++word) {
+            long valid = (colCount - word * Long.SIZE >= Long.SIZE) ? -1L : (1L << (colCount - word * Long.SIZE)) - 1;
+            long minesWord = word(rowMines, word), revealedWord = word(rowRevealed, word);
+            // a detonated mine is revealed, so it is never disarmed
+            for (long bits = minesWord & ~revealedWord & ~word(rowDisarmed, word); bits != 0; bits &= bits - 1)
+                toDisarm.add(from + word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+            for (long bits = ~revealedWord & valid; bits != 0; bits &= bits - 1)
+                toReveal.add(from + word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+        }
+
+        // the column, whose cells are a row apart (the cell of the row has already been visited)
+        for (int adjRow = 0; adjRow < rowCount; ++adjRow) {
+            int index = adjRow * colCount + col;
+            if (adjRow == row || revealed.get(index)) continue;
+            if (mines.get(index) && !disarmed.get(index)) toDisarm.add(index);
+            toReveal.add(index);
+        }
+
+        for (int i = 0; i < toDisarm.size(); ++i) {
+            disarmed.set(toDisarm.get(i));
+            delta.addDisarmed(toDisarm.get(i));
+        }
+        var cellsToProcess = new IntList();
+        for (int i = 0; i < toReveal.size(); ++i) {
+            int index = toReveal.get(i);
+            if (marked.get(index)) unmark(index, delta);
+            reveal(index, delta);
+            if (!superMineActionRevealsEmptyCells || mines.get(index) || adjacentMinesCounts[index] != 0) continue;
+            for (int j = neighborOffsets[index]; j < neighborOffsets[index + 1]; ++j)
+                if (!revealed.get(neighbors[j])) cellsToProcess.add(neighbors[j]);
+        }
+        Metrics.CELLS_REVEALED.increment(toReveal.size());
+        if (!cellsToProcess.isEmpty()) processCells(cellsToProcess, true, delta);
+    }
+
+    private static long word(long[] words, int word) {
+        return (word < words.length) ? words[word] : 0;
+    }
+
+    // whether the given cell is the first clicked cell or one of its neighbors
+    private boolean isSafeArea(int firstClickIndex, int index) {
+        if (index == firstClickIndex) return true;
+        for (int i = neighborOffsets[firstClickIndex]; i < neighborOffsets[firstClickIndex + 1]; ++i)
+            if (neighbors[i] == index) return true;
+        return false;
+    }
+
+    private void reveal(int index, Delta delta) {
+        revealed.set(index);
+        delta.addRevealed(index);
+        if (!mines.get(index))
+            ++revealedEmptyCellsCount;
+        else if (!disarmed.get(index)) {
+            detonated.set(index);
+            delta.addDetonated(index);
+        }
+    }
+
+    private void mark(int index, Delta delta) {
+        marked.set(index);
+        ++markedCellsCount;
+        delta.addMarked(index);
+    }
+
+    private void unmark(int index, Delta delta) {
+        marked.clear(index);
+        --markedCellsCount;
+        delta.addUnmarked(index);
+    }
+
+    public int indexOf(int row, int col) {
+        if (row < 0 || row >= rowCount || col < 0 || col >= colCount)
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside of the board");
+        return row * colCount + col;
+    }
+
+    public int rowOf(int index) {
+        return index / colCount;
+    }
+
+    public int colOf(int index) {
+        return index % colCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public int getMineCount() {
+        return mineCount;
+    }
+
+    public boolean getHasSuperMine() {
+        return hasSuperMine;
+    }
+
+    public int getSuperMineLifetime() {
+        return superMineLifetime;
+    }
+
+    public int getMaxConcurrentMarkedCellsCount() {
+        return maxConcurrentMarkedCellsCount;
+    }
+
+    public boolean getSuperMineActionRevealsEmptyCells() {
+        return superMineActionRevealsEmptyCells;
+    }
+
+    public boolean getMinesPlaced() {
+        return minesPlaced;
+    }
+
+    public int getClicksCount() {
+        return clicksCount;
+    }
+
+    public int getMarkedCellsCount() {
+        return markedCellsCount;
+    }
+
+    public int getRevealedEmptyCellsCount() {
+        return revealedEmptyCellsCount;
+    }
+
+    // the following getters expose the hidden state of the board, players should only look at the visible state
+    public boolean hasMine(int index) {
+        return mines.get(index);
+    }
+
+    public boolean hasSuperMine(int index) {
+        return index == superMineIndex;
+    }
+
+    public int getSuperMineIndex() {
+        return superMineIndex;
+    }
+
+    // the adjacent mines count of a cell is only visible to the player after the cell has been revealed
+    public int getAdjacentMinesCount(int index) {
+        return adjacentMinesCounts[index];
+    }
+
+    public boolean isRevealed(int index) {
+        return revealed.get(index);
+    }
+
+    public boolean isMarked(int index) {
+        return marked.get(index);
+    }
+
+    public boolean isDisarmed(int index) {
+        return disarmed.get(index);
+    }
+
+    public boolean isDetonated(int index) {
+        return detonated.get(index);
+    }
+
+    public boolean hasMineDetonated() {
+        return !detonated.isEmpty();
+    }
+
+    public boolean allEmptyCellsRevealed() {
+        return minesPlaced && revealedEmptyCellsCount == cellCount - mineCount;
+    }
+
+    public boolean hasTimeExpired() {
+        return timeExpired;
+    }
+
+    public boolean isGameOver() {
+        return hasMineDetonated() || allEmptyCellsRevealed() || timeExpired;
+    }
+
+    public boolean playerWon() {
+        return !hasMineDetonated() && allEmptyCellsRevealed() && !timeExpired;
+    }
+}
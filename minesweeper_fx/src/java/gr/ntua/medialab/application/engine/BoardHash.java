@@ -0,0 +1,98 @@
+package gr.ntua.medialab.application.engine;
+
+// a Zobrist hash of the contents of the cells of a board, reduced over the symmetries of the grid
+// every (cell, value) pair has a random 64-bit key, and the hash of a board is the xor of the keys of its cells, so
+// adding or removing a value is a single xor (toggle() is its own inverse)
+// the hash is kept for every symmetry of the grid at once (the 8 rotations and reflections of a square grid, or the
+// 4 of a rectangular one), and the canonical hash is the smallest of them, so boards that only differ by a rotation
+// or a reflection have the same canonical hash
+// hexagonal boards are not symmetric under these, so only the identity is used for them
+// the keys and the symmetries are computed from the cell (keys by a mixing function, like SplittableRandom does)
+// instead of being kept in tables, so a hash costs the same few longs whatever the size of its board
+// the keys are fixed for every kind and size of board, so canonical hashes can be compared across boards and runs
+
+public final class BoardHash {
+    // the values of a cell, a revealed cell has its number (0 to 8)
+    public static final int MINE = 9;
+    private static final int VALUE_COUNT = 10;
+    private static final long SEED = 0x5DEECE66DL;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // the increment of SplittableRandom
+
+    private final int rowCount;
+    private final int colCount;
+    private final long seed; // the same for every board of the same kind and size
+    private final long[] hashes; // one per symmetry
+
+    public BoardHash(Topology topology) {
+        this.rowCount = topology.getRowCount();
+        this.colCount = topology.getColCount();
+        this.seed = mix(SEED ^ ((long) topology.getKind().ordinal() << 48) ^ ((long) rowCount << 24) ^ colCount);
+        int symmetryCount = (topology.getKind() == Topology.Kind.HEX) ? 1 : (rowCount == colCount) ? 8 : 4;
+        this.hashes = new long[symmetryCount];
+    }
+
+    private BoardHash(BoardHash hash) {
+        this.rowCount = hash.rowCount;
+        this.colCount = hash.colCount;
+        this.seed = hash.seed;
+        this.hashes = hash.hashes.clone();
+    }
+
+    // a hash of the same board that does not change with this one
+    public BoardHash copy() {
+        return new BoardHash(this);
+    }
+
+    // adds the given value to the given cell, or removes it if it is already there
+    public void toggle(int cell, int value) {
+        for (int symmetry = 0; symmetry < hashes.length; ++symmetry)
+            hashes[symmetry] ^= key(toCanonical(symmetry, cell), value);
+    }
+
+    // the same for every board that is a rotation or a reflection of this one
+    public long canonical() {
+        return hashes[canonicalSymmetry()];
+    }
+
+    // the symmetry that turns this board into its canonical orientation
+    public int canonicalSymmetry() {
+        int canonical = 0;
+        for (int symmetry = 1; symmetry < hashes.length; ++symmetry)
+            if (hashes[symmetry] < hashes[canonical]) canonical = symmetry;
+        return canonical;
+    }
+
+    // where the given cell is once the board is turned by the given symmetry
+    public int toCanonical(int symmetry, int cell) {
+        int row = cell / colCount, col = cell % colCount;
+        int lastRow = rowCount - 1 - row, lastCol = colCount - 1 - col;
+        // the 4 symmetries of a rectangle come first, the 4 others swap rows and columns
+        return switch (symmetry) {
+            case 0 -> cell; // identity
+            case 1 -> lastRow * colCount + lastCol; // half turn
+            case 2 -> row * colCount + lastCol; // mirrored left to right
+            case 3 -> lastRow * colCount + col; // mirrored top to bottom
+            case 4 -> col * colCount + row; // transposed
+            case 5 -> lastCol * colCount + lastRow; // transposed along the other diagonal
+            case 6 -> col * colCount + lastRow; // quarter turn clockwise
+            default -> lastCol * colCount + row; // quarter turn counterclockwise
+        };
+    }
+
+    // the inverse of toCanonical(): every symmetry undoes itself, except the quarter turns, which undo each other
+    public int fromCanonical(int symmetry, int cell) {
+        return toCanonical((symmetry == 6) ? 7 : (symmetry == 7) ? 6 : symmetry, cell);
+    }
+
+    // the random key of the given value of the given cell
+    private long key(int cell, int value) {
+        return mix(seed + ((long) cell * VALUE_COUNT + value + 1) * GOLDEN_GAMMA);
+    }
+
+    // the mixing function of SplittableRandom (Stafford's variant 13 of the finalizer of MurmurHash3)
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,199 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.BitSet;
+
+// an immutable copy of the visible state of a board, taken right after an action (see Board.enableSnapshots())
+// snapshots can be read from any thread, so background analysis (solvers, hints etc.) never touches the board itself
+// every snapshot has the version of the board it was taken from, compare it with Board.isStale() before
+// applying anything computed from a snapshot, because the player may have clicked in the meantime
+// the bitsets are never modified after a snapshot is created, so consecutive snapshots share the ones that
+// did not change (e.g. marking a cell only copies the marked cells)
+
+public class BoardSnapshot {
+    // attributes
+    private final long version;
+    private final int rowCount;
+    private final int colCount;
+    private final Topology topology;
+    private final int mineCount;
+    private final boolean hasSuperMine;
+    private final int superMineLifetime;
+    private final int maxConcurrentMarkedCellsCount;
+    private final boolean superMineActionRevealsEmptyCells;
+
+    // state (at the time of the snapshot)
+    private final boolean minesPlaced;
+    private final int clicksCount;
+    private final int markedCellsCount;
+    private final int revealedEmptyCellsCount;
+    private final boolean gameOver;
+    private final BitSet revealed;
+    private final BitSet marked;
+    private final BitSet disarmed;
+    private final BitSet detonated;
+    // shared with the board, it is only written once (when the mines are placed), and before any cell is revealed
+    // so the counts of the revealed cells of a snapshot never change
+    private final byte[] adjacentMinesCounts;
+    private final BoardHash hash; // of the visible state, never toggled after the snapshot is created
+
+    // methods
+    BoardSnapshot(long version, Board board, byte[] adjacentMinesCounts, BoardHash hash,
+                  BitSet revealed, BitSet marked, BitSet disarmed, BitSet detonated) {
+        this.version = version;
+        this.rowCount = board.getRowCount();
+        this.colCount = board.getColCount();
+        this.topology = board.getTopology();
+        this.mineCount = board.getMineCount();
+        this.hasSuperMine = board.getHasSuperMine();
+        this.superMineLifetime = board.getSuperMineLifetime();
+        this.maxConcurrentMarkedCellsCount = board.getMaxConcurrentMarkedCellsCount();
+        this.superMineActionRevealsEmptyCells = board.getSuperMineActionRevealsEmptyCells();
+        this.minesPlaced = board.getMinesPlaced();
+        this.clicksCount = board.getClicksCount();
+        this.markedCellsCount = board.getMarkedCellsCount();
+        this.revealedEmptyCellsCount = board.getRevealedEmptyCellsCount();
+        this.gameOver = board.isGameOver();
+        this.revealed = revealed;
+        this.marked = marked;
+        this.disarmed = disarmed;
+        this.detonated = detonated;
+        this.adjacentMinesCounts = adjacentMinesCounts;
+        this.hash = hash;
+    }
+
+    // package-only, so that the board can share the bitsets that did not change with the next snapshot
+    BitSet revealed() {
+        return revealed;
+    }
+
+    BitSet marked() {
+        return marked;
+    }
+
+    BitSet disarmed() {
+        return disarmed;
+    }
+
+    BitSet detonated() {
+        return detonated;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // the hash of the visible state: the numbers of the revealed cells, and the known mines (the ones that are
+    // revealed, detonated or disarmed), but not the marks of the player, see BoardHash
+    // it must not be toggled
+    public BoardHash getHash() {
+        return hash;
+    }
+
+    public int indexOf(int row, int col) {
+        if (row < 0 || row >= rowCount || col < 0 || col >= colCount)
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside of the board");
+        return row * colCount + col;
+    }
+
+    public int rowOf(int index) {
+        return index / colCount;
+    }
+
+    public int colOf(int index) {
+        return index % colCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    public int getCellCount() {
+        return rowCount * colCount;
+    }
+
+    // the neighbors of every cell, see Topology
+    public Topology getTopology() {
+        return topology;
+    }
+
+    public int getMineCount() {
+        return mineCount;
+    }
+
+    public boolean getHasSuperMine() {
+        return hasSuperMine;
+    }
+
+    public int getSuperMineLifetime() {
+        return superMineLifetime;
+    }
+
+    public int getMaxConcurrentMarkedCellsCount() {
+        return maxConcurrentMarkedCellsCount;
+    }
+
+    public boolean getSuperMineActionRevealsEmptyCells() {
+        return superMineActionRevealsEmptyCells;
+    }
+
+    public boolean getMinesPlaced() {
+        return minesPlaced;
+    }
+
+    public int getClicksCount() {
+        return clicksCount;
+    }
+
+    public int getMarkedCellsCount() {
+        return markedCellsCount;
+    }
+
+    public int getRevealedEmptyCellsCount() {
+        return revealedEmptyCellsCount;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    // only the counts of revealed cells are visible, -1 is returned for any other cell
+    public int getAdjacentMinesCount(int index) {
+        return revealed.get(index) ? adjacentMinesCounts[index] : -1;
+    }
+
+    public boolean isRevealed(int index) {
+        return revealed.get(index);
+    }
+
+    public boolean isMarked(int index) {
+        return marked.get(index);
+    }
+
+    public boolean isDisarmed(int index) {
+        return disarmed.get(index);
+    }
+
+    public boolean isDetonated(int index) {
+        return detonated.get(index);
+    }
+
+    // the index of the first revealed cell at or after the given index, or -1 if there is none
+    public int nextRevealed(int fromIndex) {
+        return revealed.nextSetBit(fromIndex);
+    }
+
+    // the index of the first hidden cell at or after the given index, or -1 if there is none
+    public int nextHidden(int fromIndex) {
+        int index = revealed.nextClearBit(fromIndex);
+        return (index < getCellCount()) ? index : -1;
+    }
+
+    // the index of the first marked cell at or after the given index, or -1 if there is none
+    public int nextMarked(int fromIndex) {
+        return marked.nextSetBit(fromIndex);
+    }
+}
@@ -0,0 +1,63 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.BitSet;
+
+// an immutable bitset split in fixed-size chunks, that shares the chunks it did not change with the versions it was
+// derived from (a persistent bitset), so keeping every version of a bitset that changes a few bits at a time
+// only costs the chunks that changed, plus one reference per chunk
+// chunks without any set bit are not allocated at all (null)
+// two versions are compared chunk by chunk, and only the chunks they do not share are looked into
+
+final class ChunkedBits {
+    private static final int CHUNK_WORDS = 64;
+    private static final int CHUNK_BITS = CHUNK_WORDS * Long.SIZE;
+
+    private final long[][] chunks;
+
+    private ChunkedBits(long[][] chunks) {
+        this.chunks = chunks;
+    }
+
+    // every bit of the given bitset below the given size
+    static ChunkedBits of(BitSet bits, int size) {
+        var chunks = new long[(size + CHUNK_BITS - 1) / CHUNK_BITS][];
+        for (int chunk = 0; chunk < chunks.length; ++chunk) chunks[chunk] = copyChunk(bits, chunk);
+        return new ChunkedBits(chunks);
+    }
+
+    // the given bitset, which only differs from this version at the given indices
+    // returns this version if there are no changes
+    ChunkedBits update(BitSet bits, int[]... changed) {
+        long[][] chunks = null; // copied on the first change
+        for (var indices : changed) {
+            for (int index : indices) {
+                if (chunks == null) chunks = this.chunks.clone();
+                int chunk = index / CHUNK_BITS;
+                if (chunks[chunk] == this.chunks[chunk]) chunks[chunk] = copyChunk(bits, chunk);
+            }
+        }
+        return (chunks == null) ? this : new ChunkedBits(chunks);
+    }
+
+    private static long[] copyChunk(BitSet bits, int chunk) {
+        var words = bits.get(chunk * CHUNK_BITS, (chunk + 1) * CHUNK_BITS).toLongArray(); // trailing zeros trimmed
+        return (words.length == 0) ? null : words;
+    }
+
+    // the indices of the bits that are set in this version but not in the other one
+    // the chunks both versions share are skipped without being read
+    IntList without(ChunkedBits other) {
+        var indices = new IntList();
+        for (int chunk = 0; chunk < chunks.length; ++chunk) {
+            var words = chunks[chunk];
+            var otherWords = other.chunks[chunk];
+            if (words == otherWords || words == null) continue;
+            for (int word = 0; word < words.length; ++word) {
+                long bits = words[word] & ~((otherWords != null && word < otherWords.length) ? otherWords[word] : 0);
+                for (; bits != 0; bits &= bits - 1)
+                    indices.add(chunk * CHUNK_BITS + word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,100 @@
+package gr.ntua.medialab.application.engine;
+
+// the changes caused by a single action on a board
+// to mirror them, apply the hides and the rearms first (only Board.undo() causes them), then the marks, then the
+// disarms, then the unmarks and finally the reveals
+// (a cell can be marked and then unmarked by the same action, e.g. a marked super mine gets revealed)
+
+public class Delta {
+    // state
+    private final IntList revealed = new IntList();
+    private final IntList marked = new IntList();
+    private final IntList unmarked = new IntList();
+    private final IntList disarmed = new IntList();
+    private final IntList detonated = new IntList();
+    private final IntList hidden = new IntList();
+    private final IntList rearmed = new IntList();
+
+    void addRevealed(int index) {
+        revealed.add(index);
+    }
+
+    void addMarked(int index) {
+        marked.add(index);
+    }
+
+    void addUnmarked(int index) {
+        unmarked.add(index);
+    }
+
+    void addDisarmed(int index) {
+        disarmed.add(index);
+    }
+
+    void addDetonated(int index) {
+        detonated.add(index);
+    }
+
+    void addHidden(int index) {
+        hidden.add(index);
+    }
+
+    void addRearmed(int index) {
+        rearmed.add(index);
+    }
+
+    // package-only, so that the board can tell which of its bitsets an action changed without copying the lists
+    boolean hasRevealed() {
+        return !revealed.isEmpty() || !hidden.isEmpty();
+    }
+
+    boolean hasMarksChanged() {
+        return !marked.isEmpty() || !unmarked.isEmpty();
+    }
+
+    boolean hasDisarmed() {
+        return !disarmed.isEmpty() || !rearmed.isEmpty();
+    }
+
+    // hiding a detonated mine also clears its detonation
+    boolean hasDetonated() {
+        return !detonated.isEmpty() || !hidden.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return revealed.isEmpty() && marked.isEmpty() && unmarked.isEmpty() && disarmed.isEmpty()
+                && hidden.isEmpty() && rearmed.isEmpty();
+    }
+
+    // indices of the cells that got revealed, in the order they were revealed
+    public int[] getRevealed() {
+        return revealed.toArray();
+    }
+
+    public int[] getMarked() {
+        return marked.toArray();
+    }
+
+    public int[] getUnmarked() {
+        return unmarked.toArray();
+    }
+
+    public int[] getDisarmed() {
+        return disarmed.toArray();
+    }
+
+    // indices of the revealed cells whose mine detonated
+    public int[] getDetonated() {
+        return detonated.toArray();
+    }
+
+    // indices of the revealed cells that got hidden again (along with their mine, if it had detonated)
+    public int[] getHidden() {
+        return hidden.toArray();
+    }
+
+    // indices of the disarmed mines that got armed again
+    public int[] getRearmed() {
+        return rearmed.toArray();
+    }
+}
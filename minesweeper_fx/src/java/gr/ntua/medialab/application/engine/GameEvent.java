@@ -0,0 +1,24 @@
+package gr.ntua.medialab.application.engine;
+
+// the events published by a board (see Board.events()), every action publishes its events as a single batch
+// cell indices are row * colCount + col, just like everywhere else in the engine
+
+public sealed interface GameEvent {
+    // cells revealed by a single action, in the order they were revealed
+    record CellsRevealed(int[] cells) implements GameEvent {}
+
+    record CellMarked(int cell, boolean marked) implements GameEvent {}
+
+    // mines disarmed by marking an active super mine
+    record MinesDisarmed(int[] cells) implements GameEvent {}
+
+    record MineDetonated(int cell) implements GameEvent {}
+
+    // cells hidden again, and mines armed again, by undoing actions (see Board.undo())
+    record CellsHidden(int[] cells) implements GameEvent {}
+
+    record MinesRearmed(int[] cells) implements GameEvent {}
+
+    // always the last event of its batch
+    record GameEnded(boolean playerWon) implements GameEvent {}
+}
@@ -0,0 +1,49 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.Arrays;
+
+// growable list of primitive ints, used instead of List<Integer> on the hot paths of the engine
+// (cell indices are stored without boxing, so large reveals do not create garbage for every cell)
+
+public final class IntList {
+    private static final int[] EMPTY = new int[0];
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8; // the largest array most JVMs can allocate
+
+    // state
+    private int[] values = EMPTY;
+    private int size = 0;
+
+    public void add(int value) {
+        if (size == values.length) {
+            if (size == MAX_SIZE) throw new IllegalStateException("The list is full");
+            values = Arrays.copyOf(values, (int) Math.min(MAX_SIZE, Math.max(16, 2L * size)));
+        }
+        values[size++] = value;
+    }
+
+    public int get(int position) {
+        if (position >= size) throw new IndexOutOfBoundsException(position);
+        return values[position];
+    }
+
+    public int removeLast() {
+        if (size == 0) throw new IndexOutOfBoundsException(0);
+        return values[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
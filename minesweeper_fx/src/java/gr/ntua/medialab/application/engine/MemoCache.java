@@ -0,0 +1,90 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// a bounded cache of computed results, shared by every thread, that keeps the results that are both used recently
+// and expensive to compute (GreedyDual eviction)
+// every entry has a priority of inflation + cost, refreshed whenever the entry is read, and the entries with the
+// lowest priority are evicted first, after which the inflation rises to the priority of the last evicted entry
+// so an entry that is not read for a while falls behind the newer ones, and the more it cost, the longer that takes
+// the size of the cache is bounded by the total weight of its entries (e.g. the size of their arrays)
+// lookups never block, once the cache is full an eighth of its weight is evicted at once, by a single thread
+
+public final class MemoCache<K, V> {
+    private static final class Entry<V> {
+        private final V value;
+        private final long cost;
+        private final long weight;
+        private volatile long priority;
+
+        private Entry(V value, long cost, long weight, long priority) {
+            this.value = value;
+            this.cost = cost;
+            this.weight = weight;
+            this.priority = priority;
+        }
+    }
+
+    private record Candidate<K, V>(K key, Entry<V> entry, long priority) {
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long maxWeight;
+    private final AtomicLong weight = new AtomicLong(0);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private volatile long inflation = 0;
+
+    public MemoCache(long maxWeight) {
+        if (maxWeight <= 0) throw new IllegalArgumentException("The maximum weight must be positive");
+        this.maxWeight = maxWeight;
+    }
+
+    // the value stored with the given key, or null if there is none
+    public V get(K key) {
+        var entry = entries.get(key);
+        if (entry == null) return null;
+        entry.priority = inflation + entry.cost;
+        return entry.value;
+    }
+
+    // the cost (e.g. in nanoseconds) is what it would take to compute the value again
+    // values heavier than the whole cache are not stored
+    public void put(K key, V value, long cost, long weight) {
+        if (weight > maxWeight) return;
+        var entry = new Entry<>(value, Math.max(0, cost), weight, inflation + Math.max(0, cost));
+        var previous = entries.put(key, entry);
+        long total = this.weight.addAndGet(weight - ((previous == null) ? 0 : previous.weight));
+        if (total > maxWeight) evict();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) return; // another thread is already evicting
+        try {
+            long target = maxWeight - maxWeight / 8;
+            if (weight.get() <= target) return;
+
+            // the priorities are copied, as other threads keep refreshing them while the candidates are sorted
+            var candidates = new ArrayList<Candidate<K, V>>(entries.size());
+            for (var entry : entries.entrySet())
+                candidates.add(new Candidate<>(entry.getKey(), entry.getValue(), entry.getValue().priority));
+            candidates.sort(Comparator.comparingLong(Candidate::priority));
+            for (var candidate : candidates) {
+                if (weight.get() <= target) break;
+                if (!entries.remove(candidate.key(), candidate.entry())) continue; // replaced in the meantime
+                weight.addAndGet(-candidate.entry().weight);
+                inflation = Math.max(inflation, candidate.priority());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.Random;
+
+// the rules of Board, for giant square boards whose cells cannot be indexed by int (beyond 2^31 cells)
+// cells are identified by a long index (row * colCount + col) and their state is packed in 4 bits per cell
+// outside of the Java heap (see PackedCells), so the size of the board adds nothing to the garbage collector's work
+// to keep every bit of memory for the cells, nothing is precomputed: the neighbors of a cell are derived from its
+// row and column, and its adjacent mines are counted when it is revealed
+// actions return how many cells they changed instead of a Delta, and no events or snapshots are published
+// the same seed places the same mines as on a square Board of the same size, so both play exactly the same games
+// an off-heap board is not thread-safe, it is meant to be used by a single thread at a time
+// close() releases its direct memory right away, a board that is closed must not be used anymore
+
+public class OffHeapBoard implements AutoCloseable {
+    // the 4 bits of a cell
+    private static final int MINE = 1;
+    private static final int REVEALED = 1 << 1;
+    private static final int MARKED = 1 << 2;
+    private static final int DISARMED = 1 << 3;
+
+    // attributes
+    private final int rowCount;
+    private final int colCount;
+    private final long cellCount;
+    private final long mineCount;
+    private final boolean hasSuperMine;
+    // how long (in successful primary clicks) the super mine retains its ability
+    private final int superMineLifetime;
+    private final long maxConcurrentMarkedCellsCount;
+    // if true, empty cells without adjacent mines revealed by marking a super mine also cause recursive reveal
+    private final boolean superMineActionRevealsEmptyCells;
+
+    // state
+    private final PackedCells cells;
+    private long superMineIndex = -1;
+    private boolean minesPlaced = false;
+    private int clicksCount = 0;
+    private long markedCellsCount = 0;
+    private long revealedEmptyCellsCount = 0;
+    private boolean mineDetonated = false;
+    private boolean timeExpired = false;
+    // the cells without adjacent mines whose neighbors have not been processed yet, reused by every reveal
+    // they are processed in the order they were reached (a ring buffer), so only the frontier of the reveal is
+    // pending at any time (a stack would hold a large part of the cells of a giant opening, on the heap)
+    private long[] pending = new long[64];
+    private int pendingFirst = 0;
+    private int pendingCount = 0;
+
+    // methods
+    public OffHeapBoard(int rowCount, int colCount, long mineCount, boolean hasSuperMine,
+                        int superMineLifetime, boolean superMineActionRevealsEmptyCells) {
+        if (rowCount <= 0 || colCount <= 0) throw new IllegalArgumentException("The board must have at least one cell");
+        if (mineCount < 0) throw new IllegalArgumentException("The mine count cannot be negative");
+
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        this.cellCount = (long) rowCount * colCount;
+        this.mineCount = mineCount;
+        this.hasSuperMine = hasSuperMine && mineCount > 0;
+        this.superMineLifetime = superMineLifetime;
+        this.maxConcurrentMarkedCellsCount = mineCount;
+        this.superMineActionRevealsEmptyCells = superMineActionRevealsEmptyCells;
+        this.cells = new PackedCells(cellCount);
+    }
+
+    // place mines randomly, while ensuring that the given cell and its neighbors remain safe
+    // this ensures that the first clicked cell is always empty and has no adjacent mines
+    public void placeMines(int firstClickRowIndex, int firstClickColIndex, Random rng) throws IllegalStateException {
+        if (minesPlaced) throw new IllegalStateException("The mines have already been placed");
+
+        long firstClickIndex = indexOf(firstClickRowIndex, firstClickColIndex);
+        int safeCount = 1 + neighborCount(firstClickIndex);
+        if (mineCount > cellCount - safeCount)
+            throw new IllegalStateException("There is not enough room for " + mineCount + " mines");
+
+        long minesRemaining = mineCount;
+        while (minesRemaining > 0) {
+            int row, col;
+            do {
+                row = rng.nextInt(rowCount);
+                col = rng.nextInt(colCount);
+            } while (Math.abs(row - firstClickRowIndex) <= 1 && Math.abs(col - firstClickColIndex) <= 1);
+
+            long index = (long) row * colCount + col;
+            if (cells.has(index, MINE)) continue;
+
+            cells.add(index, MINE);
+            if (hasSuperMine && minesRemaining == mineCount) superMineIndex = index;
+            --minesRemaining;
+        }
+        minesPlaced = true;
+    }
+
+    // reveal the given cell, and recursively every cell around it if it has no adjacent mines
+    // does nothing if the cell is revealed or marked, or if the game is over
+    // returns the number of cells revealed
+    public long primaryClick(int row, int col) throws IllegalStateException {
+        if (!minesPlaced) throw new IllegalStateException("The mines must be placed before the first primary click");
+
+        long index = indexOf(row, col);
+        if (isGameOver() || (cells.get(index) & (REVEALED | MARKED)) != 0) return 0;
+
+        // if cell was hidden and unmarked, click was successful
+        ++clicksCount;
+        long cellsRevealed = process(index, true);
+        return cellsRevealed + expandPending();
+    }
+
+    // mark the given cell, or unmark it if it is already marked
+    // marking the super mine while it is still active reveals its entire row and column
+    // does nothing if the cell is revealed, if no more marks can be added, or if the game is over
+    // returns the number of cells revealed (by the super mine) plus one, or 0 if nothing changed
+    public long secondaryClick(int row, int col) {
+        long index = indexOf(row, col);
+        if (!minesPlaced || isGameOver() || cells.has(index, REVEALED)) return 0;
+
+        if (cells.has(index, MARKED)) {
+            cells.remove(index, MARKED);
+            --markedCellsCount;
+            return 1;
+        }
+        if (markedCellsCount >= maxConcurrentMarkedCellsCount) return 0;
+
+        cells.add(index, MARKED);
+        ++markedCellsCount;
+        if (index != superMineIndex || clicksCount >= superMineLifetime) return 1;
+
+        // active super mine has been marked, disarm and process its entire row and column
+        for (int adjCol = 0; adjCol < colCount; ++adjCol) disarm((long) row * colCount + adjCol);
+        for (int adjRow = 0; adjRow < rowCount; ++adjRow) disarm((long) adjRow * colCount + col);
+
+        long cellsRevealed = 0;
+        for (int adjCol = 0; adjCol < colCount; ++adjCol)
+            cellsRevealed += process((long) row * colCount + adjCol, superMineActionRevealsEmptyCells);
+        for (int adjRow = 0; adjRow < rowCount; ++adjRow)
+            cellsRevealed += process((long) adjRow * colCount + col, superMineActionRevealsEmptyCells);
+        return 1 + cellsRevealed + expandPending();
+    }
+
+    // reveals all not-yet-revealed (and unmarked) mines, detonating the ones that have not been disarmed
+    // does nothing if the mines have not been placed yet, returns the number of mines revealed
+    public long revealAllMines() {
+        if (!minesPlaced) return 0;
+
+        long minesRevealed = 0;
+        for (long index = 0; index < cellCount; ++index) {
+            if ((cells.get(index) & (MINE | REVEALED | MARKED)) != MINE) continue;
+            reveal(index);
+            ++minesRevealed;
+        }
+        return minesRevealed;
+    }
+
+    // release the cells, instead of waiting for the garbage collector to find them unreachable
+    @Override
+    public void close() {
+        cells.free();
+    }
+
+    // the time available to the player ran out, so the game is over and considered lost
+    public void expireTime() {
+        timeExpired = true;
+    }
+
+    private void disarm(long index) {
+        int bits = cells.get(index);
+        if ((bits & MINE) != 0) cells.set(index, bits | DISARMED);
+    }
+
+    // unmarks and reveals the given cell if it is hidden, and leaves it pending if it has to be expanded
+    // returns the number of cells revealed (0 or 1)
+    private int process(long index, boolean expandEmptyCells) {
+        int bits = cells.get(index);
+        if ((bits & MARKED) != 0) {
+            cells.set(index, bits &= ~MARKED);
+            --markedCellsCount;
+        }
+        if ((bits & REVEALED) != 0) return 0;
+
+        reveal(index);
+        if (expandEmptyCells && (bits & MINE) == 0 && getAdjacentMinesCount(index) == 0) {
+            if (pendingCount == pending.length) growPending();
+            pending[(pendingFirst + pendingCount++) & (pending.length - 1)] = index;
+        }
+        return 1;
+    }
+
+    // processes the neighbors of every pending cell, until no cell is pending
+    // a cell is revealed as soon as it is reached, so it is never reached twice and only empty cells are pending
+    private long expandPending() {
+        long cellsRevealed = 0;
+        while (pendingCount > 0) {
+            long index = pending[pendingFirst];
+            pendingFirst = (pendingFirst + 1) & (pending.length - 1);
+            --pendingCount;
+            int row = rowOf(index), col = colOf(index);
+            for (int adjRow = Math.max(0, row - 1); adjRow <= Math.min(rowCount - 1, row + 1); ++adjRow)
+                for (int adjCol = Math.max(0, col - 1); adjCol <= Math.min(colCount - 1, col + 1); ++adjCol)
+                    cellsRevealed += process((long) adjRow * colCount + adjCol, true);
+        }
+        return cellsRevealed;
+    }
+
+    // doubles the ring buffer, moving its cells to the start of the new one
+    private void growPending() {
+        var grown = new long[pending.length * 2];
+        int firstPart = pending.length - pendingFirst;
+        System.arraycopy(pending, pendingFirst, grown, 0, firstPart);
+        System.arraycopy(pending, 0, grown, firstPart, pendingFirst);
+        pending = grown;
+        pendingFirst = 0;
+    }
+
+    private void reveal(long index) {
+        int bits = cells.get(index);
+        cells.set(index, bits | REVEALED);
+        if ((bits & MINE) == 0)
+            ++revealedEmptyCellsCount;
+        else if ((bits & DISARMED) == 0)
+            mineDetonated = true;
+    }
+
+    // the number of cells around the given one, whose neighbors are at most one row and one column away from it
+    private int neighborCount(long index) {
+        int row = rowOf(index), col = colOf(index);
+        int rows = Math.min(rowCount - 1, row + 1) - Math.max(0, row - 1) + 1;
+        int cols = Math.min(colCount - 1, col + 1) - Math.max(0, col - 1) + 1;
+        return rows * cols - 1;
+    }
+
+    public long indexOf(int row, int col) {
+        if (row < 0 || row >= rowCount || col < 0 || col >= colCount)
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + col + ") is outside of the board");
+        return (long) row * colCount + col;
+    }
+
+    public int rowOf(long index) {
+        return (int) (index / colCount);
+    }
+
+    public int colOf(long index) {
+        return (int) (index % colCount);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    public long getMineCount() {
+        return mineCount;
+    }
+
+    public boolean getHasSuperMine() {
+        return hasSuperMine;
+    }
+
+    public int getSuperMineLifetime() {
+        return superMineLifetime;
+    }
+
+    public long getMaxConcurrentMarkedCellsCount() {
+        return maxConcurrentMarkedCellsCount;
+    }
+
+    public boolean getSuperMineActionRevealsEmptyCells() {
+        return superMineActionRevealsEmptyCells;
+    }
+
+    public boolean getMinesPlaced() {
+        return minesPlaced;
+    }
+
+    public int getClicksCount() {
+        return clicksCount;
+    }
+
+    public long getMarkedCellsCount() {
+        return markedCellsCount;
+    }
+
+    public long getRevealedEmptyCellsCount() {
+        return revealedEmptyCellsCount;
+    }
+
+    // the following getters expose the hidden state of the board, players should only look at the visible state
+    public boolean hasMine(long index) {
+        return cells.has(index, MINE);
+    }
+
+    public boolean hasSuperMine(long index) {
+        return index == superMineIndex;
+    }
+
+    public long getSuperMineIndex() {
+        return superMineIndex;
+    }
+
+    // the adjacent mines count of a cell is only visible to the player after the cell has been revealed
+    public int getAdjacentMinesCount(long index) {
+        int row = rowOf(index), col = colOf(index), count = 0;
+        for (int adjRow = Math.max(0, row - 1); adjRow <= Math.min(rowCount - 1, row + 1); ++adjRow)
+            for (int adjCol = Math.max(0, col - 1); adjCol <= Math.min(colCount - 1, col + 1); ++adjCol)
+                if ((adjRow != row || adjCol != col) && cells.has((long) adjRow * colCount + adjCol, MINE)) ++count;
+        return count;
+    }
+
+    public boolean isRevealed(long index) {
+        return cells.has(index, REVEALED);
+    }
+
+    public boolean isMarked(long index) {
+        return cells.has(index, MARKED);
+    }
+
+    public boolean isDisarmed(long index) {
+        return cells.has(index, DISARMED);
+    }
+
+    public boolean isDetonated(long index) {
+        return (cells.get(index) & (MINE | REVEALED | DISARMED)) == (MINE | REVEALED);
+    }
+
+    public boolean hasMineDetonated() {
+        return mineDetonated;
+    }
+
+    public boolean allEmptyCellsRevealed() {
+        return minesPlaced && revealedEmptyCellsCount == cellCount - mineCount;
+    }
+
+    public boolean hasTimeExpired() {
+        return timeExpired;
+    }
+
+    public boolean isGameOver() {
+        return hasMineDetonated() || allEmptyCellsRevealed() || timeExpired;
+    }
+
+    public boolean playerWon() {
+        return !hasMineDetonated() && allEmptyCellsRevealed() && !timeExpired;
+    }
+}
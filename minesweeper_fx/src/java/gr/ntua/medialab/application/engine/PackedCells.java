@@ -0,0 +1,90 @@
+package gr.ntua.medialab.application.engine;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+
+// 4 bits of state per cell, stored outside of the Java heap and indexed by long, for boards beyond 2^31 cells
+// the cells are packed two per byte into direct buffers of up to 1 GiB each (a single buffer is indexed by int),
+// so the garbage collector never has to scan or move them, whatever the size of the board
+// the buffers are zeroed when allocated, and released by free() (or, failing that, once the cells are no longer
+// reachable and the garbage collector runs, which may take long with a small heap)
+// direct memory is limited by -XX:MaxDirectMemorySize (by default, the maximum heap size)
+
+final class PackedCells {
+    private static final int CHUNK_SHIFT = 30; // in bytes
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final ByteBuffer[] FREED = new ByteBuffer[0];
+    // sun.misc.Unsafe.invokeCleaner(ByteBuffer), the only way to release a direct buffer right away
+    // looked up at runtime, null if this JVM does not have it
+    private static final MethodHandle invokeCleaner = invokeCleaner();
+
+    private ByteBuffer[] chunks;
+
+    PackedCells(long cellCount) {
+        long byteCount = (cellCount + 1) / 2;
+        chunks = new ByteBuffer[(int) ((byteCount + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+        for (int chunk = 0; chunk < chunks.length; ++chunk) {
+            long remaining = byteCount - ((long) chunk << CHUNK_SHIFT);
+            chunks[chunk] = ByteBuffer.allocateDirect((int) Math.min(CHUNK_SIZE, remaining));
+        }
+    }
+
+    // release the memory of the cells right away, the cells must not be used afterwards
+    void free() {
+        var freed = chunks;
+        chunks = FREED;
+        if (invokeCleaner == null) return;
+        for (var chunk : freed) {
+            try {
+                invokeCleaner.invokeExact(chunk);
+            } catch (Throwable e) {
+                return; // the remaining chunks are released by the garbage collector
+            }
+        }
+    }
+
+    private static MethodHandle invokeCleaner() {
+        try {
+            var unsafeClass = Class.forName("sun.misc.Unsafe");
+            var field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner",
+                            MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // the 4 bits of the given cell
+    int get(long index) {
+        long byteIndex = index >>> 1;
+        int value = chunks[(int) (byteIndex >>> CHUNK_SHIFT)].get((int) (byteIndex & CHUNK_MASK));
+        return ((index & 1) == 0) ? value & 0xF : (value >>> 4) & 0xF;
+    }
+
+    void set(long index, int bits) {
+        long byteIndex = index >>> 1;
+        var chunk = chunks[(int) (byteIndex >>> CHUNK_SHIFT)];
+        int position = (int) (byteIndex & CHUNK_MASK);
+        int value = chunk.get(position);
+        value = ((index & 1) == 0) ? (value & 0xF0) | (bits & 0xF) : (value & 0x0F) | ((bits & 0xF) << 4);
+        chunk.put(position, (byte) value);
+    }
+
+    boolean has(long index, int flag) {
+        return (get(index) & flag) != 0;
+    }
+
+    void add(long index, int flag) {
+        set(index, get(index) | flag);
+    }
+
+    void remove(long index, int flag) {
+        set(index, get(index) & ~flag);
+    }
+}
@@ -0,0 +1,139 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+// the recursive reveal of Board, grown in parallel for openings that cover a large part of a huge board
+// the board is split into square tiles, and every tile grows the region that lies inside it on the common pool,
+// collecting the cells it reaches beyond its borders instead of following them
+// once every tile of a round has finished, the collected cells are handed to the tiles they belong to (the seams
+// are merged), and the rounds go on until no tile has any more cells to grow from
+// the result is exactly the set of cells the serial reveal would reach from the same cells: the seeds, plus every
+// unrevealed neighbor of a reached cell that is neither a mine nor adjacent to one
+// nothing is changed while growing (the bitsets of the board are only read), the board reveals the returned cells
+
+final class ParallelReveal {
+    private static final int TILE_SIZE = 128; // in cells, along each side
+
+    // board
+    private final int colCount;
+    private final int[] neighborOffsets;
+    private final int[] neighbors;
+    private final BitSet mines;
+    private final BitSet revealed;
+    private final byte[] adjacentMinesCounts;
+
+    // tiles, created the first time a cell reaches them
+    private final int tileColCount;
+    private final Tile[] tiles;
+
+    private ParallelReveal(int rowCount, int colCount, int[] neighborOffsets, int[] neighbors,
+                           BitSet mines, BitSet revealed, byte[] adjacentMinesCounts) {
+        this.colCount = colCount;
+        this.neighborOffsets = neighborOffsets;
+        this.neighbors = neighbors;
+        this.mines = mines;
+        this.revealed = revealed;
+        this.adjacentMinesCounts = adjacentMinesCounts;
+        this.tileColCount = (colCount + TILE_SIZE - 1) / TILE_SIZE;
+        this.tiles = new Tile[((rowCount + TILE_SIZE - 1) / TILE_SIZE) * tileColCount];
+    }
+
+    // the cells reached from the given seeds (starting at the given position), in ascending order
+    // the seeds can contain cells that are already revealed and duplicates, both are skipped
+    static int[] grow(int rowCount, int colCount, int[] neighborOffsets, int[] neighbors, BitSet mines,
+                      BitSet revealed, byte[] adjacentMinesCounts, IntList seeds, int from) {
+        var reveal = new ParallelReveal(rowCount, colCount, neighborOffsets, neighbors,
+                mines, revealed, adjacentMinesCounts);
+        var active = new ArrayList<Tile>();
+        for (int i = from; i < seeds.size(); ++i)
+            reveal.route(seeds.get(i), active);
+
+        while (!active.isEmpty()) {
+            var tasks = new ArrayList<ForkJoinTask<?>>(active.size());
+            for (var tile : active) tasks.add(ForkJoinTask.adapt(tile::grow));
+            ForkJoinTask.invokeAll(tasks); // forked to the common pool, the calling thread grows tiles as well
+
+            // merge the seams: the cells that left a tile become the seeds of the tiles they belong to
+            var finished = active;
+            active = new ArrayList<>();
+            for (var tile : finished) {
+                for (int i = 0; i < tile.outgoing.size(); ++i)
+                    reveal.route(tile.outgoing.get(i), active);
+                tile.outgoing.clear();
+            }
+        }
+        return reveal.collect();
+    }
+
+    // adds the given cell to the seeds of its tile, activating the tile if it has no other seeds yet
+    private void route(int index, List<Tile> active) {
+        int row = index / colCount, col = index % colCount;
+        int tileIndex = (row / TILE_SIZE) * tileColCount + col / TILE_SIZE;
+        var tile = tiles[tileIndex];
+        if (tile == null)
+            tile = tiles[tileIndex] = new Tile((row / TILE_SIZE) * TILE_SIZE, (col / TILE_SIZE) * TILE_SIZE);
+        if (tile.seeds.isEmpty()) active.add(tile);
+        tile.seeds.add(index);
+    }
+
+    // every reached cell of every tile, in ascending order
+    private int[] collect() {
+        int size = 0;
+        for (var tile : tiles)
+            if (tile != null) size += tile.reached.size();
+
+        var cells = new int[size];
+        int position = 0;
+        for (var tile : tiles) {
+            if (tile == null) continue;
+            for (int i = 0; i < tile.reached.size(); ++i)
+                cells[position++] = tile.reached.get(i);
+        }
+        Arrays.parallelSort(cells);
+        return cells;
+    }
+
+    // a square part of the board, grown by a single thread at a time
+    private final class Tile {
+        private final int firstRow;
+        private final int firstCol;
+        private final long[] visited = new long[TILE_SIZE * TILE_SIZE / Long.SIZE]; // by position inside the tile
+        private final IntList seeds = new IntList();
+        private final IntList outgoing = new IntList(); // neighbors outside of the tile, for the next round
+        private final IntList reached = new IntList(); // the unrevealed cells that were reached, over all rounds
+
+        private Tile(int firstRow, int firstCol) {
+            this.firstRow = firstRow;
+            this.firstCol = firstCol;
+        }
+
+        private void grow() {
+            var stack = seeds;
+            while (!stack.isEmpty()) {
+                int index = stack.removeLast();
+                int row = index / colCount, col = index % colCount;
+                int position = (row - firstRow) * TILE_SIZE + (col - firstCol);
+                long bit = 1L << position;
+                if ((visited[position >>> 6] & bit) != 0) continue;
+                visited[position >>> 6] |= bit;
+                if (revealed.get(index)) continue;
+
+                reached.add(index);
+                if (mines.get(index) || adjacentMinesCounts[index] != 0) continue;
+
+                for (int i = neighborOffsets[index]; i < neighborOffsets[index + 1]; ++i) {
+                    int adjIndex = neighbors[i];
+                    if (revealed.get(adjIndex)) continue;
+                    int adjRow = adjIndex / colCount, adjCol = adjIndex % colCount;
+                    boolean inside = adjRow >= firstRow && adjRow < firstRow + TILE_SIZE
+                            && adjCol >= firstCol && adjCol < firstCol + TILE_SIZE;
+                    (inside ? stack : outgoing).add(adjIndex);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package gr.ntua.medialab.application.engine;
+
+import gr.ntua.medialab.application.diagnostics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// computes the probability of every hidden cell having a mine, using only the visible state of a board
+// the hidden cells next to revealed numbers (the frontier) are split into independent components, the cells of
+// each component are only constrained by each other, so each component's solutions are enumerated separately,
+// and the components are then combined (together with the cells no number touches) based on the total mine count
+// the solutions of a component only depend on its pattern (which of its cells every number touches, and how many
+// mines it is missing), not on where it is, so they are kept by pattern: the solutions of the previous analysis are
+// kept by the analyser, so a click only re-enumerates the components it changed, and the exact ones are also kept in
+// a bounded memo shared by every analyser, so patterns seen before in any other game are reused as well
+// an analyser is not thread-safe, it is meant to be used by a single (background) thread
+
+public class ProbabilityAnalyser {
+    // components with more cells than this are not enumerated, their cells get an estimate instead
+    private static final int MAX_COMPONENT_SIZE = 200;
+    // how many enumeration steps happen between two checks of the deadline
+    private static final int DEADLINE_CHECK_INTERVAL = 4096;
+    // the total size of the solutions kept by the memo (the cell counts of every component, in doubles), small
+    // enough for the memo to stay out of the old generation's way
+    private static final long MEMO_WEIGHT = 1 << 18;
+
+    // probabilities are NaN for revealed cells, and exact unless the analysis ran out of time (complete is false)
+    // the components counts show how much of the previous analysis was reused
+    public record Result(long version, float[] probabilities, int componentsCount, int componentsEnumerated,
+                         boolean complete) {
+    }
+
+    // the pattern of a component, encoded in a single array so that it can be used as a key: [cell count, then for
+    // every constraint: mine count, cell count, cells...], where cells are numbered by their order in the component
+    private static final class ComponentKey {
+        private final int[] encoding;
+        private final int hash;
+
+        private ComponentKey(int[] encoding) {
+            this.encoding = encoding;
+            this.hash = Arrays.hashCode(encoding);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ComponentKey key && hash == key.hash && Arrays.equals(encoding, key.encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // the solutions of a component: for every possible number of mines k, how many solutions (relative to the
+    // most common k) have k mines and in how many of them each cell has a mine
+    // exact is false if the component was not enumerated, in which case only the estimates are available
+    // the memo keeps them with the cells numbered by their order in the component, instead of their indices
+    private record Solutions(int[] cells, double[] counts, double[][] cellCounts, float[] estimates, boolean exact) {
+    }
+
+    private record Constraint(int[] cells, int mines) {
+    }
+
+    // the cells of a component (in increasing order) and its constraints
+    private record Component(ComponentKey pattern, int[] cells, List<Constraint> constraints) {
+    }
+
+    private static final MemoCache<ComponentKey, Solutions> memo = new MemoCache<>(MEMO_WEIGHT);
+
+    // state
+    private Map<ComponentKey, Solutions> solutionsCache = new HashMap<>();
+    private long deadline;
+    private long steps;
+    private boolean outOfTime;
+
+    // analyse the given snapshot, stopping early (with estimates for the remaining components) if the deadline
+    // (see System.nanoTime()) passes or the calling thread gets interrupted
+    public Result analyse(BoardSnapshot snapshot, long deadline) {
+        this.deadline = deadline;
+        this.steps = 0;
+        this.outOfTime = false;
+
+        int cellCount = snapshot.getCellCount();
+        var probabilities = new float[cellCount];
+        int hiddenCount = 0, revealedMines = 0;
+        for (int cell = 0; cell < cellCount; ++cell) {
+            if (!snapshot.isRevealed(cell)) ++hiddenCount;
+            else {
+                probabilities[cell] = Float.NaN;
+                if (snapshot.isDisarmed(cell) || snapshot.isDetonated(cell)) ++revealedMines;
+            }
+        }
+        int remainingMines = snapshot.getMineCount() - revealedMines;
+        if (!snapshot.getMinesPlaced() || hiddenCount == 0) {
+            fillHidden(snapshot, probabilities, hiddenCount == 0 ? 0 : (float) remainingMines / hiddenCount);
+            return new Result(snapshot.getVersion(), probabilities, 0, 0, true);
+        }
+
+        // find the components, and reuse the solutions of the patterns that have been enumerated before
+        var components = components(snapshot);
+        var previousCache = solutionsCache;
+        solutionsCache = new HashMap<>();
+        var solutions = new ArrayList<Solutions>();
+        int enumerated = 0;
+        for (var component : components) {
+            var pattern = component.pattern();
+            var cached = previousCache.get(pattern);
+            if (cached == null || (!cached.exact() && !outOfTime)) {
+                cached = memo.get(pattern);
+                if (cached != null) Metrics.ANALYSER_MEMO_HITS.increment(1);
+                else {
+                    Metrics.ANALYSER_MEMO_MISSES.increment(1);
+                    long start = System.nanoTime();
+                    cached = enumerate(component.cells(), component.constraints());
+                    ++enumerated;
+                    // only exact solutions are shared, estimates are cheap and can be improved on the next analysis
+                    if (cached.exact())
+                        memo.put(pattern, cached, System.nanoTime() - start, weight(pattern, cached));
+                }
+            }
+            solutionsCache.put(pattern, cached);
+            solutions.add(new Solutions(component.cells(), cached.counts(), cached.cellCounts(), cached.estimates(),
+                    cached.exact()));
+        }
+
+        // the cells that are hidden, are not known mines and do not touch any number
+        int frontierCount = 0;
+        for (var solution : solutions) frontierCount += solution.cells().length;
+        int unconstrainedCount = hiddenCount - frontierCount;
+
+        combine(solutions, unconstrainedCount, remainingMines, probabilities, snapshot);
+        return new Result(snapshot.getVersion(), probabilities, solutions.size(), enumerated, !outOfTime);
+    }
+
+    // the size of a memo entry, in ints or doubles
+    private static long weight(ComponentKey pattern, Solutions solutions) {
+        int n = solutions.estimates().length;
+        return pattern.encoding.length + (long) (n + 1) * (n + 2);
+    }
+
+    // group the constraints of every revealed number by the frontier cells they share (union-find over the cells)
+    private List<Component> components(BoardSnapshot snapshot) {
+        int cellCount = snapshot.getCellCount();
+        var parents = new int[cellCount];
+        Arrays.fill(parents, -1);
+        var constraints = new ArrayList<Constraint>();
+
+        for (int cell = snapshot.nextRevealed(0); cell >= 0; cell = snapshot.nextRevealed(cell + 1)) {
+            if (snapshot.isDisarmed(cell) || snapshot.isDetonated(cell)) continue;
+
+            var topology = snapshot.getTopology();
+            int mines = snapshot.getAdjacentMinesCount(cell);
+            int[] hidden = new int[topology.degree(cell)];
+            int hiddenCount = 0;
+            for (int i = topology.neighborsStart(cell); i < topology.neighborsEnd(cell); ++i) {
+                int adjCell = topology.neighbor(i);
+                if (!snapshot.isRevealed(adjCell)) hidden[hiddenCount++] = adjCell;
+                else if (snapshot.isDisarmed(adjCell) || snapshot.isDetonated(adjCell)) --mines;
+            }
+            if (hiddenCount == 0) continue;
+
+            var constraint = new Constraint(Arrays.copyOf(hidden, hiddenCount), mines);
+            constraints.add(constraint);
+            for (int hiddenCell : constraint.cells()) {
+                if (parents[hiddenCell] == -1) parents[hiddenCell] = hiddenCell;
+                union(parents, constraint.cells()[0], hiddenCell);
+            }
+        }
+
+        // collect the constraints and the cells of every component (both end up sorted)
+        var constraintsOfRoot = new HashMap<Integer, List<Constraint>>();
+        for (var constraint : constraints)
+            constraintsOfRoot.computeIfAbsent(find(parents, constraint.cells()[0]), root -> new ArrayList<>())
+                    .add(constraint);
+        // as well as the position of every cell within its component
+        var cellsOfRoot = new HashMap<Integer, IntList>();
+        var positions = new int[cellCount];
+        for (int cell = 0; cell < cellCount; ++cell) {
+            if (parents[cell] == -1) continue;
+            var cells = cellsOfRoot.computeIfAbsent(find(parents, cell), root -> new IntList());
+            positions[cell] = cells.size();
+            cells.add(cell);
+        }
+
+        var components = new ArrayList<Component>();
+        for (var entry : constraintsOfRoot.entrySet()) {
+            var cells = cellsOfRoot.get(entry.getKey()).toArray();
+            var encoding = new IntList();
+            encoding.add(cells.length);
+            for (var constraint : entry.getValue()) {
+                encoding.add(constraint.mines());
+                encoding.add(constraint.cells().length);
+                for (int cell : constraint.cells()) encoding.add(positions[cell]);
+            }
+            components.add(new Component(new ComponentKey(encoding.toArray()), cells, entry.getValue()));
+        }
+        return components;
+    }
+
+    private static int find(int[] parents, int cell) {
+        while (parents[cell] != cell) {
+            parents[cell] = parents[parents[cell]]; // path halving
+            cell = parents[cell];
+        }
+        return cell;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a), rootB = find(parents, b);
+        if (rootA != rootB) parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
+
+    // enumerate every assignment of mines to the cells of a component that satisfies all of its constraints
+    // the solutions only depend on the pattern of the component, so they are returned without its cells
+    private Solutions enumerate(int[] cells, List<Constraint> constraints) {
+        int n = cells.length;
+
+        // the estimate of a cell is the highest density among the numbers that touch it
+        var estimates = new float[n];
+        for (var constraint : constraints)
+            for (int cell : constraint.cells()) {
+                int i = Arrays.binarySearch(cells, cell);
+                estimates[i] = Math.max(estimates[i], (float) constraint.mines() / constraint.cells().length);
+            }
+        if (n > MAX_COMPONENT_SIZE || outOfTime) return new Solutions(null, null, null, estimates, false);
+
+        // cells touched by exactly the same numbers are interchangeable, so they are grouped together and only
+        // the number of mines of every group is enumerated (each count standing for C(group size, mines) solutions)
+        var constraintsOfCell = new IntList[n];
+        for (int i = 0; i < n; ++i) constraintsOfCell[i] = new IntList();
+        for (int c = 0; c < constraints.size(); ++c)
+            for (int cell : constraints.get(c).cells())
+                constraintsOfCell[Arrays.binarySearch(cells, cell)].add(c);
+        var groupOfSignature = new HashMap<ComponentKey, Integer>();
+        var groupOfCell = new int[n];
+        var groupMembers = new ArrayList<IntList>();
+        for (int i = 0; i < n; ++i) {
+            var signature = new ComponentKey(constraintsOfCell[i].toArray());
+            int group = groupOfSignature.computeIfAbsent(signature, key -> {
+                groupMembers.add(new IntList());
+                return groupMembers.size() - 1;
+            });
+            groupOfCell[i] = group;
+            groupMembers.get(group).add(i);
+        }
+
+        // visit the groups in breadth-first order, so that every number gets all of its groups assigned early on
+        int groupCount = groupMembers.size();
+        var groupsOfConstraint = new ArrayList<IntList>();
+        for (int c = 0; c < constraints.size(); ++c) groupsOfConstraint.add(new IntList());
+        for (int g = 0; g < groupCount; ++g)
+            for (int j = 0; j < constraintsOfCell[groupMembers.get(g).get(0)].size(); ++j)
+                groupsOfConstraint.get(constraintsOfCell[groupMembers.get(g).get(0)].get(j)).add(g);
+        var order = new IntList();
+        var visited = new boolean[groupCount];
+        visited[0] = true;
+        order.add(0);
+        for (int next = 0; next < order.size(); ++next) {
+            var groupConstraints = constraintsOfCell[groupMembers.get(order.get(next)).get(0)];
+            for (int j = 0; j < groupConstraints.size(); ++j) {
+                var neighbors = groupsOfConstraint.get(groupConstraints.get(j));
+                for (int k = 0; k < neighbors.size(); ++k) {
+                    if (visited[neighbors.get(k)]) continue;
+                    visited[neighbors.get(k)] = true;
+                    order.add(neighbors.get(k));
+                }
+            }
+        }
+
+        var enumeration = new Enumeration(order.toArray(), groupMembers, constraintsOfCell, constraints, n);
+        if (!enumeration.run(0, 1) || outOfTime) return new Solutions(null, null, null, estimates, false);
+
+        // spread the counts of every group evenly over its cells, and scale them so that they stay within the range
+        // of doubles when combined
+        double max = 0;
+        for (double count : enumeration.counts) max = Math.max(max, count);
+        var cellCounts = new double[n + 1][n];
+        for (int k = 0; k <= n; ++k) {
+            enumeration.counts[k] /= max;
+            for (int i = 0; i < n; ++i) {
+                int group = groupOfCell[i];
+                cellCounts[k][i] = enumeration.groupMines[k][group] / groupMembers.get(group).size() / max;
+            }
+        }
+        return new Solutions(null, enumeration.counts, cellCounts, estimates, true);
+    }
+
+    // a backtracking search over the number of mines of every group of a component
+    private final class Enumeration {
+        private final int[] order; // of the groups
+        private final int[] groupSizes;
+        private final int[][] groupConstraints;
+        private final int[] targets; // per constraint
+        private final int[] assignedMines; // per constraint
+        private final int[] unassigned; // cells, per constraint
+        private final int[] minesOfGroup;
+        private int mineCount = 0;
+        private final double[] counts; // per number of mines
+        private final double[][] groupMines; // per number of mines and group, the expected mines summed over solutions
+
+        private Enumeration(int[] order, List<IntList> groupMembers, IntList[] constraintsOfCell,
+                            List<Constraint> constraints, int n) {
+            this.order = order;
+            int groupCount = groupMembers.size();
+            this.groupSizes = new int[groupCount];
+            this.groupConstraints = new int[groupCount][];
+            for (int g = 0; g < groupCount; ++g) {
+                groupSizes[g] = groupMembers.get(g).size();
+                groupConstraints[g] = constraintsOfCell[groupMembers.get(g).get(0)].toArray();
+            }
+            this.targets = new int[constraints.size()];
+            this.assignedMines = new int[constraints.size()];
+            this.unassigned = new int[constraints.size()];
+            for (int c = 0; c < constraints.size(); ++c) {
+                targets[c] = constraints.get(c).mines();
+                unassigned[c] = constraints.get(c).cells().length;
+            }
+            this.minesOfGroup = new int[groupCount];
+            this.counts = new double[n + 1];
+            this.groupMines = new double[n + 1][groupCount];
+        }
+
+        // returns false if the search ran out of time
+        private boolean run(int next, double ways) {
+            if (++steps % DEADLINE_CHECK_INTERVAL == 0 &&
+                    (System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted())) {
+                outOfTime = true;
+                return false;
+            }
+            if (next == order.length) {
+                counts[mineCount] += ways;
+                for (int g = 0; g < minesOfGroup.length; ++g) groupMines[mineCount][g] += ways * minesOfGroup[g];
+                return true;
+            }
+
+            int group = order[next];
+            int size = groupSizes[group];
+            for (int mines = 0; mines <= size; ++mines) {
+                boolean valid = assign(group, mines);
+                boolean inTime = !valid || run(next + 1, ways * binomial(size, mines));
+                unassign(group, mines);
+                if (!inTime) return false;
+            }
+            return true;
+        }
+
+        // returns false if the assignment breaks a constraint (it must be undone with unassign() either way)
+        private boolean assign(int group, int mines) {
+            minesOfGroup[group] = mines;
+            mineCount += mines;
+            boolean valid = true;
+            for (int c : groupConstraints[group]) {
+                unassigned[c] -= groupSizes[group];
+                assignedMines[c] += mines;
+                if (assignedMines[c] > targets[c] || assignedMines[c] + unassigned[c] < targets[c]) valid = false;
+            }
+            return valid;
+        }
+
+        private void unassign(int group, int mines) {
+            minesOfGroup[group] = 0;
+            mineCount -= mines;
+            for (int c : groupConstraints[group]) {
+                unassigned[c] += groupSizes[group];
+                assignedMines[c] -= mines;
+            }
+        }
+    }
+
+    private static double binomial(int n, int k) {
+        double result = 1;
+        for (int i = 1; i <= k; ++i) result = result * (n - k + i) / i;
+        return result;
+    }
+
+    // weigh the solutions of every component by the number of ways the remaining mines fit in the unconstrained
+    // cells, then average them into the probabilities of the cells
+    private static void combine(List<Solutions> solutions, int unconstrainedCount, int remainingMines,
+                                float[] probabilities, BoardSnapshot snapshot) {
+        // components that were not enumerated use their estimates, and take up their expected number of mines
+        var exact = new ArrayList<Solutions>();
+        double estimatedMines = 0;
+        for (var solution : solutions) {
+            if (solution.exact()) {
+                exact.add(solution);
+                continue;
+            }
+            for (int i = 0; i < solution.cells().length; ++i) {
+                probabilities[solution.cells()[i]] = solution.estimates()[i];
+                estimatedMines += solution.estimates()[i];
+            }
+        }
+        int mines = remainingMines - (int) Math.round(estimatedMines);
+
+        // the distribution of the number of mines over all the exact components, and over all but one of them
+        int m = exact.size();
+        var prefixes = new double[m + 1][];
+        var suffixes = new double[m + 1][];
+        prefixes[0] = new double[]{1};
+        suffixes[m] = new double[]{1};
+        for (int j = 0; j < m; ++j) prefixes[j + 1] = convolve(prefixes[j], exact.get(j).counts());
+        for (int j = m - 1; j >= 0; --j) suffixes[j] = convolve(exact.get(j).counts(), suffixes[j + 1]);
+        var all = prefixes[m];
+
+        // the weight of every total number of mines in the frontier, relative to the largest one
+        var logFactorials = new double[unconstrainedCount + 1];
+        for (int i = 1; i <= unconstrainedCount; ++i) logFactorials[i] = logFactorials[i - 1] + Math.log(i);
+        var weights = new double[all.length];
+        double maxLogWeight = Double.NEGATIVE_INFINITY;
+        for (int total = 0; total < all.length; ++total) {
+            int rest = mines - total;
+            if (rest < 0 || rest > unconstrainedCount) continue;
+            maxLogWeight = Math.max(maxLogWeight,
+                    logFactorials[unconstrainedCount] - logFactorials[rest] - logFactorials[unconstrainedCount - rest]);
+        }
+        double normalizer = 0, unconstrainedMines = 0;
+        for (int total = 0; total < all.length; ++total) {
+            int rest = mines - total;
+            if (rest < 0 || rest > unconstrainedCount) continue;
+            weights[total] = Math.exp(logFactorials[unconstrainedCount] - logFactorials[rest] -
+                    logFactorials[unconstrainedCount - rest] - maxLogWeight);
+            normalizer += all[total] * weights[total];
+            unconstrainedMines += all[total] * weights[total] * rest;
+        }
+
+        // no total fits (only possible if estimates were used), so fall back to the density of the hidden cells
+        if (normalizer == 0) {
+            int hiddenCount = unconstrainedCount;
+            for (var solution : exact) hiddenCount += solution.cells().length;
+            float density = (hiddenCount == 0) ? 0 : Math.min(1, Math.max(0, (float) mines / hiddenCount));
+            for (var solution : exact) for (int cell : solution.cells()) probabilities[cell] = density;
+            fillUnconstrained(snapshot, probabilities, density);
+            return;
+        }
+
+        for (int j = 0; j < m; ++j) {
+            var solution = exact.get(j);
+            var others = convolve(prefixes[j], suffixes[j + 1]);
+            var cells = solution.cells();
+            var cellProbabilities = new double[cells.length];
+            for (int k = 0; k < solution.counts().length; ++k) {
+                if (solution.counts()[k] == 0) continue;
+                // the weight of this component having k mines, over every number of mines of the others
+                double weight = 0;
+                for (int o = 0; o < others.length && k + o < weights.length; ++o) weight += others[o] * weights[k + o];
+                if (weight == 0) continue;
+                for (int i = 0; i < cells.length; ++i) cellProbabilities[i] += solution.cellCounts()[k][i] * weight;
+            }
+            for (int i = 0; i < cells.length; ++i) probabilities[cells[i]] = (float) (cellProbabilities[i] / normalizer);
+        }
+
+        float density = (unconstrainedCount == 0) ? 0 : (float) (unconstrainedMines / normalizer / unconstrainedCount);
+        fillUnconstrained(snapshot, probabilities, density);
+    }
+
+    private static double[] convolve(double[] a, double[] b) {
+        var result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; ++i) {
+            if (a[i] == 0) continue;
+            for (int j = 0; j < b.length; ++j) result[i + j] += a[i] * b[j];
+        }
+        return result;
+    }
+
+    private static void fillHidden(BoardSnapshot snapshot, float[] probabilities, float probability) {
+        for (int cell = snapshot.nextHidden(0); cell >= 0; cell = snapshot.nextHidden(cell + 1))
+            probabilities[cell] = probability;
+    }
+
+    // the hidden cells that are not next to any revealed number
+    private static void fillUnconstrained(BoardSnapshot snapshot, float[] probabilities, float probability) {
+        for (int cell = snapshot.nextHidden(0); cell >= 0; cell = snapshot.nextHidden(cell + 1))
+            if (!touchesNumber(snapshot, cell)) probabilities[cell] = probability;
+    }
+
+    private static boolean touchesNumber(BoardSnapshot snapshot, int cell) {
+        var topology = snapshot.getTopology();
+        for (int i = topology.neighborsStart(cell); i < topology.neighborsEnd(cell); ++i) {
+            int adjCell = topology.neighbor(i);
+            if (snapshot.isRevealed(adjCell) && !snapshot.isDisarmed(adjCell) && !snapshot.isDetonated(adjCell))
+                return true;
+        }
+        return false;
+    }
+}
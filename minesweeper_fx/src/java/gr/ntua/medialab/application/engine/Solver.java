@@ -0,0 +1,183 @@
+package gr.ntua.medialab.application.engine;
+
+import gr.ntua.medialab.application.diagnostics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// finds the hidden cells that are certainly safe and the ones that certainly have a mine, using only the visible
+// state of a board (the numbers of the revealed cells, and the revealed mines), never the marks of the player
+// two rules are applied until nothing new is found:
+//   a number whose mines are all known makes its other hidden neighbors safe, and a number with as many hidden
+//   neighbors as missing mines makes all of them mines
+//   if the unknown neighbors of one number are a subset of the unknown neighbors of another, the cells only the
+//   second one sees contain exactly the difference of their missing mines (which again may be all or none of them)
+// every deduction is certain, so a search that runs out of time or gets interrupted still returns correct results
+// complete results are kept in a transposition table shared by every board, by the canonical hash of the visible
+// state (see BoardHash), so a position that has been solved before (e.g. after the player only placed a mark, in
+// another game, or rotated or mirrored) is answered by mapping the cells of the stored result back to the board
+
+public class Solver {
+    // how many constraints are checked between two checks of the deadline
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+    private static final TranspositionTable<Result> transpositions = new TranspositionTable<>(1 << 14);
+
+    // safe and mines never contain revealed cells, complete is false if the search stopped early
+    public record Result(long version, BitSet safe, BitSet mines, boolean complete) {
+    }
+
+    // a revealed number, the neighbors it does not know yet and how many of them have mines
+    private record Constraint(int[] cells, int mines) {
+    }
+
+    private final BoardSnapshot snapshot;
+    private final long deadline;
+    private final BitSet safe = new BitSet();
+    private final BitSet mines = new BitSet();
+    private int checks = 0;
+
+    private Solver(BoardSnapshot snapshot, long deadline) {
+        this.snapshot = snapshot;
+        this.deadline = deadline;
+    }
+
+    // search until nothing new can be found, the deadline (see System.nanoTime()) passes,
+    // or the calling thread gets interrupted
+    public static Result solve(BoardSnapshot snapshot, long deadline) {
+        if (!snapshot.getMinesPlaced() || snapshot.isGameOver())
+            return new Result(snapshot.getVersion(), new BitSet(), new BitSet(), true);
+
+        var hash = snapshot.getHash();
+        long key = hash.canonical();
+        int symmetry = hash.canonicalSymmetry();
+        // the stored results are in the canonical orientation, and their version is meaningless
+        var stored = transpositions.get(key);
+        if (stored != null) {
+            Metrics.SOLVER_CACHE_HITS.increment(1);
+            return new Result(snapshot.getVersion(), fromCanonical(hash, symmetry, stored.safe()),
+                    fromCanonical(hash, symmetry, stored.mines()), true);
+        }
+        Metrics.SOLVER_CACHE_MISSES.increment(1);
+
+        var solver = new Solver(snapshot, deadline);
+        boolean complete = solver.run();
+        if (complete)
+            transpositions.put(key, new Result(0, toCanonical(hash, symmetry, solver.safe),
+                    toCanonical(hash, symmetry, solver.mines), true));
+        return new Result(snapshot.getVersion(), solver.safe, solver.mines, complete);
+    }
+
+    private static BitSet toCanonical(BoardHash hash, int symmetry, BitSet cells) {
+        var canonical = new BitSet();
+        for (int cell = cells.nextSetBit(0); cell >= 0; cell = cells.nextSetBit(cell + 1))
+            canonical.set(hash.toCanonical(symmetry, cell));
+        return canonical;
+    }
+
+    private static BitSet fromCanonical(BoardHash hash, int symmetry, BitSet canonical) {
+        var cells = new BitSet();
+        for (int cell = canonical.nextSetBit(0); cell >= 0; cell = canonical.nextSetBit(cell + 1))
+            cells.set(hash.fromCanonical(symmetry, cell));
+        return cells;
+    }
+
+    private boolean run() {
+        if (!snapshot.getMinesPlaced() || snapshot.isGameOver()) return true;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            var constraints = new ArrayList<Constraint>();
+            for (int cell = snapshot.nextRevealed(0); cell >= 0; cell = snapshot.nextRevealed(cell + 1)) {
+                if (outOfTime()) return false;
+                var constraint = constraintOf(cell);
+                if (constraint == null) continue;
+                if (constraint.mines() == 0) changed |= setAll(constraint.cells(), safe);
+                else if (constraint.mines() == constraint.cells().length) changed |= setAll(constraint.cells(), mines);
+                else constraints.add(constraint);
+            }
+            if (changed) continue; // the simple rule is much cheaper, so repeat it until it finds nothing
+
+            // index the constraints by cell, so that only constraints that share a cell are compared
+            var constraintsOfCell = new ArrayList<List<Constraint>>(snapshot.getCellCount());
+            for (int cell = 0; cell < snapshot.getCellCount(); ++cell) constraintsOfCell.add(null);
+            for (var constraint : constraints)
+                for (int cell : constraint.cells()) {
+                    if (constraintsOfCell.get(cell) == null) constraintsOfCell.set(cell, new ArrayList<>(4));
+                    constraintsOfCell.get(cell).add(constraint);
+                }
+
+            for (var subset : constraints) {
+                for (var superset : constraintsOfCell.get(subset.cells()[0])) {
+                    if (outOfTime()) return false;
+                    if (superset == subset || superset.cells().length <= subset.cells().length) continue;
+                    if (!contains(superset.cells(), subset.cells())) continue;
+
+                    var difference = difference(superset.cells(), subset.cells());
+                    int differenceMines = superset.mines() - subset.mines();
+                    if (differenceMines == 0) changed |= setAll(difference, safe);
+                    else if (differenceMines == difference.length) changed |= setAll(difference, mines);
+                }
+            }
+        }
+        return true;
+    }
+
+    // the constraint of a revealed number, or null if the cell is a mine or all of its neighbors are known
+    private Constraint constraintOf(int cell) {
+        if (isKnownMine(cell)) return null;
+
+        var topology = snapshot.getTopology();
+        int missingMines = snapshot.getAdjacentMinesCount(cell);
+        int[] unknown = new int[topology.degree(cell)];
+        int unknownCount = 0;
+        for (int i = topology.neighborsStart(cell); i < topology.neighborsEnd(cell); ++i) {
+            int adjCell = topology.neighbor(i);
+            if (isKnownMine(adjCell)) --missingMines;
+            else if (!snapshot.isRevealed(adjCell) && !safe.get(adjCell)) unknown[unknownCount++] = adjCell;
+        }
+
+        if (unknownCount == 0) return null;
+        // the cells are already sorted, as the topology keeps the neighbors of every cell in index order
+        return new Constraint(Arrays.copyOf(unknown, unknownCount), missingMines);
+    }
+
+    private boolean isKnownMine(int cell) {
+        return mines.get(cell) || snapshot.isDisarmed(cell) || snapshot.isDetonated(cell);
+    }
+
+    private boolean outOfTime() {
+        if (++checks % DEADLINE_CHECK_INTERVAL != 0) return false;
+        return System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted();
+    }
+
+    private static boolean setAll(int[] cells, BitSet set) {
+        boolean changed = false;
+        for (int cell : cells) {
+            changed |= !set.get(cell);
+            set.set(cell);
+        }
+        return changed;
+    }
+
+    // both arrays are sorted
+    private static boolean contains(int[] superset, int[] subset) {
+        int i = 0;
+        for (int cell : superset)
+            if (i < subset.length && subset[i] == cell) ++i;
+        return i == subset.length;
+    }
+
+    // both arrays are sorted, and subset is contained in superset
+    private static int[] difference(int[] superset, int[] subset) {
+        int[] difference = new int[superset.length - subset.length];
+        int i = 0, j = 0;
+        for (int cell : superset) {
+            if (i < subset.length && subset[i] == cell) ++i;
+            else difference[j++] = cell;
+        }
+        return difference;
+    }
+}
@@ -0,0 +1,189 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// which cells of a board are adjacent to each other, precomputed once per shape and size
+// the neighbors of every cell are stored in a single array (compressed sparse rows): the neighbors of cell c are
+// neighbors[offsets[c]] to neighbors[offsets[c + 1] - 1], in increasing index order, so the hot loops of the
+// engine are plain array walks without bounds checks, whatever the shape
+// topologies are immutable, and the ones of small boards are shared by every board of the same kind and size
+// the shared ones are kept in a cache of bounded size (least recently used first out), so that boards of ever new
+// sizes (e.g. requested by the clients of the server) cannot fill the heap, while the tables of a larger board
+// belong to that board alone and are freed with it
+
+public final class Topology {
+    public enum Kind {
+        SQUARE, // the 8 surrounding cells
+        TORUS, // the 8 surrounding cells, with the edges wrapping around to the opposite side
+        HEX, // hexagonal cells, odd rows are shifted half a cell to the right (6 neighbors)
+        KNIGHT; // the cells a chess knight can jump to (up to 8)
+
+        public static Kind parse(String name) throws IllegalArgumentException {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            }
+            catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown topology '" + name + "', available: " +
+                        Arrays.toString(values()).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    // the (row, col) offsets of the neighbors of every kind, HEX is the only one that depends on the row
+    private static final int[][] SURROUNDING = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final int[][] HEX_EVEN_ROWS = {{-1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, -1}, {1, 0}};
+    private static final int[][] HEX_ODD_ROWS = {{-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, 0}, {1, 1}};
+    private static final int[][] KNIGHT_MOVES =
+            {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+
+    private record Key(Kind kind, int rowCount, int colCount) {
+    }
+
+    private static final int CACHE_MAX_CELLS = 1 << 20; // the cells of all the cached topologies together
+    private static final int CACHED_MAX_CELLS = CACHE_MAX_CELLS / 16; // larger topologies are not cached
+
+    // guarded by itself, accessed in access order
+    private static final Map<Key, Topology> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private static int cachedCellCount = 0;
+
+    // attributes
+    private final Kind kind;
+    private final int rowCount;
+    private final int colCount;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int maxDegree;
+
+    // methods
+    private Topology(Kind kind, int rowCount, int colCount) {
+        this.kind = kind;
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        int cellCount = Math.multiplyExact(rowCount, colCount);
+
+        // the degrees are counted first, so that the neighbors are written straight into an array of their exact
+        // size (growing a list and copying it would briefly need several times the memory of the table)
+        this.offsets = new int[cellCount + 1];
+        var cellNeighbors = new int[8];
+        long neighborCount = 0;
+        int maxDegree = 0;
+        for (int cell = 0; cell < cellCount; ++cell) {
+            int degree = neighborsOf(cell, cellNeighbors);
+            neighborCount += degree;
+            if (neighborCount > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("The board is too large for a neighbor table");
+            offsets[cell + 1] = (int) neighborCount;
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        this.neighbors = new int[(int) neighborCount];
+        for (int cell = 0; cell < cellCount; ++cell)
+            System.arraycopy(cellNeighbors, 0, neighbors, offsets[cell], neighborsOf(cell, cellNeighbors));
+        this.maxDegree = maxDegree;
+    }
+
+    // writes the neighbors of the given cell to the given array (of at least 8 cells), in increasing index order,
+    // and returns how many there are
+    private int neighborsOf(int cell, int[] cellNeighbors) {
+        int row = cell / colCount, col = cell % colCount;
+        int count = 0;
+        for (int[] move : movesOf(kind, row)) {
+            int adjRow = row + move[0], adjCol = col + move[1];
+            if (kind == Kind.TORUS) {
+                adjRow = Math.floorMod(adjRow, rowCount);
+                adjCol = Math.floorMod(adjCol, colCount);
+            }
+            else if (adjRow < 0 || adjRow >= rowCount || adjCol < 0 || adjCol >= colCount) continue;
+            cellNeighbors[count++] = adjRow * colCount + adjCol;
+        }
+
+        // small tori wrap onto the same cells more than once (or onto the cell itself), so they are deduplicated
+        Arrays.sort(cellNeighbors, 0, count);
+        int unique = 0, previous = -1;
+        for (int i = 0; i < count; ++i) {
+            if (cellNeighbors[i] == previous || cellNeighbors[i] == cell) continue;
+            previous = cellNeighbors[i];
+            cellNeighbors[unique++] = previous;
+        }
+        return unique;
+    }
+
+    public static Topology of(Kind kind, int rowCount, int colCount) {
+        if (rowCount <= 0 || colCount <= 0) throw new IllegalArgumentException("The board must have at least one cell");
+        if ((long) rowCount * colCount > CACHED_MAX_CELLS) return new Topology(kind, rowCount, colCount);
+
+        var key = new Key(kind, rowCount, colCount);
+        synchronized (cache) {
+            var topology = cache.get(key);
+            if (topology != null) return topology;
+        }
+        // built outside the lock, two threads may build the same topology but only one of them is cached
+        var topology = new Topology(kind, rowCount, colCount);
+        synchronized (cache) {
+            var cached = cache.putIfAbsent(key, topology);
+            if (cached != null) return cached;
+            cachedCellCount += rowCount * colCount;
+            var eldest = cache.values().iterator();
+            while (cachedCellCount > CACHE_MAX_CELLS) {
+                var evicted = eldest.next();
+                cachedCellCount -= evicted.rowCount * evicted.colCount;
+                eldest.remove();
+            }
+        }
+        return topology;
+    }
+
+    private static int[][] movesOf(Kind kind, int row) {
+        return switch (kind) {
+            case SQUARE, TORUS -> SURROUNDING;
+            case HEX -> (row % 2 == 0) ? HEX_EVEN_ROWS : HEX_ODD_ROWS;
+            case KNIGHT -> KNIGHT_MOVES;
+        };
+    }
+
+    // package-only, so that the hot loops of the engine can walk the arrays directly
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] neighbors() {
+        return neighbors;
+    }
+
+    // the neighbors of a cell are neighbor(i) for every i from neighborsStart(cell) (inclusive)
+    // to neighborsEnd(cell) (exclusive)
+    public int neighborsStart(int cell) {
+        return offsets[cell];
+    }
+
+    public int neighborsEnd(int cell) {
+        return offsets[cell + 1];
+    }
+
+    public int neighbor(int i) {
+        return neighbors[i];
+    }
+
+    public int degree(int cell) {
+        return offsets[cell + 1] - offsets[cell];
+    }
+
+    // no cell has more neighbors than this
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+}
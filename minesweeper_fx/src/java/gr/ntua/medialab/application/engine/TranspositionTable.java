@@ -0,0 +1,37 @@
+package gr.ntua.medialab.application.engine;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// a fixed-size cache of results by 64-bit hash, as game-playing programs keep the positions they already searched
+// every hash has a single slot (its lowest bits), and a new result always replaces the one in its slot, so the
+// table never grows and never needs to be cleaned up
+// lookups and updates are lock-free and can happen on any thread, the results must be immutable
+
+public final class TranspositionTable<V> {
+    private record Entry<V>(long hash, V value) {
+    }
+
+    private final AtomicReferenceArray<Entry<V>> entries;
+    private final int mask;
+
+    // the capacity is rounded up to a power of two
+    public TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // the result stored with the given hash, or null if there is none
+    public V get(long hash) {
+        var entry = entries.get(slot(hash));
+        return (entry != null && entry.hash() == hash) ? entry.value() : null;
+    }
+
+    public void put(long hash, V value) {
+        entries.set(slot(hash), new Entry<>(hash, value));
+    }
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
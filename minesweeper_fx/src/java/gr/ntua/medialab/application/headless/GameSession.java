@@ -0,0 +1,353 @@
+package gr.ntua.medialab.application.headless;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.engine.Board;
+import gr.ntua.medialab.application.engine.OffHeapBoard;
+import gr.ntua.medialab.application.engine.Topology;
+import gr.ntua.medialab.application.scenarios.CapacityModel;
+import gr.ntua.medialab.application.scenarios.Scenario;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+/*
+    A game (or a sequence of games) played through a line-based text protocol, without the JavaFX toolkit
+    A session is confined to the thread that uses it, so it does not need any synchronization
+    A session must be closed once it ends, which releases the memory of its game right away
+    Sessions that share a MemoryBudget (e.g. those of the GameServer) reserve the board of every new game in it,
+    a new or load whose board does not fit in what is left of the budget fails without building it
+    Cells are identified by their index (row * colCount + col) in every response
+
+    Commands (one per line)                                Responses (always exactly one line)
+      new <rows> <cols> <mines> <super> [seed] [topology]  ok <rows> <cols> <mines>
+      load <scenario> [seed]                               ok <rows> <cols> <mines>
+      reveal <row> <col>                                   d <status> <clicks> <marks> [r <cells>] [m <cells>] [u <cells>] [x <cells>]
+      mark <row> <col>                                     (same as reveal, the mark is toggled)
+      chord <row> <col>                                    (same as reveal, see Board.chord())
+      state                                                s <status> <clicks> <marks> <row>/<row>/...
+      id                                                   id <feed id> (only for sessions that have a spectator feed)
+      quit                                                 bye
+
+    <super> is 1 if the game has a super mine and 0 otherwise
+    <topology> is square (the default), torus, hex or knight (see Topology), the seed and the topology can be
+    given in either order
+    <status> is p (playing), w (won) or l (lost)
+    Deltas list the cells that got (r)evealed, (m)arked, (u)nmarked and disarmed (x) by the command
+    States contain one character per cell: # hidden, F marked, 0-8 revealed, * mine, x disarmed mine
+    Errors are reported as: e <message>
+    A new game replaces the current one as soon as its arguments are valid, so a new or load that fails to build
+    its board (e.g. not enough room for its mines) leaves the session without a game, the same as running out of
+    memory during any command
+    There is no timer, so the time limit of a scenario is ignored
+    If the session has a spectator feed, every new game and every click are published to it as well
+
+    Square boards too large for the heap (see CapacityModel) are played on an OffHeapBoard instead, whose clicks
+    only report how many cells they changed, so their deltas are: d <status> <clicks> <marks> c <count>
+    (their spectators only see the game start), and chord and state are not available for them
+*/
+
+public class GameSession implements AutoCloseable {
+    // attributes
+    private final SpectatorFeed feed; // may be null
+    private final MemoryBudget memory; // may be null, then only CapacityModel limits the size of a board
+
+    // state
+    private Board board;
+    private OffHeapBoard offHeapBoard; // instead of the board, if the game does not fit on the heap
+    private Random rng;
+    private CapacityModel reserved; // the capacity of the current game, as reserved in the memory budget
+
+    public GameSession() {
+        this(null, null);
+    }
+
+    public GameSession(SpectatorFeed feed, MemoryBudget memory) {
+        this.feed = feed;
+        this.memory = memory;
+    }
+
+    // execute every command read from the input until it ends (or quit is received), writing the responses
+    // the output is only flushed when no more input is waiting, so that piped commands are answered in batches,
+    // while interactive use still gets every response immediately
+    public void run(BufferedReader input, Writer output) throws IOException {
+        var response = new StringBuilder();
+        String line;
+        while ((line = input.readLine()) != null) {
+            response.setLength(0);
+            boolean keepGoing = execute(line, response);
+            output.append(response);
+            if (!keepGoing) break;
+            if (!input.ready()) output.flush();
+        }
+        output.flush();
+    }
+
+    // execute a single command and append its response (including the line break) to the given builder
+    // returns false if the session should be closed
+    public boolean execute(String line, StringBuilder response) {
+        var args = line.trim().split("\\s+");
+        try {
+            switch (args[0]) {
+                case "new" -> onNew(args, response);
+                case "load" -> onLoad(args, response);
+                case "reveal", "mark", "chord" -> onClick(args, response);
+                case "state" -> onState(response);
+                case "id" -> onId(response);
+                case "quit" -> {
+                    response.append("bye\n");
+                    return false;
+                }
+                case "" -> response.append("e empty command\n");
+                default -> response.append("e unknown command '").append(args[0]).append("'\n");
+            }
+        }
+        catch (NumberFormatException e) {
+            response.append("e expected integers but got something else\n");
+        }
+        catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+            response.append("e ").append(e.getMessage()).append('\n');
+        }
+        catch (OutOfMemoryError e) {
+            // the game may have been left half-changed, so it is dropped (which also frees its memory)
+            endGame();
+            response.setLength(0);
+            response.append("e out of memory, the game has ended\n");
+        }
+        return true;
+    }
+
+    // end the session, releasing the memory of its game right away
+    @Override
+    public void close() {
+        endGame();
+    }
+
+    // drop the current game, if any, so that its memory is free before another one is built
+    private void endGame() {
+        board = null;
+        if (offHeapBoard != null) offHeapBoard.close();
+        offHeapBoard = null;
+        if (reserved != null) memory.release(reserved);
+        reserved = null;
+    }
+
+    // reserve the memory of a new game in the budget, if the session has one (the current game must have ended)
+    private void reserve(CapacityModel capacity) throws IllegalStateException {
+        if (memory == null) return;
+        if (!memory.tryReserve(capacity)) {
+            long taken = (capacity.storage() == CapacityModel.Storage.BOARD)
+                    ? memory.getReservedHeapBytes() : memory.getReservedDirectBytes();
+            throw new IllegalStateException("there is not enough memory left for this board (" + capacity.describe()
+                    + ", " + (taken >> 20) + " MiB taken by other games)");
+        }
+        reserved = capacity;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    private void onNew(String[] args, StringBuilder response) {
+        requireArgs(args, 5, 7);
+        Random rng = null;
+        var topology = Topology.Kind.SQUARE;
+        for (int i = 5; i < args.length; ++i) {
+            if (Character.isLetter(args[i].charAt(0))) topology = Topology.Kind.parse(args[i]);
+            else rng = new Random(Long.parseLong(args[i]));
+        }
+        newGame(
+                topology,
+                Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]),
+                Integer.parseInt(args[4]) == 1,
+                (rng != null) ? rng : new Random(),
+                response
+        );
+    }
+
+    private void onLoad(String[] args, StringBuilder response) {
+        requireArgs(args, 2, 3);
+        // a scenario is named by its file in the scenarios folder, a path could reach any file of the machine
+        if (args[1].contains("/") || args[1].contains("\\") || args[1].contains(".."))
+            throw new IllegalArgumentException("the scenario name cannot contain a path");
+        var scenarioFile = new File(Settings.SCENARIOS_FOLDER(), args[1] + ".txt");
+        Scenario scenario;
+        try {
+            scenario = Scenario.fromFile(scenarioFile);
+        }
+        catch (FileNotFoundException e) {
+            response.append("e the requested scenario does not exist\n");
+            return;
+        }
+        // all other thrown exceptions are: InvalidDescriptionException, IOException
+        catch (Exception e) {
+            response.append("e ").append(e.getMessage()).append('\n');
+            return;
+        }
+        newGame(
+                Topology.Kind.SQUARE,
+                scenario.getRowCount(),
+                scenario.getColCount(),
+                scenario.getMineCount(),
+                scenario.getSuperMineExists(),
+                (args.length == 3) ? new Random(Long.parseLong(args[2])) : new Random(),
+                response
+        );
+    }
+
+    private void newGame(Topology.Kind topology, int rowCount, int colCount, int mineCount, boolean hasSuperMine,
+                         Random rng, StringBuilder response) throws IllegalArgumentException {
+        var capacity = CapacityModel.of(rowCount, colCount);
+        if (capacity.storage() == CapacityModel.Storage.NONE)
+            throw new IllegalArgumentException("the board is too large (" + capacity.describe() + ")");
+        if (capacity.storage() == CapacityModel.Storage.OFF_HEAP_BOARD) {
+            newOffHeapGame(capacity, topology, mineCount, hasSuperMine, rng, response);
+            return;
+        }
+
+        // the memory of the current game is released before the new board needs it
+        endGame();
+        reserve(capacity);
+        var board = new Board(
+                topology, rowCount, colCount, mineCount, hasSuperMine,
+                Settings.GAME_SUPER_MINE_ACTIVE_FOR(),
+                Settings.GAME_SUPER_MINE_PROCS_RECURSIVE_REVEAL()
+        );
+        // the mines are placed on the first click, around which there must be room for a safe cell and its neighbors
+        if (mineCount > rowCount * colCount - 1 - board.getTopology().getMaxDegree()) {
+            endGame(); // releases the reservation of the board that is not used
+            throw new IllegalArgumentException("there is not enough room for " + mineCount + " mines");
+        }
+        this.board = board;
+        this.rng = rng;
+        if (feed != null) feed.reset(rowCount, colCount);
+        response.append("ok ").append(rowCount).append(' ').append(colCount).append(' ').append(mineCount).append('\n');
+    }
+
+    private void newOffHeapGame(CapacityModel capacity, Topology.Kind topology, int mineCount, boolean hasSuperMine,
+                                Random rng, StringBuilder response) {
+        int rowCount = capacity.rowCount(), colCount = capacity.colCount();
+        if (topology != Topology.Kind.SQUARE)
+            throw new IllegalArgumentException("boards this large can only be square");
+        // the largest neighborhood of a square board, which the first click must leave free of mines
+        int maxDegree = Math.min(rowCount, 3) * Math.min(colCount, 3) - 1;
+        if (mineCount < 0) throw new IllegalArgumentException("the mine count cannot be negative");
+        if (mineCount > (long) rowCount * colCount - 1 - maxDegree)
+            throw new IllegalArgumentException("there is not enough room for " + mineCount + " mines");
+
+        endGame();
+        reserve(capacity);
+        offHeapBoard = new OffHeapBoard(
+                rowCount, colCount, mineCount, hasSuperMine,
+                Settings.GAME_SUPER_MINE_ACTIVE_FOR(),
+                Settings.GAME_SUPER_MINE_PROCS_RECURSIVE_REVEAL()
+        );
+        this.rng = rng;
+        if (feed != null) feed.reset(rowCount, colCount);
+        response.append("ok ").append(rowCount).append(' ').append(colCount).append(' ').append(mineCount).append('\n');
+    }
+
+    private void onClick(String[] args, StringBuilder response) {
+        requireArgs(args, 3, 3);
+        requireGame();
+        int row = Integer.parseInt(args[1]);
+        int col = Integer.parseInt(args[2]);
+        if (offHeapBoard != null) {
+            onOffHeapClick(args[0], row, col, response);
+            return;
+        }
+        board.indexOf(row, col); // validates the coordinates before anything changes
+
+        var delta = switch (args[0]) {
+            case "reveal" -> {
+                // the mines are placed on the first primary click, just like in the GUI
+                if (!board.getMinesPlaced()) board.placeMines(row, col, rng);
+                yield board.primaryClick(row, col);
+            }
+            case "mark" -> board.secondaryClick(row, col);
+            default -> board.chord(row, col);
+        };
+        if (feed != null) feed.publish(delta, status());
+
+        appendHeader('d', response);
+        appendCells('r', delta.getRevealed(), response);
+        appendCells('m', delta.getMarked(), response);
+        appendCells('u', delta.getUnmarked(), response);
+        appendCells('x', delta.getDisarmed(), response);
+        response.append('\n');
+    }
+
+    private void onOffHeapClick(String command, int row, int col, StringBuilder response) {
+        offHeapBoard.indexOf(row, col); // validates the coordinates before anything changes
+        long changed = switch (command) {
+            case "reveal" -> {
+                if (!offHeapBoard.getMinesPlaced()) offHeapBoard.placeMines(row, col, rng);
+                yield offHeapBoard.primaryClick(row, col);
+            }
+            case "mark" -> offHeapBoard.secondaryClick(row, col);
+            default -> throw new IllegalStateException("chord is not available on boards this large");
+        };
+        appendHeader('d', response);
+        response.append(" c ").append(changed).append('\n');
+    }
+
+    private void onState(StringBuilder response) {
+        requireGame();
+        if (offHeapBoard != null) throw new IllegalStateException("the state of boards this large cannot be sent");
+        appendHeader('s', response);
+        response.append(' ');
+        for (int index = 0; index < board.getCellCount(); ++index) {
+            if (index > 0 && board.colOf(index) == 0) response.append('/');
+            response.append(cellCharacter(index));
+        }
+        response.append('\n');
+    }
+
+    // the character that represents the visible state of the given cell
+    private char cellCharacter(int index) {
+        if (board.isMarked(index)) return 'F';
+        if (!board.isRevealed(index)) return '#';
+        if (board.hasMine(index)) return board.isDisarmed(index) ? 'x' : '*';
+        return (char) ('0' + board.getAdjacentMinesCount(index));
+    }
+
+    private void onId(StringBuilder response) {
+        if (feed == null) throw new IllegalStateException("this session has no spectator feed");
+        response.append("id ").append(feed.getId()).append('\n');
+    }
+
+    // p (playing), w (won) or l (lost)
+    private char status() {
+        if (offHeapBoard != null)
+            return offHeapBoard.hasMineDetonated() ? 'l' : offHeapBoard.allEmptyCellsRevealed() ? 'w' : 'p';
+        return board.hasMineDetonated() ? 'l' : board.allEmptyCellsRevealed() ? 'w' : 'p';
+    }
+
+    private void appendHeader(char type, StringBuilder response) {
+        response.append(type).append(' ').append(status()).append(' ');
+        if (offHeapBoard != null)
+            response.append(offHeapBoard.getClicksCount()).append(' ').append(offHeapBoard.getMarkedCellsCount());
+        else
+            response.append(board.getClicksCount()).append(' ').append(board.getMarkedCellsCount());
+    }
+
+    private static void appendCells(char type, int[] cells, StringBuilder response) {
+        if (cells.length == 0) return;
+        response.append(' ').append(type);
+        for (int cell : cells) response.append(' ').append(cell);
+    }
+
+    private static void requireArgs(String[] args, int min, int max) throws IllegalArgumentException {
+        if (args.length < min || args.length > max)
+            throw new IllegalArgumentException("wrong number of arguments for '" + args[0] + "'");
+    }
+
+    private void requireGame() throws IllegalStateException {
+        if (board == null && offHeapBoard == null) throw new IllegalStateException("no game has been started");
+    }
+}
@@ -0,0 +1,53 @@
+package gr.ntua.medialab.application.headless;
+
+import gr.ntua.medialab.application.scenarios.CapacityModel;
+
+/*
+    The memory shared by the games of many sessions in the same JVM (e.g. every session of the GameServer)
+    CapacityModel only checks that a single board fits in its share of the heap (or of the direct memory), so every
+    session reserves the board of a new game here before building it, and releases it once that game ends
+    The totals are those same shares, so all the games together never take more than a single one is allowed to
+    A session is confined to its thread, but a budget is shared by all of them, so it is synchronized
+*/
+
+public class MemoryBudget {
+    // state
+    private long reservedHeapBytes = 0;
+    private long reservedDirectBytes = 0;
+
+    // reserve the memory of the board of the given capacity, returns false (reserving nothing) if it does not fit
+    public synchronized boolean tryReserve(CapacityModel capacity) {
+        long bytes = capacity.boardBytes();
+        switch (capacity.storage()) {
+            case BOARD -> {
+                if (bytes > CapacityModel.heapBudget() - reservedHeapBytes) return false;
+                reservedHeapBytes += bytes;
+            }
+            case OFF_HEAP_BOARD -> {
+                if (bytes > CapacityModel.directBudget() - reservedDirectBytes) return false;
+                reservedDirectBytes += bytes;
+            }
+            case NONE -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // release a reservation of tryReserve(), once its board is no longer used
+    public synchronized void release(CapacityModel capacity) {
+        switch (capacity.storage()) {
+            case BOARD -> reservedHeapBytes -= capacity.boardBytes();
+            case OFF_HEAP_BOARD -> reservedDirectBytes -= capacity.boardBytes();
+            case NONE -> {}
+        }
+    }
+
+    public synchronized long getReservedHeapBytes() {
+        return reservedHeapBytes;
+    }
+
+    public synchronized long getReservedDirectBytes() {
+        return reservedDirectBytes;
+    }
+}
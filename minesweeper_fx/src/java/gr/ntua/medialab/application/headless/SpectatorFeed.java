@@ -0,0 +1,243 @@
+package gr.ntua.medialab.application.headless;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.engine.Delta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+    Publishes the progress of a single game to any number of read-only viewers
+    Every click is encoded once, as a compact delta frame, and the same frame is queued for every viewer
+    Revealed (and disarmed) cells are sent as sorted index ranges, so a flood fill that reveals thousands of
+    neighboring cells costs a few ranges instead of one index per cell
+
+    Frames (one per line)
+      k <seq> <rows> <cols> <status> [R <ranges>] [M <cells>] [X <ranges>] [D <cells>]    full state (keyframe)
+      v <seq> <status> [R <ranges>] [T <cells>] [X <ranges>] [D <cells>]                  changes of one click
+      end                                                                                 the game is over
+
+    <ranges> are space separated, each one is either a single index or "first-last" (inclusive)
+    R are the (R)evealed cells, M the (M)arked cells, T the cells whose mark was (T)oggled,
+    X the disarmed mines and D the (D)etonated mines
+    Viewers get a keyframe when they subscribe, when a new game starts, and after falling too far behind
+    (the publisher never waits for a viewer, a viewer whose queue fills up has its queue replaced by a keyframe)
+*/
+
+public class SpectatorFeed {
+    public static final String END_FRAME = "end";
+
+    // a single viewer of the feed, only the thread of the viewer should call take() and poll()
+    public static class Viewer {
+        private final int id;
+        private final BlockingQueue<String> frames = new ArrayBlockingQueue<>(Settings.SPECTATOR_QUEUE_CAPACITY());
+        // statistics, updated by the thread of the viewer
+        private long bytesReceived = 0;
+        private long framesReceived = 0;
+        private long nanosSpent = 0; // time spent by the viewer handling its frames (see recordHandling())
+        // statistics, updated by the publisher
+        private volatile long resyncs = 0;
+
+        private Viewer(int id) {
+            this.id = id;
+        }
+
+        // wait for the next frame
+        public String take() throws InterruptedException {
+            return received(frames.take());
+        }
+
+        // return the next frame, or null if there is none
+        public String poll() {
+            var frame = frames.poll();
+            return (frame == null) ? null : received(frame);
+        }
+
+        // record the time the viewer spent handling (e.g. writing to a socket) its frames
+        public void recordHandling(long nanos) {
+            nanosSpent += nanos;
+        }
+
+        public String report() {
+            return String.format("viewer %d: %d frames, %d bytes (%.1f B/frame), %d resyncs, %.2fus/frame",
+                    id, framesReceived, bytesReceived,
+                    (framesReceived == 0) ? 0.0 : (double) bytesReceived / framesReceived, resyncs,
+                    (framesReceived == 0) ? 0.0 : nanosSpent / 1e3 / framesReceived);
+        }
+
+        private String received(String frame) {
+            ++framesReceived;
+            bytesReceived += frame.length() + 1; // frames are ASCII, plus the line break
+            return frame;
+        }
+    }
+
+    // attributes
+    private final int id;
+
+    // state, guarded by this feed (only the publishing session and subscribing viewers ever contend on it)
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final BitSet revealed = new BitSet();
+    private final BitSet marked = new BitSet();
+    private final BitSet disarmed = new BitSet();
+    private final BitSet detonated = new BitSet();
+    private int rowCount = 0;
+    private int colCount = 0;
+    private char status = 'p';
+    private long sequence = 0;
+    private int viewerIds = 0;
+    // statistics
+    private long framesPublished = 0;
+    private long encodingNanos = 0;
+
+    public SpectatorFeed(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public synchronized Viewer subscribe() {
+        var viewer = new Viewer(++viewerIds);
+        viewer.frames.offer(keyframe());
+        viewers.add(viewer);
+        return viewer;
+    }
+
+    public synchronized void unsubscribe(Viewer viewer) {
+        viewers.remove(viewer);
+    }
+
+    // a new game has started on the session
+    public synchronized void reset(int rowCount, int colCount) {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+        revealed.clear();
+        marked.clear();
+        disarmed.clear();
+        detonated.clear();
+        status = 'p';
+        ++sequence;
+        broadcast(keyframe());
+    }
+
+    // encode the changes of a click once and queue them for every viewer
+    public synchronized void publish(Delta delta, char status) {
+        if (delta.isEmpty() && status == this.status) return;
+
+        long start = System.nanoTime();
+        var revealedCells = delta.getRevealed();
+        var disarmedCells = delta.getDisarmed();
+        var detonatedCells = delta.getDetonated();
+        var toggledCells = toggledMarks(delta.getMarked(), delta.getUnmarked());
+        for (int cell : revealedCells) revealed.set(cell);
+        for (int cell : disarmedCells) disarmed.set(cell);
+        for (int cell : detonatedCells) detonated.set(cell);
+        for (int cell : toggledCells) marked.flip(cell);
+        this.status = status;
+
+        var frame = new StringBuilder().append("v ").append(++sequence).append(' ').append(status);
+        appendRanges('R', revealedCells, frame);
+        appendCells('T', toggledCells, frame);
+        appendRanges('X', disarmedCells, frame);
+        appendCells('D', detonatedCells, frame);
+        encodingNanos += System.nanoTime() - start;
+
+        broadcast(frame.toString());
+    }
+
+    // tell every viewer that the session is over
+    public synchronized void close() {
+        for (var viewer : viewers) {
+            viewer.frames.clear();
+            viewer.frames.offer(END_FRAME);
+        }
+        viewers.clear();
+    }
+
+    public synchronized String report() {
+        return String.format("feed %d: %d frames published, %.2fus encoding/frame, %d viewers",
+                id, framesPublished, (framesPublished == 0) ? 0.0 : encodingNanos / 1e3 / framesPublished,
+                viewers.size());
+    }
+
+    private void broadcast(String frame) {
+        ++framesPublished;
+        for (var viewer : viewers) {
+            if (viewer.frames.offer(frame)) continue;
+            // the viewer fell behind, so drop everything it has not read yet and let it start over
+            viewer.frames.clear();
+            viewer.frames.offer(keyframe());
+            ++viewer.resyncs;
+        }
+    }
+
+    private String keyframe() {
+        long start = System.nanoTime();
+        var frame = new StringBuilder().append("k ").append(sequence).append(' ')
+                .append(rowCount).append(' ').append(colCount).append(' ').append(status);
+        appendRanges('R', revealed, frame);
+        appendCells('M', marked.stream().toArray(), frame);
+        appendRanges('X', disarmed, frame);
+        appendCells('D', detonated.stream().toArray(), frame);
+        encodingNanos += System.nanoTime() - start;
+        return frame.toString();
+    }
+
+    // the cells that were either only marked or only unmarked by a click
+    // (e.g. a marked super mine gets marked and then unmarked by the same click, so its mark did not change)
+    private static int[] toggledMarks(int[] markedCells, int[] unmarkedCells) {
+        if (markedCells.length == 0) return unmarkedCells;
+        if (unmarkedCells.length == 0) return markedCells;
+
+        var toggled = new BitSet();
+        for (int cell : markedCells) toggled.flip(cell);
+        for (int cell : unmarkedCells) toggled.flip(cell);
+        return toggled.stream().toArray();
+    }
+
+    private static void appendRanges(char type, int[] cells, StringBuilder frame) {
+        if (cells.length == 0) return;
+
+        var sorted = cells.clone();
+        Arrays.sort(sorted);
+        frame.append(' ').append(type);
+        int first = sorted[0], last = sorted[0];
+        for (int i = 1; i < sorted.length; ++i) {
+            if (sorted[i] == last || sorted[i] == last + 1) {
+                last = sorted[i];
+                continue;
+            }
+            appendRange(first, last, frame);
+            first = last = sorted[i];
+        }
+        appendRange(first, last, frame);
+    }
+
+    private static void appendRanges(char type, BitSet cells, StringBuilder frame) {
+        if (cells.isEmpty()) return;
+
+        frame.append(' ').append(type);
+        for (int first = cells.nextSetBit(0); first >= 0; first = cells.nextSetBit(first + 1)) {
+            int last = cells.nextClearBit(first) - 1;
+            appendRange(first, last, frame);
+            first = last;
+        }
+    }
+
+    private static void appendRange(int first, int last, StringBuilder frame) {
+        frame.append(' ').append(first);
+        if (last != first) frame.append('-').append(last);
+    }
+
+    private static void appendCells(char type, int[] cells, StringBuilder frame) {
+        if (cells.length == 0) return;
+        frame.append(' ').append(type);
+        for (int cell : cells) frame.append(' ').append(cell);
+    }
+}
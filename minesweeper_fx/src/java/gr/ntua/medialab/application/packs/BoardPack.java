@@ -0,0 +1,170 @@
+package gr.ntua.medialab.application.packs;
+
+import gr.ntua.medialab.application.engine.Topology;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// a read-only library of pre-generated boards of one size and mine count, memory-mapped from a pack file
+// the boards are placed without a first click, so that picking one whose first clicked cell (and its neighbors)
+// happens to be safe gives exactly the same distribution as placing the mines around that click
+// file layout (big endian):
+//   header: magic, version, rows, cols, mines, board count, mask size (in longs), entry size (in bytes),
+//           offset of the index, offset of the masks
+//   index:  one fixed-size entry per board: seed, super mine index, 3BV, openings count
+//   masks:  one fixed-size bitset of mines per board (the longs of BitSet.toLongArray())
+// any board is reached in O(1) from its position, and only the pages that are read are loaded from the file
+
+public class BoardPack {
+    static final int MAGIC = 0x4D53504B; // "MSPK"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 48;
+    static final int ENTRY_SIZE = 24;
+    // how many boards are tried at a first click before giving up on the pack
+    private static final int MAX_PICK_ATTEMPTS = 256;
+
+    // every pack looked up by forBoard(), including the missing ones, so each file is only mapped (or looked for) once
+    private static final Map<File, BoardPack> opened = new ConcurrentHashMap<>();
+    private static final BoardPack MISSING = new BoardPack();
+
+    // attributes
+    private final int rowCount;
+    private final int colCount;
+    private final int mineCount;
+    private final int boardCount;
+    private final int maskLongs;
+    private final long indexOffset;
+    private final long masksOffset;
+    private final MappedByteBuffer buffer;
+    private final Topology topology;
+
+    // the record of a board that is read from a pack
+    public record Entry(long seed, int superMineIndex, int bbbv, int openings) {
+    }
+
+    private BoardPack() {
+        rowCount = colCount = mineCount = boardCount = maskLongs = 0;
+        indexOffset = masksOffset = 0;
+        buffer = null;
+        topology = null;
+    }
+
+    // maps the given pack file, throws if it is not a valid pack
+    public BoardPack(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Board packs are limited to 2 GiB");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid once closed
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("'" + file.getName() + "' is not a board pack");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported board pack version " + buffer.getInt(4));
+
+        rowCount = buffer.getInt(8);
+        colCount = buffer.getInt(12);
+        mineCount = buffer.getInt(16);
+        boardCount = buffer.getInt(20);
+        maskLongs = buffer.getInt(24);
+        int entrySize = buffer.getInt(28);
+        indexOffset = buffer.getLong(32);
+        masksOffset = buffer.getLong(40);
+        if (entrySize != ENTRY_SIZE || maskLongs != maskLongs(rowCount, colCount)
+                || masksOffset + (long) boardCount * maskLongs * Long.BYTES > buffer.capacity())
+            throw new IOException("'" + file.getName() + "' is truncated or corrupted");
+        topology = Topology.of(Topology.Kind.SQUARE, rowCount, colCount);
+    }
+
+    // the pack of boards of the given size and mine count in the given folder, or null if there is none
+    // a pack that cannot be read is reported once, and then treated as missing
+    public static BoardPack forBoard(File folder, int rowCount, int colCount, int mineCount) {
+        var file = new File(folder, fileName(rowCount, colCount, mineCount));
+        var pack = opened.computeIfAbsent(file, key -> {
+            if (!key.isFile()) return MISSING;
+            try {
+                return new BoardPack(key);
+            } catch (IOException e) {
+                System.err.println("Could not read board pack '" + key.getName() + "': " + e.getMessage());
+                return MISSING;
+            }
+        });
+        return (pack == MISSING) ? null : pack;
+    }
+
+    public static String fileName(int rowCount, int colCount, int mineCount) {
+        return rowCount + "x" + colCount + "-" + mineCount + ".pack";
+    }
+
+    static int maskLongs(int rowCount, int colCount) {
+        return (int) (((long) rowCount * colCount + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    // the position of a random board whose mines are not on or around the given cell, or -1 if none was found
+    public int pick(int firstClickRowIndex, int firstClickColIndex, Random rng) {
+        if (boardCount == 0) return -1;
+        int firstClickIndex = firstClickRowIndex * colCount + firstClickColIndex;
+        int start = rng.nextInt(boardCount);
+        for (int attempt = 0; attempt < Math.min(boardCount, MAX_PICK_ATTEMPTS); ++attempt) {
+            int board = (start + attempt) % boardCount;
+            if (isSafe(board, firstClickIndex)) return board;
+        }
+        return -1;
+    }
+
+    private boolean isSafe(int board, int index) {
+        if (hasMine(board, index)) return false;
+        for (int i = topology.neighborsStart(index); i < topology.neighborsEnd(index); ++i)
+            if (hasMine(board, topology.neighbor(i))) return false;
+        return true;
+    }
+
+    private boolean hasMine(int board, int index) {
+        long word = buffer.getLong((int) (maskOffset(board) + (long) (index / Long.SIZE) * Long.BYTES));
+        return (word & (1L << index)) != 0;
+    }
+
+    private long maskOffset(int board) {
+        return masksOffset + (long) board * maskLongs * Long.BYTES;
+    }
+
+    public Entry getEntry(int board) {
+        int offset = (int) (indexOffset + (long) checkBoard(board) * ENTRY_SIZE);
+        return new Entry(buffer.getLong(offset), buffer.getInt(offset + 8),
+                buffer.getInt(offset + 12), buffer.getInt(offset + 16));
+    }
+
+    public BitSet getMines(int board) {
+        var words = new long[maskLongs];
+        buffer.slice((int) maskOffset(checkBoard(board)), maskLongs * Long.BYTES)
+                .order(ByteOrder.BIG_ENDIAN).asLongBuffer().get(words);
+        return BitSet.valueOf(words);
+    }
+
+    private int checkBoard(int board) {
+        if (board < 0 || board >= boardCount) throw new IndexOutOfBoundsException(board);
+        return board;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    public int getMineCount() {
+        return mineCount;
+    }
+
+    public int getBoardCount() {
+        return boardCount;
+    }
+}
@@ -0,0 +1,184 @@
+package gr.ntua.medialab.application.packs;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.engine.BoardHash;
+import gr.ntua.medialab.application.engine.Topology;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+// Builds a board pack (see BoardPack): generates the boards in parallel on the common pool, then writes them
+// Mines are placed like Board.placeMines() places them (the first mine is the super mine), without a first click
+// Every board has its own seed, derived from the seed of the pack and its position, so the same arguments always
+// build the same pack, and boards whose 3BV (the minimum number of clicks to win) is too low are regenerated
+// Boards that are a rotation or a reflection of a board already in the pack are regenerated as well (they are found
+// through their canonical BoardHash, in a set shared by every thread), which board of such a pair is kept depends on
+// which one is generated first, but duplicates only show up on boards with very few arrangements
+// Usage: BoardPackBuilder <rows> <cols> <mines> <boards> [seed] [minimum 3BV] [output folder]
+
+public class BoardPackBuilder {
+    // how many boards are generated for a single position of the pack before giving up
+    private static final int MAX_ATTEMPTS = 10_000;
+
+    // a board that has been generated and measured
+    private record Generated(long seed, long[] mask, int superMineIndex, int bbbv, int openings) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: BoardPackBuilder <rows> <cols> <mines> <boards> " +
+                    "[seed] [minimum 3BV] [output folder]");
+            System.exit(1);
+        }
+        int rowCount = Integer.parseInt(args[0]);
+        int colCount = Integer.parseInt(args[1]);
+        int mineCount = Integer.parseInt(args[2]);
+        int boardCount = Integer.parseInt(args[3]);
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : 42;
+        int minBbbv = (args.length > 5) ? Integer.parseInt(args[5]) : 0;
+        var folder = (args.length > 6) ? new File(args[6]) : Settings.BOARD_PACKS_FOLDER();
+
+        var topology = Topology.of(Topology.Kind.SQUARE, rowCount, colCount);
+        if (mineCount < 0 || mineCount > rowCount * colCount - 1 - topology.getMaxDegree())
+            throw new IllegalArgumentException("There is no room for a safe first click with " + mineCount + " mines");
+        if (boardCount < 0) throw new IllegalArgumentException("The board count cannot be negative");
+        if (minBbbv > rowCount * colCount - mineCount)
+            throw new IllegalArgumentException("No board can have a 3BV of " + minBbbv);
+
+        long start = System.nanoTime();
+        Set<Long> hashes = ConcurrentHashMap.newKeySet(boardCount);
+        var duplicates = new LongAdder();
+        var boards = IntStream.range(0, boardCount).parallel()
+                .mapToObj(board -> generate(topology, mineCount, minBbbv, seed, board, hashes, duplicates))
+                .toArray(Generated[]::new);
+        long generated = System.nanoTime();
+
+        if (!folder.isDirectory() && !folder.mkdirs()) throw new IOException("Could not create '" + folder + "'");
+        var file = new File(folder, BoardPack.fileName(rowCount, colCount, mineCount));
+        write(file, rowCount, colCount, mineCount, boards);
+
+        double meanBbbv = 0;
+        for (var board : boards) meanBbbv += (double) board.bbbv() / Math.max(1, boardCount);
+        System.out.printf("Built %s: %d boards (mean 3BV %.1f, %d duplicates skipped) in %.0f ms, " +
+                        "written in %.0f ms (%d bytes)%n", file, boardCount, meanBbbv, duplicates.sum(),
+                (generated - start) / 1e6, (System.nanoTime() - generated) / 1e6, file.length());
+    }
+
+    // the first board of the given position whose 3BV is high enough, and that is not equivalent to another board
+    private static Generated generate(Topology topology, int mineCount, int minBbbv, long packSeed, int position,
+                                      Set<Long> hashes, LongAdder duplicates) {
+        var seeds = new SplittableRandom(packSeed ^ (position * 0x9E3779B97F4A7C15L));
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; ++attempt) {
+            long seed = seeds.nextLong();
+            var rng = new Random(seed);
+            var mines = new BitSet(topology.getRowCount() * topology.getColCount());
+            var hash = new BoardHash(topology);
+            int superMineIndex = -1;
+            for (int minesRemaining = mineCount; minesRemaining > 0; ) {
+                int row = rng.nextInt(topology.getRowCount());
+                int col = rng.nextInt(topology.getColCount());
+                int index = row * topology.getColCount() + col;
+                if (mines.get(index)) continue;
+                mines.set(index);
+                hash.toggle(index, BoardHash.MINE);
+                if (superMineIndex < 0) superMineIndex = index;
+                --minesRemaining;
+            }
+
+            var measured = measure(topology, mines);
+            if (measured[0] < minBbbv) continue;
+            if (!hashes.add(hash.canonical())) {
+                duplicates.increment();
+                continue;
+            }
+            var mask = Arrays.copyOf(mines.toLongArray(), BoardPack.maskLongs(topology.getRowCount(),
+                    topology.getColCount()));
+            return new Generated(seed, mask, superMineIndex, measured[0], measured[1]);
+        }
+        throw new IllegalStateException("Could not find enough distinct boards with a 3BV of at least " + minBbbv);
+    }
+
+    // the 3BV of the given mines, and the number of openings (regions of cells without adjacent mines)
+    // the 3BV is one click per opening, plus one per safe cell that is not revealed by any opening
+    private static int[] measure(Topology topology, BitSet mines) {
+        int cellCount = topology.getRowCount() * topology.getColCount();
+        var counts = new int[cellCount];
+        for (int index = mines.nextSetBit(0); index >= 0; index = mines.nextSetBit(index + 1))
+            for (int i = topology.neighborsStart(index); i < topology.neighborsEnd(index); ++i)
+                ++counts[topology.neighbor(i)];
+
+        var reached = new BitSet(cellCount);
+        var queue = new ArrayDeque<Integer>();
+        int openings = 0;
+        for (int cell = 0; cell < cellCount; ++cell) {
+            if (reached.get(cell) || mines.get(cell) || counts[cell] != 0) continue;
+            ++openings;
+            reached.set(cell);
+            queue.add(cell);
+            while (!queue.isEmpty()) {
+                int index = queue.poll();
+                if (counts[index] != 0) continue;
+                for (int i = topology.neighborsStart(index); i < topology.neighborsEnd(index); ++i) {
+                    int adjIndex = topology.neighbor(i);
+                    if (reached.get(adjIndex)) continue;
+                    reached.set(adjIndex);
+                    queue.add(adjIndex);
+                }
+            }
+        }
+        int bbbv = openings + (cellCount - mines.cardinality() - reached.cardinality());
+        return new int[]{bbbv, openings};
+    }
+
+    private static void write(File file, int rowCount, int colCount, int mineCount, Generated[] boards)
+            throws IOException {
+        int maskLongs = BoardPack.maskLongs(rowCount, colCount);
+        long indexOffset = BoardPack.HEADER_SIZE;
+        long masksOffset = indexOffset + (long) boards.length * BoardPack.ENTRY_SIZE;
+        if (masksOffset + (long) boards.length * maskLongs * Long.BYTES > Integer.MAX_VALUE)
+            throw new IOException("Board packs are limited to 2 GiB");
+
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            var header = ByteBuffer.allocate(BoardPack.HEADER_SIZE)
+                    .putInt(BoardPack.MAGIC).putInt(BoardPack.VERSION)
+                    .putInt(rowCount).putInt(colCount).putInt(mineCount).putInt(boards.length)
+                    .putInt(maskLongs).putInt(BoardPack.ENTRY_SIZE)
+                    .putLong(indexOffset).putLong(masksOffset);
+            writeFully(channel, header);
+
+            var buffer = ByteBuffer.allocate(1 << 16);
+            for (var board : boards) {
+                if (buffer.remaining() < BoardPack.ENTRY_SIZE) writeFully(channel, buffer);
+                buffer.putLong(board.seed()).putInt(board.superMineIndex()).putInt(board.bbbv())
+                        .putInt(board.openings()).putInt(0);
+            }
+            for (var board : boards) {
+                for (long word : board.mask()) {
+                    if (buffer.remaining() < Long.BYTES) writeFully(channel, buffer);
+                    buffer.putLong(word);
+                }
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    // writes what has been put in the given buffer, and clears it
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
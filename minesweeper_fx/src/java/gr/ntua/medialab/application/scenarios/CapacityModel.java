@@ -0,0 +1,103 @@
+package gr.ntua.medialab.application.scenarios;
+
+import gr.ntua.medialab.application.Settings;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+
+// the estimated cost of a board of a given size, and the backends it is played with (see of())
+// storage: a Board (bitsets and precomputed neighbor tables on the heap) if it fits in its share of the heap at its
+// peak (while it is built and while its largest action is answered, not only once it is built),
+// otherwise an OffHeapBoard (4 bits per cell in direct buffers, played by headless sessions, see GameSession) if it
+// fits in its share of the direct memory, otherwise nothing (a scenario of that size is invalid)
+// renderer: the minefield of the GUI (a view made of a few nodes per cell) if the board is on the heap and its view
+// fits in the node budget of the Settings and in the heap as well, otherwise nothing (it can only be played headless)
+// the costs per cell were measured on boards of 1 to 3 million cells and on 40000 cell views (64-bit JVM,
+// compressed pointers)
+
+public record CapacityModel(int rowCount, int colCount, Storage storage, Renderer renderer,
+                            long estimatedBytes, long estimatedNodes) {
+    // a board on the heap at its peak: the board itself (5 bitsets, the adjacent mine counts and the neighbor tables
+    // of the topology, 38 bytes per cell once built), plus what an opening of the whole board needs on top of it
+    // (the queue of the reveal, the cells of its delta, and a response of a session that lists every one of them)
+    // the largest boards that survived a full opening took 80 bytes per cell of -Xmx (128 and 256 MiB) in a session
+    // (the cache of Topology keeps the tables of small boards after the boards are gone, but never more than
+    // 36 MiB of them, which is left out of the estimate like the rest of the application)
+    private static final int BOARD_PEAK_BYTES_PER_CELL = 80;
+    // a view: the cell of the minefield, its nodes, their listeners and the snapshots of the board
+    private static final int VIEW_BYTES_PER_CELL = 4096;
+    private static final int VIEW_NODES_PER_CELL = 2; // a hidden cell, a marked or revealed one adds up to 2 more
+    // the neighbor table of a Board is a single int array, with up to 8 neighbors per cell
+    private static final long MAX_BOARD_CELLS = (Integer.MAX_VALUE - 8) / 8;
+
+    public enum Storage { BOARD, OFF_HEAP_BOARD, NONE }
+
+    public enum Renderer { MINEFIELD, NONE }
+
+    public static CapacityModel of(int rowCount, int colCount) throws IllegalArgumentException {
+        if (rowCount <= 0 || colCount <= 0) throw new IllegalArgumentException("The board must have at least one cell");
+
+        long cellCount = (long) rowCount * colCount;
+        long boardBytes = cellCount * BOARD_PEAK_BYTES_PER_CELL;
+        long offHeapBytes = (cellCount + 1) / 2;
+        long viewBytes = cellCount * VIEW_BYTES_PER_CELL;
+        long viewNodes = cellCount * VIEW_NODES_PER_CELL;
+
+        if (cellCount <= MAX_BOARD_CELLS && boardBytes <= heapBudget()) {
+            boolean displayed = viewNodes <= Settings.SCENARIO_MAX_DISPLAYED_NODES()
+                    && boardBytes + viewBytes <= heapBudget();
+            return displayed
+                    ? new CapacityModel(rowCount, colCount, Storage.BOARD, Renderer.MINEFIELD,
+                            boardBytes + viewBytes, viewNodes)
+                    : new CapacityModel(rowCount, colCount, Storage.BOARD, Renderer.NONE, boardBytes, 0);
+        }
+        if (offHeapBytes <= directBudget())
+            return new CapacityModel(rowCount, colCount, Storage.OFF_HEAP_BOARD, Renderer.NONE, offHeapBytes, 0);
+        return new CapacityModel(rowCount, colCount, Storage.NONE, Renderer.NONE, offHeapBytes, 0);
+    }
+
+    // whether a board of this size can be played at all (by the GUI if it is displayed, headless otherwise)
+    public boolean fits() {
+        return storage != Storage.NONE;
+    }
+
+    public boolean isDisplayed() {
+        return renderer == Renderer.MINEFIELD;
+    }
+
+    // e.g. "1000x1000 cells, Board (36 MiB), headless only"
+    public String describe() {
+        return rowCount + "x" + colCount + " cells, " + switch (storage) {
+            case BOARD -> "Board";
+            case OFF_HEAP_BOARD -> "OffHeapBoard";
+            case NONE -> "too large for any board";
+        } + " (" + (estimatedBytes >> 20) + " MiB), "
+                + (isDisplayed() ? estimatedNodes + " nodes" : fits() ? "headless only" : "not playable");
+    }
+
+    // the memory taken by the board alone (without its view), on the heap for a Board and off it for an OffHeapBoard
+    public long boardBytes() {
+        return switch (storage) {
+            case BOARD -> (long) rowCount * colCount * BOARD_PEAK_BYTES_PER_CELL;
+            case OFF_HEAP_BOARD, NONE -> estimatedBytes;
+        };
+    }
+
+    // the share of the heap that boards can take
+    public static long heapBudget() {
+        return (long) (Runtime.getRuntime().maxMemory() * Settings.SCENARIO_MAX_MEMORY_SHARE());
+    }
+
+    // the share of the direct memory that off-heap boards can take
+    // the direct memory is as large as the maximum heap, unless -XX:MaxDirectMemorySize says otherwise
+    public static long directBudget() {
+        long maxDirectMemory = 0;
+        try {
+            var diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            maxDirectMemory = Long.parseLong(diagnostics.getVMOption("MaxDirectMemorySize").getValue());
+        } catch (RuntimeException ignored) {} // not a HotSpot JVM
+        if (maxDirectMemory <= 0) maxDirectMemory = Runtime.getRuntime().maxMemory();
+        return (long) (maxDirectMemory * Settings.SCENARIO_MAX_MEMORY_SHARE());
+    }
+}
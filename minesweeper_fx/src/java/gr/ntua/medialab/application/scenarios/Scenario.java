@@ -2,14 +2,18 @@ package gr.ntua.medialab.application.scenarios;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 // class to represent a game configuration (called a scenario)
+// a scenario of the custom difficulty has a size of its own, every other one has the grid size of its difficulty
 
 public class Scenario {
     private int difficulty;
     private int timeLimit;
     private int mineCount;
     private boolean superMineExists;
+    private int rowCount; // only for the custom difficulty
+    private int colCount; // only for the custom difficulty
 
     public Scenario(int difficulty, int timeLimit, int mineCount, boolean superMineExists) throws InvalidValueException {
         setDifficulty(difficulty);
@@ -18,18 +22,30 @@ public class Scenario {
         setSuperMineExists(superMineExists);
     }
 
+    // a scenario of the custom difficulty, with the given size
+    public Scenario(int timeLimit, int mineCount, boolean superMineExists, int rowCount, int colCount)
+            throws InvalidValueException {
+        setDifficulty(ScenarioConstraints.CUSTOM_DIFFICULTY);
+        setSize(rowCount, colCount);
+        setTimeLimit(timeLimit);
+        setMineCount(mineCount);
+        setSuperMineExists(superMineExists);
+    }
+
     // create a scenario from a file containing a valid description
     public static Scenario fromFile(File file) throws InvalidDescriptionException, IOException {
         return ScenarioSerializer.fromFile(file);
     }
 
-    // create a file containing a valid description representing the scenario
-    public static void toFile(Scenario scenario, File outputFolder, String filename) throws IllegalArgumentException, IOException {
-        ScenarioSerializer.toFile(scenario, outputFolder, filename);
+    // create a file containing a valid description representing the scenario, in the background
+    public static CompletableFuture<Void> toFile(Scenario scenario, File outputFolder, String filename)
+            throws IllegalArgumentException {
+        return ScenarioSerializer.toFile(scenario, outputFolder, filename);
     }
 
     public void setDifficulty(int difficulty) throws InvalidValueException {
-        if (!ScenarioConstraints.AVAILABLE_DIFFICULTIES.contains(difficulty))
+        if (!ScenarioConstraints.AVAILABLE_DIFFICULTIES.contains(difficulty) &&
+            difficulty != ScenarioConstraints.CUSTOM_DIFFICULTY)
             throw new InvalidValueException("Invalid difficulty");
 
         this.difficulty = difficulty;
@@ -43,9 +59,25 @@ public class Scenario {
         this.timeLimit = timeLimit;
     }
 
+    // the size must not be too large for any board (see CapacityModel)
+    public void setSize(int rowCount, int colCount) throws InvalidValueException {
+        if (!isCustom())
+            throw new InvalidValueException("Only a scenario of the custom difficulty can have a size of its own");
+        if (rowCount <= 0 || colCount <= 0)
+            throw new InvalidValueException("Invalid size");
+        var capacity = CapacityModel.of(rowCount, colCount);
+        if (!capacity.fits())
+            throw new InvalidValueException("The board does not fit in memory (" + capacity.describe() + ")");
+
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+    }
+
     public void setMineCount(int mineCount) throws InvalidValueException {
-        if (mineCount < ScenarioConstraints.MIN_MINE_COUNT(difficulty) ||
-            mineCount > ScenarioConstraints.MAX_MINE_COUNT(difficulty))
+        int maxMineCount = isCustom()
+                ? ScenarioConstraints.CUSTOM_MAX_MINE_COUNT(rowCount, colCount)
+                : ScenarioConstraints.MAX_MINE_COUNT(difficulty);
+        if (mineCount < ScenarioConstraints.MIN_MINE_COUNT(difficulty) || mineCount > maxMineCount)
             throw new InvalidValueException("Invalid mine count");
 
         this.mineCount = mineCount;
@@ -62,8 +94,21 @@ public class Scenario {
         return difficulty;
     }
 
-    public int getGridSize() {
-        return ScenarioConstraints.GRID_SIZE(difficulty);
+    public boolean isCustom() {
+        return difficulty == ScenarioConstraints.CUSTOM_DIFFICULTY;
+    }
+
+    public int getRowCount() {
+        return isCustom() ? rowCount : ScenarioConstraints.GRID_SIZE(difficulty);
+    }
+
+    public int getColCount() {
+        return isCustom() ? colCount : ScenarioConstraints.GRID_SIZE(difficulty);
+    }
+
+    // the cost of the scenario's board, and the backends it is played with
+    public CapacityModel getCapacity() {
+        return CapacityModel.of(getRowCount(), getColCount());
     }
 
     public int getTimeLimit() {
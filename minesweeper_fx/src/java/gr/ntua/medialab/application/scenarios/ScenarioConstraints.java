@@ -5,23 +5,29 @@ import gr.ntua.medialab.application.Settings;
 import java.util.List;
 
 // class to hold the available difficulties of a scenario, as well as the costraints set by each one
+// the custom difficulty is not one of the available difficulties, its scenarios declare their own size instead of
+// having the grid size of their difficulty, so their mine count is constrained by their size (see Scenario)
 
 public class ScenarioConstraints {
     public static List<Integer> AVAILABLE_DIFFICULTIES = Settings.SCENARIO_AVAILABLE_DIFFICULTIES();
+    public static int CUSTOM_DIFFICULTY = Settings.SCENARIO_CUSTOM_DIFFICULTY();
 
     public static int GRID_SIZE(int difficulty) {
         return Settings.SCENARIO_GRID_SIZE(difficulty);
     }
 
     public static int MIN_TIME_LIMIT(int difficulty) {
+        if (difficulty == CUSTOM_DIFFICULTY) return Settings.SCENARIO_CUSTOM_MIN_TIME_LIMIT();
         return Settings.SCENARIO_MIN_TIME_LIMIT(difficulty);
     }
 
     public static int MAX_TIME_LIMIT(int difficulty) {
+        if (difficulty == CUSTOM_DIFFICULTY) return Settings.SCENARIO_CUSTOM_MAX_TIME_LIMIT();
         return Settings.SCENARIO_MAX_TIME_LIMIT(difficulty);
     }
 
     public static int MIN_MINE_COUNT(int difficulty) {
+        if (difficulty == CUSTOM_DIFFICULTY) return 1;
         return Settings.SCENARIO_MIN_MINE_COUNT(difficulty);
     }
 
@@ -29,7 +35,13 @@ public class ScenarioConstraints {
         return Settings.SCENARIO_MAX_MINE_COUNT(difficulty);
     }
 
+    // every cell can have a mine, except for the first clicked cell and its neighbors
+    public static int CUSTOM_MAX_MINE_COUNT(int rowCount, int colCount) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) rowCount * colCount - 9);
+    }
+
     public static boolean SUPER_MINE_CAN_EXIST(int difficulty) {
+        if (difficulty == CUSTOM_DIFFICULTY) return true;
         return Settings.SCENARIO_SUPER_MINE_CAN_EXIST(difficulty);
     }
 }
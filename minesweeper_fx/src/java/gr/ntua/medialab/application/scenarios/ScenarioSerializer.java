@@ -1,62 +1,88 @@
 package gr.ntua.medialab.application.scenarios;
 
 import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.storage.WriteService;
 
 import java.io.*;
 import java.nio.file.FileAlreadyExistsException;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 // helper class to make the Scenario class more readable and separate some of the logic
 
 class ScenarioSerializer {
-    // number of parameters to be read from the file
+    // number of parameters to be read from the file (more for the custom difficulty, which declares its size)
     private static final int PARAM_COUNT = Settings.SCENARIO_FILE_TOTAL_LINES();
+    private static final int CUSTOM_PARAM_COUNT = Settings.SCENARIO_FILE_CUSTOM_TOTAL_LINES();
 
     // index of each parameter read
     private static final int DIFF_INDEX = Settings.SCENARIO_FILE_DIFFICULTY_LINE();
     private static final int TIME_INDEX = Settings.SCENARIO_FILE_TIME_LIMIT_LINE();
     private static final int MINE_INDEX = Settings.SCENARIO_FILE_MINE_COUNT_LINE();
     private static final int SUPER_MINE_INDEX = Settings.SCENARIO_FILE_SUPER_MINE_EXISTENCE_LINE();
+    private static final int ROW_INDEX = Settings.SCENARIO_FILE_ROW_COUNT_LINE();
+    private static final int COL_INDEX = Settings.SCENARIO_FILE_COL_COUNT_LINE();
 
     // parse the given file and return a Scenario object if the file contains a valid description
     static Scenario fromFile(File file) throws Scenario.InvalidDescriptionException, IOException {
-        var parameters = new ArrayList<Integer>(PARAM_COUNT);
+        var lines = new ArrayList<String>(CUSTOM_PARAM_COUNT);
         try (var reader = new BufferedReader(new FileReader(file))) {
             for (int line = 0; line < PARAM_COUNT; ++line)
-                parameters.add(Integer.parseInt(reader.readLine()));
-
-            return new Scenario(
-                parameters.get(DIFF_INDEX),
-                parameters.get(TIME_INDEX),
-                parameters.get(MINE_INDEX),
-                parameters.get(SUPER_MINE_INDEX) == 1
-            );
+                lines.add(reader.readLine());
+
+            int difficulty = Integer.parseInt(lines.get(DIFF_INDEX));
+            int timeLimit = Integer.parseInt(lines.get(TIME_INDEX));
+            boolean superMineExists = Integer.parseInt(lines.get(SUPER_MINE_INDEX)) == 1;
+            if (difficulty != ScenarioConstraints.CUSTOM_DIFFICULTY)
+                return new Scenario(difficulty, timeLimit, Integer.parseInt(lines.get(MINE_INDEX)), superMineExists);
+
+            // the custom difficulty declares its size, and can give a mine density (a percentage of its cells)
+            for (int line = PARAM_COUNT; line < CUSTOM_PARAM_COUNT; ++line)
+                lines.add(reader.readLine());
+            int rowCount = Integer.parseInt(lines.get(ROW_INDEX));
+            int colCount = Integer.parseInt(lines.get(COL_INDEX));
+            var mines = lines.get(MINE_INDEX);
+            int mineCount = (mines != null && mines.endsWith("%"))
+                    ? (int) Math.min(Integer.MAX_VALUE, Math.round((double) rowCount * colCount *
+                            Double.parseDouble(mines.substring(0, mines.length() - 1)) / 100))
+                    : Integer.parseInt(mines);
+
+            return new Scenario(timeLimit, mineCount, superMineExists, rowCount, colCount);
         }
-        // thrown by Integer.parseInt()
+        // thrown by Integer.parseInt() and Double.parseDouble()
         catch (NumberFormatException e) {
             throw new Scenario.InvalidDescriptionException("Unexpected character in scenario file");
         }
         // thrown by Config()
         catch (Scenario.InvalidValueException e) {
-            throw new Scenario.InvalidDescriptionException("Bad description in scenario file");
+            throw new Scenario.InvalidDescriptionException("Bad description in scenario file: " + e.getMessage());
         }
     }
 
     // create a file containing a valid Scenario description at the specified location, with the specified filename
-    static void toFile(Scenario scenario, File outputFolder, String filename) throws IllegalArgumentException, IOException {
+    // the file is written in the background (see WriteService), the returned future fails with an IOException
+    // (FileAlreadyExistsException if the file already exists) if it could not be written
+    static CompletableFuture<Void> toFile(Scenario scenario, File outputFolder, String filename)
+            throws IllegalArgumentException {
         if (filename == null) throw new IllegalArgumentException("Given filename cannot be null");
 
         var scenarioFile = new File(outputFolder, filename);
+        return WriteService.get().write(scenarioFile.toPath(), describe(scenario), WriteService.Mode.CREATE_NEW)
+                .exceptionallyCompose(e -> {
+                    var failure = WriteService.failure(e);
+                    return CompletableFuture.failedFuture((failure instanceof FileAlreadyExistsException)
+                            ? new FileAlreadyExistsException("Scenario file already exists") : failure);
+                });
+    }
 
-        if (!scenarioFile.createNewFile())
-            throw new FileAlreadyExistsException("Scenario file already exists");
-
-        // block can throw IOException
-        try (var writer = new FileWriter(scenarioFile)){
-            writer.write(scenario.getDifficulty() + "\n");
-            writer.write(scenario.getMineCount() + "\n");
-            writer.write(scenario.getTimeLimit() + "\n");
-            writer.write(scenario.getSuperMineExists() ? "1\n" : "0\n");
-        }
+    // the contents of a file containing a valid Scenario description
+    static String describe(Scenario scenario) {
+        var description = scenario.getDifficulty() + "\n" +
+                scenario.getMineCount() + "\n" +
+                scenario.getTimeLimit() + "\n" +
+                (scenario.getSuperMineExists() ? "1\n" : "0\n");
+        if (scenario.isCustom())
+            description += scenario.getRowCount() + "\n" + scenario.getColCount() + "\n";
+        return description;
     }
 }
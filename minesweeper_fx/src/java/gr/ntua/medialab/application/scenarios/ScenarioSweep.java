@@ -0,0 +1,123 @@
+package gr.ntua.medialab.application.scenarios;
+
+import gr.ntua.medialab.application.Settings;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+// Generates every valid scenario (see ScenarioConstraints) across the whole parameter space, to stress-test the
+// rendering, the mine placement and the solvers with every kind of scenario instead of a few hand-made ones
+// Every difficulty (grid size) is swept with every mine count, with time limits in steps of the given size (both
+// bounds are always included), and both with and without a super mine wherever one can exist
+// Scenarios of the custom difficulty can be swept as well (see sweepSizes()), with square and 2:1 boards of every
+// power of two size up to a given one, and mine densities from 10% to 30%, skipping the sizes that do not fit in memory
+// The scenarios can be used in memory (see sweep()), or written to one file each, in parallel on the common pool
+// Files are named after their parameters, so sweeping again replaces the files of the previous sweep
+// Usage: ScenarioSweep [time limit step] [output folder] [maximum custom size (0 for none, the default)]
+
+public class ScenarioSweep {
+    private static final int MIN_CUSTOM_SIZE = 8;
+    private static final int[] CUSTOM_DENSITIES = {10, 15, 20, 25, 30}; // in percent of the cells
+
+    public static void main(String[] args) throws IOException {
+        int timeLimitStep = (args.length > 0) ? Integer.parseInt(args[0]) : 1;
+        var folder = (args.length > 1) ? new File(args[1]) : new File(Settings.SCENARIOS_FOLDER(), "sweep");
+        int maxCustomSize = (args.length > 2) ? Integer.parseInt(args[2]) : 0;
+
+        long start = System.nanoTime();
+        var scenarios = sweep(timeLimitStep);
+        scenarios.addAll(sweepSizes(maxCustomSize));
+        long swept = System.nanoTime();
+        write(scenarios, folder);
+        System.out.printf("Swept %d scenarios in %.0f ms, written to %s in %.0f ms%n", scenarios.size(),
+                (swept - start) / 1e6, folder, (System.nanoTime() - swept) / 1e6);
+    }
+
+    // every valid scenario, in order of difficulty, mine count, time limit and super mine
+    public static List<Scenario> sweep(int timeLimitStep) throws IllegalArgumentException {
+        if (timeLimitStep <= 0) throw new IllegalArgumentException("The time limit step must be positive");
+
+        var scenarios = new ArrayList<Scenario>();
+        for (int difficulty : ScenarioConstraints.AVAILABLE_DIFFICULTIES) {
+            int minTimeLimit = ScenarioConstraints.MIN_TIME_LIMIT(difficulty);
+            int maxTimeLimit = ScenarioConstraints.MAX_TIME_LIMIT(difficulty);
+            for (int mineCount = ScenarioConstraints.MIN_MINE_COUNT(difficulty);
+                 mineCount <= ScenarioConstraints.MAX_MINE_COUNT(difficulty); ++mineCount) {
+                for (int timeLimit = minTimeLimit; timeLimit <= maxTimeLimit; ) {
+                    scenarios.add(create(difficulty, timeLimit, mineCount, false));
+                    if (ScenarioConstraints.SUPER_MINE_CAN_EXIST(difficulty))
+                        scenarios.add(create(difficulty, timeLimit, mineCount, true));
+                    // the last step is shortened, so that the maximum time limit is always swept
+                    timeLimit = (timeLimit == maxTimeLimit) ? maxTimeLimit + 1
+                            : Math.min(timeLimit + timeLimitStep, maxTimeLimit);
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    // scenarios of the custom difficulty, in order of size, density and super mine, with the longest time limit
+    // rows and columns go up in powers of two, both equal and with twice as many columns as rows
+    public static List<Scenario> sweepSizes(int maxSize) {
+        var scenarios = new ArrayList<Scenario>();
+        for (int rowCount = MIN_CUSTOM_SIZE; rowCount > 0 && rowCount <= maxSize; rowCount *= 2) {
+            for (int colCount : new int[]{rowCount, 2 * rowCount}) {
+                if (colCount <= 0 || colCount > maxSize || !CapacityModel.of(rowCount, colCount).fits()) continue;
+                for (int density : CUSTOM_DENSITIES) {
+                    int mineCount = (int) Math.min(Integer.MAX_VALUE, (long) rowCount * colCount * density / 100);
+                    for (boolean superMineExists : new boolean[]{false, true}) {
+                        try {
+                            scenarios.add(new Scenario(ScenarioConstraints.MAX_TIME_LIMIT(
+                                    ScenarioConstraints.CUSTOM_DIFFICULTY), mineCount, superMineExists,
+                                    rowCount, colCount));
+                        }
+                        catch (Scenario.InvalidValueException e) {
+                            throw new IllegalStateException("The scenario constraints are inconsistent: " +
+                                    e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    // write every scenario to its own file in the given folder, replacing any file with the same name
+    public static void write(List<Scenario> scenarios, File folder) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs()) throw new IOException("Could not create '" + folder + "'");
+        try {
+            scenarios.parallelStream().forEach(scenario -> {
+                try {
+                    Files.writeString(new File(folder, fileName(scenario)).toPath(),
+                            ScenarioSerializer.describe(scenario));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // e.g. d2-m40-t300-s1.txt for a scenario of difficulty 2, with 40 mines, 300 seconds and a super mine
+    // scenarios of the custom difficulty also have their size, e.g. d0-64x128-m1638-t86400-s0.txt
+    public static String fileName(Scenario scenario) {
+        return "d" + scenario.getDifficulty() +
+                (scenario.isCustom() ? "-" + scenario.getRowCount() + "x" + scenario.getColCount() : "") +
+                "-m" + scenario.getMineCount() + "-t" + scenario.getTimeLimit() +
+                "-s" + (scenario.getSuperMineExists() ? 1 : 0) + ".txt";
+    }
+
+    private static Scenario create(int difficulty, int timeLimit, int mineCount, boolean superMineExists) {
+        try {
+            return new Scenario(difficulty, timeLimit, mineCount, superMineExists);
+        }
+        catch (Scenario.InvalidValueException e) {
+            throw new IllegalStateException("The scenario constraints are inconsistent: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package gr.ntua.medialab.application.server;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.headless.GameSession;
+import gr.ntua.medialab.application.headless.MemoryBudget;
+import gr.ntua.medialab.application.headless.SpectatorFeed;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Local TCP server that hosts many independent games in one JVM, using the protocol of GameSession
+// Every connection gets its own session, served by its own virtual thread, so each session is only ever
+// touched by a single thread and no locks are needed (blocking on a socket only parks the virtual thread)
+// A connection whose first line is "watch <id>" becomes a read-only spectator of the session with that id
+// instead (a session learns its id with the "id" command), and receives the frames of its SpectatorFeed
+// All the sessions share a single MemoryBudget, so a new game that would not fit next to the games of the other
+// sessions is refused (e ...) instead of running the whole server out of memory
+// Usage: GameServer [port]
+
+public class GameServer {
+    // attributes
+    private final int port;
+
+    // state
+    private final AtomicInteger activeSessions = new AtomicInteger(0);
+    private final AtomicInteger sessionIds = new AtomicInteger(0);
+    private final Map<Integer, SpectatorFeed> feeds = new ConcurrentHashMap<>();
+    private final MemoryBudget memory = new MemoryBudget();
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : Settings.SERVER_PORT();
+        new GameServer(port).serve();
+    }
+
+    public GameServer(int port) {
+        this.port = port;
+    }
+
+    // accept connections forever, starting a virtual thread for each one
+    public void serve() throws IOException {
+        try (var serverSocket = new ServerSocket(port, Settings.SERVER_BACKLOG(), InetAddress.getLoopbackAddress())) {
+            System.out.println("Game server listening on " + serverSocket.getLocalSocketAddress());
+            while (!serverSocket.isClosed()) {
+                var socket = serverSocket.accept();
+                int id = sessionIds.incrementAndGet();
+                Thread.ofVirtual()
+                        .name("session-" + id)
+                        .start(() -> serveConnection(id, socket));
+            }
+        }
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    private void serveConnection(int id, Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true); // responses are single short lines, they should not wait for more data
+            var input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            var output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+
+            var firstLine = input.readLine();
+            if (firstLine == null) return;
+            if (firstLine.startsWith("watch ")) serveSpectator(firstLine, output);
+            else serveSession(id, firstLine, input, output);
+        }
+        catch (IOException e) {
+            // a client that disconnects abruptly only ends its own session
+            System.err.println(Thread.currentThread().getName() + " ended: " + e.getMessage());
+        }
+        catch (RuntimeException | Error e) {
+            // neither does a failure that the session could not answer, its game was released when it was closed
+            System.err.println(Thread.currentThread().getName() + " failed: " + e);
+        }
+    }
+
+    private void serveSession(int id, String firstLine, BufferedReader input, BufferedWriter output)
+            throws IOException {
+        var feed = new SpectatorFeed(id);
+        feeds.put(id, feed);
+        activeSessions.incrementAndGet();
+        try (var session = new GameSession(feed, memory)) {
+            var response = new StringBuilder();
+            boolean keepGoing = session.execute(firstLine, response);
+            output.append(response).flush();
+            if (keepGoing) session.run(input, output);
+        }
+        finally {
+            activeSessions.decrementAndGet();
+            feeds.remove(id);
+            feed.close();
+        }
+    }
+
+    private void serveSpectator(String watchLine, BufferedWriter output) throws IOException {
+        SpectatorFeed feed;
+        try {
+            feed = feeds.get(Integer.parseInt(watchLine.substring("watch ".length()).trim()));
+        }
+        catch (NumberFormatException e) {
+            feed = null;
+        }
+        if (feed == null) {
+            output.append("e no such session\n").flush();
+            return;
+        }
+
+        var viewer = feed.subscribe();
+        try {
+            while (true) {
+                // only block (and flush) once every queued frame has been written
+                var frame = viewer.poll();
+                if (frame == null) {
+                    output.flush();
+                    frame = viewer.take();
+                }
+                long start = System.nanoTime();
+                output.append(frame).append('\n');
+                viewer.recordHandling(System.nanoTime() - start);
+                if (frame.equals(SpectatorFeed.END_FRAME)) break;
+            }
+            output.flush();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            feed.unsubscribe(viewer);
+            System.out.println(feed.report() + ", " + viewer.report());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package gr.ntua.medialab.application.server;
+
+import gr.ntua.medialab.application.Settings;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load generator for the GameServer, meant to be run on the same machine
+// Opens the requested number of sessions (one virtual thread each) and holds all of them open,
+// then has every session play random games until it has sent the requested number of commands
+// Reports how many sessions were held at the same time, the throughput, and the p50/p99 command latency
+// Usage: LoadGenerator [sessions] [commands per session] [port]
+
+public class LoadGenerator {
+    // the game every session plays (rows, cols, mines, super mine)
+    private static final String NEW_GAME_COMMAND = "new 16 16 40 1 ";
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessionCount = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+        int commandsPerSession = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int port = (args.length > 2) ? Integer.parseInt(args[2]) : Settings.SERVER_PORT();
+
+        var connected = new CountDownLatch(sessionCount);
+        var startSignal = new CountDownLatch(1);
+        var sessionsHeld = new AtomicInteger(0);
+        var failures = new AtomicInteger(0);
+        var latencies = new long[sessionCount][]; // each session only writes its own row, in nanoseconds
+
+        var threads = new ArrayList<Thread>(sessionCount);
+        for (int i = 0; i < sessionCount; ++i) {
+            int session = i;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                    socket.setTcpNoDelay(true);
+                    var input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                    var output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+                    sessionsHeld.incrementAndGet();
+                    connected.countDown();
+                    startSignal.await(); // every session starts sending commands at the same time
+                    latencies[session] = play(session, commandsPerSession, input, output);
+                }
+                catch (IOException | InterruptedException e) {
+                    failures.incrementAndGet();
+                    connected.countDown();
+                }
+            }));
+        }
+
+        connected.await();
+        System.out.println("Sessions held: " + sessionsHeld.get() + "/" + sessionCount);
+        long start = System.nanoTime();
+        startSignal.countDown();
+        for (var thread : threads) thread.join();
+        long elapsed = System.nanoTime() - start;
+
+        report(latencies, elapsed, failures.get());
+    }
+
+    // play random games, returning the latency of every command
+    private static long[] play(int session, int commandCount, BufferedReader input, BufferedWriter output)
+            throws IOException {
+        var rng = new Random(session);
+        var latencies = new long[commandCount];
+        boolean gameOver = true;
+        for (int command = 0; command < commandCount; ++command) {
+            String line = gameOver
+                    ? NEW_GAME_COMMAND + rng.nextLong()
+                    : ((rng.nextInt(10) == 0) ? "mark " : "reveal ") + rng.nextInt(16) + " " + rng.nextInt(16);
+
+            long sent = System.nanoTime();
+            output.write(line);
+            output.newLine();
+            output.flush();
+            var response = input.readLine();
+            latencies[command] = System.nanoTime() - sent;
+
+            if (response == null) throw new IOException("The server closed the session");
+            // a delta looks like "d <status> ...", the game goes on while the status is p (playing)
+            if (response.startsWith("ok")) gameOver = false;
+            else if (response.startsWith("d ")) gameOver = response.charAt(2) != 'p';
+        }
+        return latencies;
+    }
+
+    private static void report(long[][] latencies, long elapsed, int failures) {
+        List<long[]> completed = new ArrayList<>();
+        int total = 0;
+        for (var sessionLatencies : latencies)
+            if (sessionLatencies != null) {
+                completed.add(sessionLatencies);
+                total += sessionLatencies.length;
+            }
+
+        var all = new long[total];
+        int offset = 0;
+        for (var sessionLatencies : completed) {
+            System.arraycopy(sessionLatencies, 0, all, offset, sessionLatencies.length);
+            offset += sessionLatencies.length;
+        }
+        Arrays.sort(all);
+
+        System.out.println("Sessions completed: " + completed.size() + " (" + failures + " failed)");
+        System.out.println("Commands: " + total + " in " + (elapsed / 1_000_000) + "ms (" +
+                (long) (total / (elapsed / 1e9)) + " commands/s)");
+        if (total == 0) return;
+        System.out.printf("Latency p50: %.1fus, p99: %.1fus, max: %.1fus%n",
+                percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[total - 1] / 1e3);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,46 @@
+package gr.ntua.medialab.application.server;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.headless.SpectatorFeed;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+
+// Read-only viewer of a session hosted by the GameServer
+// Prints every frame it receives (see SpectatorFeed for their format) until the session ends,
+// then reports how many frames and bytes it received
+// Usage: Spectator <session id> [port] [--quiet]
+
+public class Spectator {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Spectator <session id> [port] [--quiet]");
+            return;
+        }
+        int port = (args.length > 1 && !args[1].startsWith("--")) ? Integer.parseInt(args[1]) : Settings.SERVER_PORT();
+        boolean quiet = args[args.length - 1].equals("--quiet");
+
+        long frames = 0, bytes = 0;
+        long start = System.nanoTime();
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            var input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            var output = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+            output.println("watch " + args[0]);
+
+            String frame;
+            while ((frame = input.readLine()) != null) {
+                ++frames;
+                bytes += frame.length() + 1;
+                if (!quiet) System.out.println(frame);
+                if (frame.equals(SpectatorFeed.END_FRAME) || frame.startsWith("e ")) break;
+            }
+        }
+        System.out.printf("Received %d frames, %d bytes (%.1f B/frame) in %dms%n",
+                frames, bytes, (frames == 0) ? 0.0 : (double) bytes / frames, (System.nanoTime() - start) / 1_000_000);
+    }
+}
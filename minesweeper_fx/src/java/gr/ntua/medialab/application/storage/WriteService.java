@@ -0,0 +1,190 @@
+package gr.ntua.medialab.application.storage;
+
+import gr.ntua.medialab.application.Settings;
+import gr.ntua.medialab.application.diagnostics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+// every file the game writes while it runs (the solution, the scenarios, the game log) is written by the single
+// background thread of this service, so that the thread that asks for a write never waits for the disk
+// writes are put in a bounded queue without ever blocking (a write that does not fit fails right away), and the
+// thread drains everything that is queued at once as a group (group commit): consecutive appends to the same file
+// are gathered into a single channel write, and every file of the group is forced once, at the end of the group
+// the future of each write completes (on the thread of the service) once its group has been forced
+// once the thread stops (closed or interrupted), every write still queued, or queued afterwards, fails instead
+
+public final class WriteService {
+    private static final long CLOSE_TIMEOUT = 5000; // in ms, the longest close() waits for the queued writes
+
+    // how a write treats the file it writes to
+    public enum Mode {
+        CREATE_NEW(StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW), // fails if the file already exists
+        REPLACE(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING),
+        APPEND(StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+
+        private final OpenOption[] options;
+
+        Mode(OpenOption... options) {
+            this.options = options;
+        }
+    }
+
+    private record Write(Path file, ByteBuffer contents, Mode mode, long queuedAt, CompletableFuture<Void> done) {
+    }
+
+    // written by nobody, tells the thread of the service to stop once it is reached
+    private static final Write END = new Write(null, null, null, 0, null);
+
+    // the service shared by the whole application, its thread is started the first time it is used
+    private static final class Holder {
+        private static final WriteService service = new WriteService(Settings.IO_QUEUE_CAPACITY());
+    }
+
+    // state
+    private final BlockingQueue<Write> queue;
+    private final Thread thread;
+    private volatile boolean closed = false;
+    private volatile boolean stopped = false; // the thread has stopped, so nothing queued will ever be written
+
+    // methods
+    public WriteService(int queueCapacity) {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        thread = new Thread(this::run, "write-service");
+        thread.setDaemon(true); // writes still queued when close() is not called are lost
+        thread.start();
+    }
+
+    public static WriteService get() {
+        return Holder.service;
+    }
+
+    // never blocks, the returned future fails if the service is closed or its queue is full
+    public CompletableFuture<Void> write(Path file, String contents, Mode mode) {
+        var done = new CompletableFuture<Void>();
+        var write = new Write(file, ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8)), mode,
+                System.nanoTime(), done);
+        if (closed) done.completeExceptionally(new IOException("The write service has been closed"));
+        else if (!queue.offer(write)) done.completeExceptionally(new IOException("Too many writes are queued"));
+        // the thread may have stopped since closed was checked, and then no one else would take this write
+        else if (stopped) failQueued();
+        return done;
+    }
+
+    // the exception a write failed with, as given to the stages that depend on its future (which get it wrapped
+    // in a CompletionException)
+    public static Throwable failure(Throwable e) {
+        return (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+    }
+
+    // stop accepting writes, and wait (for a while) for the ones already queued to be written
+    public void close() {
+        closed = true;
+        try {
+            if (queue.offer(END, CLOSE_TIMEOUT, TimeUnit.MILLISECONDS)) thread.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        var group = new ArrayList<Write>();
+        try {
+            boolean end = false;
+            while (!end) {
+                group.add(queue.take());
+                queue.drainTo(group);
+                end = group.remove(END);
+                if (!group.isEmpty()) commit(group);
+                group.clear();
+            }
+        } catch (InterruptedException ignored) {
+            // stopped without close(), the writes that are still queued are failed below
+        } finally {
+            closed = true;
+            stopped = true;
+            failQueued();
+        }
+    }
+
+    // fail every queued write, once the thread has stopped
+    // it is called by both the thread and the writers that queued a write after it stopped, and every write is
+    // drained (and failed) by exactly one of them
+    private void failQueued() {
+        var writes = new ArrayList<Write>();
+        queue.drainTo(writes);
+        for (var write : writes)
+            if (write != END) write.done().completeExceptionally(new IOException("The write service has been closed"));
+    }
+
+    // write a group, file by file (in the order each file was first written to), and then force every file once
+    private static void commit(List<Write> group) {
+        Metrics.IO_QUEUE_DEPTH.record(group.size());
+        var files = new LinkedHashMap<Path, List<Write>>();
+        for (var write : group) files.computeIfAbsent(write.file(), file -> new ArrayList<>()).add(write);
+
+        for (var writes : files.values()) {
+            var failures = new IOException[writes.size()];
+            FileChannel channel = null;
+            try {
+                for (int first = 0, end; first < writes.size(); first = end) {
+                    var mode = writes.get(first).mode();
+                    end = first + 1;
+                    if (mode == Mode.APPEND)
+                        while (end < writes.size() && writes.get(end).mode() == Mode.APPEND) ++end;
+                    try {
+                        channel = open(channel, writes.get(first).file(), mode);
+                        var buffers = new ByteBuffer[end - first];
+                        long remaining = 0;
+                        for (int i = first; i < end; ++i) {
+                            buffers[i - first] = writes.get(i).contents();
+                            remaining += buffers[i - first].remaining();
+                        }
+                        channel.position(channel.size()); // 0 unless appending, the file has just been truncated
+                        while (remaining > 0) remaining -= channel.write(buffers);
+                    } catch (IOException e) {
+                        for (int i = first; i < end; ++i) failures[i] = e;
+                    }
+                }
+                if (channel != null) channel.force(false);
+            } catch (IOException e) {
+                // the file could not be forced, none of its writes is known to have reached the disk
+                for (int i = 0; i < writes.size(); ++i) if (failures[i] == null) failures[i] = e;
+            } finally {
+                try {
+                    if (channel != null) channel.close();
+                } catch (IOException ignored) {}
+            }
+
+            for (int i = 0; i < writes.size(); ++i) {
+                var write = writes.get(i);
+                Metrics.IO_WRITE_TIME.record(System.nanoTime() - write.queuedAt());
+                if (failures[i] == null) write.done().complete(null);
+                else write.done().completeExceptionally(failures[i]);
+            }
+        }
+        Metrics.IO_COMMITS.increment(1);
+    }
+
+    // the channel of an earlier write of the group to the same file is reused, as if the file had been opened again
+    private static FileChannel open(FileChannel channel, Path file, Mode mode) throws IOException {
+        if (channel == null) return FileChannel.open(file, mode.options);
+        if (mode == Mode.CREATE_NEW) throw new FileAlreadyExistsException(file.toString());
+        if (mode == Mode.REPLACE) channel.truncate(0);
+        return channel;
+    }
+}